@@ -6,42 +6,88 @@ import com.sun.net.httpserver.HttpServer;
 import net.novauniverse.apilib.http.auth.Authentication;
 import net.novauniverse.apilib.http.auth.AuthenticationProvider;
 import net.novauniverse.apilib.http.auth.AuthenticationResponse;
+import net.novauniverse.apilib.http.body.ContentDecoding;
+import net.novauniverse.apilib.http.body.LimitedInputStream;
+import net.novauniverse.apilib.http.endpoint.AsyncHTTPEndpoint;
 import net.novauniverse.apilib.http.endpoint.HTTPEndpoint;
 import net.novauniverse.apilib.http.enums.ExceptionMode;
 import net.novauniverse.apilib.http.enums.HTTPMethod;
 import net.novauniverse.apilib.http.enums.HTTPResponseCode;
 import net.novauniverse.apilib.http.enums.StandardResponseType;
+import net.novauniverse.apilib.http.exception.BodyParseException;
 import net.novauniverse.apilib.http.exception.HTTPMethodNotSupportedException;
+import net.novauniverse.apilib.http.exception.JSONParseException;
+import net.novauniverse.apilib.http.exception.MultipartParseException;
+import net.novauniverse.apilib.http.exception.RequestBodyTooLargeException;
+import net.novauniverse.apilib.http.executor.HTTPExecutors;
 import net.novauniverse.apilib.http.files.StaticFileHandler;
 import net.novauniverse.apilib.http.middleware.HTTPMiddleware;
-import net.novauniverse.apilib.http.middleware.MiddlewarePriority;
+import net.novauniverse.apilib.http.middleware.MiddlewareList;
+import net.novauniverse.apilib.http.middleware.MiddlewarePipeline;
 import net.novauniverse.apilib.http.middleware.MiddlewareResponse;
-import net.novauniverse.apilib.http.middleware.MiddlewareType;
 import net.novauniverse.apilib.http.request.Request;
 import net.novauniverse.apilib.http.response.AbstractHTTPResponse;
 import net.novauniverse.apilib.http.response.JSONResponse;
 import net.novauniverse.apilib.http.response.TextResponse;
+import net.novauniverse.apilib.http.routing.RouteMatch;
+import net.novauniverse.apilib.http.routing.Router;
+import net.novauniverse.apilib.http.transport.CompressingTransportExchange;
+import net.novauniverse.apilib.http.transport.FilterTransportExchange;
+import net.novauniverse.apilib.http.transport.HTTPTransport;
+import net.novauniverse.apilib.http.transport.HTTPTransportFactory;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.TransportHandler;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransport;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
+import net.novauniverse.apilib.http.utilities.ConditionalRequestUtilities;
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
+import net.novauniverse.apilib.http.utilities.HeaderUtilities;
 import org.json.JSONObject;
 
 import java.io.*;
 import java.net.BindException;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
 
 public class HTTPServer {
     public static final ExceptionMode DEFAULT_EXCEPTION_MODE = ExceptionMode.MESSAGE;
 
     private final List<AuthenticationProvider> authenticationProviders;
     private final InetSocketAddress address;
-    private final HttpServer httpServer;
+    private final List<InetSocketAddress> additionalAddresses;
+    private final List<HTTPTransport> transports;
+    private final Router<TransportHandler> router;
+    private HTTPTransportFactory transportFactory;
+    private int backlog;
+    private long maxBodySize;
+    private boolean decompressRequests;
+    private boolean compressResponses;
+    private int compressionLevel;
+    private int compressionThreshold;
+    private boolean started;
     private boolean hasShutDown;
+    private volatile boolean draining;
+    private final AtomicInteger inFlightRequests;
+    private Executor executor;
+    private boolean shutdownExecutorOnStop;
+    private boolean usingVirtualThreads;
     private StandardResponseType standardResponseType;
     private ExceptionMode exceptionMode;
-    private List<HTTPMiddleware> middlewares;
+    private MiddlewareList middlewares;
     private List<Consumer<Exception>> exceptionConsumers;
 
     public List<AuthenticationProvider> getAuthenticationProviders() {
@@ -72,14 +118,452 @@ public class HTTPServer {
      * @throws BindException If port is already in use
      */
     public HTTPServer(InetSocketAddress address) throws IOException, BindException {
+        this(address, true);
+    }
+
+    /**
+     * Create and start a http server on the provided address that handles requests
+     * using the provided {@link Executor}
+     *
+     * @param address  The port number to use
+     * @param executor The {@link Executor} to handle requests with
+     * @throws IOException   If the address is invalid
+     * @throws BindException If port is already in use
+     */
+    public HTTPServer(InetSocketAddress address, Executor executor) throws IOException, BindException {
+        this(address, false);
+        this.setExecutor(executor);
+        this.start();
+    }
+
+    /**
+     * Create a http server on the provided port. If <code>start</code> is
+     * <code>false</code> the server can be configured before calling
+     * {@link HTTPServer#start()}
+     *
+     * @param port  The port number to use
+     * @param start <code>true</code> to start the server right away
+     * @throws IOException   If the port number is invalid
+     * @throws BindException If port is already in use
+     */
+    public HTTPServer(int port, boolean start) throws IOException, BindException {
+        this(new InetSocketAddress(port), start);
+    }
+
+    /**
+     * Create a http server on the provided address. If <code>start</code> is
+     * <code>false</code> the server can be configured before calling
+     * {@link HTTPServer#start()}
+     *
+     * @param address The port number to use
+     * @param start   <code>true</code> to start the server right away
+     * @throws IOException   If the address is invalid
+     * @throws BindException If port is already in use
+     */
+    public HTTPServer(InetSocketAddress address, boolean start) throws IOException, BindException {
         this.address = address;
         this.authenticationProviders = new ArrayList<>();
         this.standardResponseType = StandardResponseType.JSON;
         this.exceptionMode = DEFAULT_EXCEPTION_MODE;
-        this.httpServer = HttpServer.create(address, 0);
-        this.middlewares = new ArrayList<>();
+        this.additionalAddresses = new ArrayList<>();
+        this.transports = new CopyOnWriteArrayList<>();
+        this.router = new Router<>();
+        this.transportFactory = JDKTransport::new;
+        this.backlog = 0;
+        this.maxBodySize = -1;
+        this.decompressRequests = true;
+        this.compressResponses = false;
+        this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        this.compressionThreshold = CompressingTransportExchange.DEFAULT_THRESHOLD;
+        this.draining = false;
+        this.inFlightRequests = new AtomicInteger(0);
+        this.middlewares = new MiddlewareList();
         this.exceptionConsumers = new ArrayList<>();
-        httpServer.start();
+        this.started = false;
+        this.executor = null;
+        this.shutdownExecutorOnStop = false;
+        this.usingVirtualThreads = false;
+        if (start) {
+            this.start();
+        }
+    }
+
+    /**
+     * Bind to the address and start accepting requests. This is called by the
+     * constructor unless the server was created with <code>start</code> set to
+     * <code>false</code>
+     *
+     * @return this {@link HTTPServer} instance so that calls can be chained
+     * @throws IOException   If the address is invalid
+     * @throws BindException If port is already in use
+     */
+    public HTTPServer start() throws IOException, BindException {
+        if (started) {
+            throw new IllegalStateException("The server has already been started");
+        }
+        List<HTTPTransport> listeners = new ArrayList<>();
+        for (InetSocketAddress listenerAddress : getListenerAddresses()) {
+            HTTPTransport transport = transportFactory.create();
+            transport.bind(listenerAddress, backlog);
+            listeners.add(transport);
+        }
+
+        TransportHandler handler = new TransportHandler() {
+            @Override
+            public void handle(TransportExchange exchange) throws IOException {
+                dispatch(exchange);
+            }
+
+            @Override
+            public void reject(TransportExchange exchange) throws IOException {
+                HTTPServer.this.reject(exchange);
+            }
+        };
+        for (HTTPTransport transport : listeners) {
+            transport.setExecutor(executor);
+            transport.setExceptionHandler(exception -> exceptionConsumers.forEach(consumer -> consumer.accept(exception)));
+            transport.start(handler);
+        }
+        transports.addAll(listeners);
+        started = true;
+        return this;
+    }
+
+    /**
+     * Set the {@link HTTPTransportFactory} used to create the http engine for each
+     * listener. The default is {@link JDKTransport} which uses the
+     * {@link com.sun.net.httpserver.HttpServer} included in the jdk. This has to
+     * be called before the server is started
+     *
+     * @param transportFactory The {@link HTTPTransportFactory} to use
+     * @return this {@link HTTPServer} instance so that calls can be chained
+     */
+    public HTTPServer setTransportFactory(HTTPTransportFactory transportFactory) {
+        if (started) {
+            throw new IllegalStateException("The transport can not be changed after the server has been started");
+        }
+        this.transportFactory = transportFactory;
+        return this;
+    }
+
+    /**
+     * @return The {@link HTTPTransportFactory} used to create the http engine for
+     * each listener
+     */
+    public HTTPTransportFactory getTransportFactory() {
+        return transportFactory;
+    }
+
+    /**
+     * @return The {@link HTTPTransport}s of all listeners. Empty until the server
+     * has been started
+     */
+    public List<HTTPTransport> getTransports() {
+        return Collections.unmodifiableList(transports);
+    }
+
+    /**
+     * Set the max amount of connections the operating system queues while waiting
+     * for them to be accepted. Raising this prevents connections from getting
+     * refused during traffic bursts. This has to be called before the server is
+     * started
+     *
+     * @param backlog The backlog to use or 0 to use the system default
+     * @return this {@link HTTPServer} instance so that calls can be chained
+     */
+    public HTTPServer setBacklog(int backlog) {
+        if (started) {
+            throw new IllegalStateException("The backlog can not be changed after the server has been started");
+        }
+        if (backlog < 0) {
+            throw new IllegalArgumentException("Backlog cant be less than 0");
+        }
+        this.backlog = backlog;
+        return this;
+    }
+
+    /**
+     * @return The accept backlog or 0 if the system default is used
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * Set the max size of request bodies. Requests with a larger
+     * <code>Content-Length</code> get a {@link HTTPResponseCode#PAYLOAD_TOO_LARGE}
+     * response before anything is read, and bodies without a length are cut off
+     * once they pass the limit. Endpoints can override this with
+     * {@link HTTPEndpoint#getMaxBodySize()}
+     *
+     * @param maxBodySize The max size in bytes or -1 for no limit
+     * @return this {@link HTTPServer} instance so that calls can be chained
+     */
+    public HTTPServer setMaxBodySize(long maxBodySize) {
+        if (maxBodySize < -1) {
+            throw new IllegalArgumentException("maxBodySize cant be less than -1");
+        }
+        this.maxBodySize = maxBodySize;
+        return this;
+    }
+
+    /**
+     * @return The max size of request bodies in bytes or -1 if there is no limit
+     */
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * Set if request bodies sent with <code>Content-Encoding: gzip</code> or
+     * <code>deflate</code> should be decompressed before they reach the
+     * {@link net.novauniverse.apilib.http.body.BodyParser}. The max body size
+     * applies to the decompressed body. Enabled by default
+     *
+     * @param decompressRequests <code>true</code> to decompress request bodies
+     * @return this {@link HTTPServer} instance so that calls can be chained
+     */
+    public HTTPServer setDecompressRequests(boolean decompressRequests) {
+        this.decompressRequests = decompressRequests;
+        return this;
+    }
+
+    /**
+     * @return <code>true</code> if compressed request bodies are decompressed
+     */
+    public boolean isDecompressRequests() {
+        return decompressRequests;
+    }
+
+    /**
+     * Set if responses should be compressed with <code>gzip</code> or
+     * <code>deflate</code> when the client sends a matching
+     * <code>Accept-Encoding</code>. Only text based content types at least as
+     * large as the compression threshold are compressed. Endpoints can opt out
+     * with {@link HTTPEndpoint#getCompressResponses()}. Disabled by default
+     *
+     * @param compressResponses <code>true</code> to compress responses
+     * @return this {@link HTTPServer} instance so that calls can be chained
+     */
+    public HTTPServer setCompressResponses(boolean compressResponses) {
+        this.compressResponses = compressResponses;
+        return this;
+    }
+
+    /**
+     * @return <code>true</code> if responses are compressed
+     */
+    public boolean isCompressResponses() {
+        return compressResponses;
+    }
+
+    /**
+     * Set the level used to compress responses. Lower levels use less cpu time
+     *
+     * @param compressionLevel The level from 1 to 9 or -1 for the default level
+     * @return this {@link HTTPServer} instance so that calls can be chained
+     */
+    public HTTPServer setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < -1 || compressionLevel > 9) {
+            throw new IllegalArgumentException("compressionLevel has to be between -1 and 9");
+        }
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    /**
+     * @return The level used to compress responses
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Set the min size of responses to compress. Smaller responses are sent as
+     * they are since compressing them saves little. Responses with an unknown
+     * length are always compressed. Default is 1024 bytes
+     *
+     * @param compressionThreshold The size in bytes
+     * @return this {@link HTTPServer} instance so that calls can be chained
+     */
+    public HTTPServer setCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException("compressionThreshold cant be less than 0");
+        }
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
+    /**
+     * @return The min size in bytes of responses to compress
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Wrap an exchange so the response is compressed if the client accepts it
+     *
+     * @param exchange The {@link TransportExchange}
+     * @return The wrapped exchange
+     */
+    private TransportExchange compressResponse(TransportExchange exchange) {
+        return new CompressingTransportExchange(exchange, compressionLevel, compressionThreshold);
+    }
+
+    /**
+     * Add another address to listen on. Every address gets its own listener with
+     * its own dispatcher thread, while all of them share the same endpoints,
+     * middlewares and {@link Executor}. This can be used to spread accepting
+     * connections over multiple cores when running behind a load balancer. This
+     * has to be called before the server is started
+     *
+     * @param address The address to listen on
+     * @return this {@link HTTPServer} instance so that calls can be chained
+     */
+    public HTTPServer addListener(InetSocketAddress address) {
+        if (started) {
+            throw new IllegalStateException("Listeners can not be added after the server has been started");
+        }
+        additionalAddresses.add(address);
+        return this;
+    }
+
+    /**
+     * @return {@link List} with the addresses of all listeners including the main
+     * address
+     */
+    public List<InetSocketAddress> getListenerAddresses() {
+        List<InetSocketAddress> result = new ArrayList<>();
+        result.add(address);
+        result.addAll(additionalAddresses);
+        return result;
+    }
+
+    private void createContext(String path, TransportHandler handler) {
+        router.add(path, handler);
+    }
+
+    /**
+     * @return The {@link Router} used to find the handler for each request
+     */
+    public Router<TransportHandler> getRouter() {
+        return router;
+    }
+
+    /**
+     * Entry point for all requests received by the {@link HTTPTransport}s
+     *
+     * @param exchange The {@link TransportExchange}
+     * @throws IOException If the response could not be sent
+     */
+    private void dispatch(TransportExchange exchange) throws IOException {
+        RouteMatch<TransportHandler> match = router.match(exchange.getRequestURI().getPath());
+        if (match != null && match.getValue() instanceof ProxiedHttpHandler) {
+            // Counted by the handler since async endpoints finish later
+            ((ProxiedHttpHandler) match.getValue()).handle(exchange, match.getPathParameters());
+            return;
+        }
+
+        requestStarted();
+        try {
+            if (draining) {
+                exchange.setResponseHeader(HTTPHeaders.CONNECTION, "close");
+                standardResponseType.cachedError("The server is shutting down", HTTPResponseCode.SERVICE_UNAVAILABLE).handle(exchange);
+                return;
+            }
+            if (match == null) {
+                standardResponseType.cachedError("No endpoint found for the requested path", HTTPResponseCode.NOT_FOUND).handle(exchange);
+                return;
+            }
+            match.getValue().handle(compressResponses ? compressResponse(exchange) : exchange);
+        } finally {
+            requestFinished();
+        }
+    }
+
+    /**
+     * Answer a request the executor had no room for. Runs on the thread of the
+     * transport so the body is never read
+     *
+     * @param exchange The {@link TransportExchange}
+     * @throws IOException If the response could not be sent
+     */
+    private void reject(TransportExchange exchange) throws IOException {
+        exchange.setResponseHeader(HTTPHeaders.CONNECTION, "close");
+        standardResponseType.cachedError("The server is too busy to handle the request", HTTPResponseCode.SERVICE_UNAVAILABLE).handle(exchange);
+    }
+
+    /**
+     * @return <code>true</code> if {@link HTTPServer#start()} has been called
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Set the {@link Executor} used to handle requests. If no executor is set all
+     * requests are handled on the single dispatcher thread of the underlying
+     * server. See {@link net.novauniverse.apilib.http.executor.HTTPExecutors} for
+     * ready to use thread pools. This has to be called before the server is started
+     *
+     * @param executor The {@link Executor} to use or <code>null</code> to use the
+     *                 dispatcher thread
+     * @return this {@link HTTPServer} instance so that calls can be chained
+     */
+    public HTTPServer setExecutor(Executor executor) {
+        return this.setExecutor(executor, false);
+    }
+
+    /**
+     * Set the {@link Executor} used to handle requests. This has to be called
+     * before the server is started
+     *
+     * @param executor       The {@link Executor} to use or <code>null</code> to use
+     *                       the dispatcher thread
+     * @param shutdownOnStop <code>true</code> to shut down the executor when the
+     *                       server stops. Only used if the executor is an
+     *                       {@link ExecutorService}
+     * @return this {@link HTTPServer} instance so that calls can be chained
+     */
+    public HTTPServer setExecutor(Executor executor, boolean shutdownOnStop) {
+        if (started) {
+            throw new IllegalStateException("The executor can not be changed after the server has been started");
+        }
+        this.executor = executor;
+        this.shutdownExecutorOnStop = shutdownOnStop;
+        this.usingVirtualThreads = false;
+        return this;
+    }
+
+    /**
+     * Handle each request on its own virtual thread if the running JVM supports
+     * it. On older JVMs the current executor is kept. This has to be called
+     * before the server is started
+     *
+     * @return this {@link HTTPServer} instance so that calls can be chained
+     */
+    public HTTPServer useVirtualThreads() {
+        if (HTTPExecutors.isVirtualThreadsSupported()) {
+            this.setExecutor(HTTPExecutors.virtualThreadPerTaskExecutor(), true);
+            this.usingVirtualThreads = true;
+        }
+        return this;
+    }
+
+    /**
+     * @return <code>true</code> if requests are handled on virtual threads
+     */
+    public boolean isUsingVirtualThreads() {
+        return usingVirtualThreads;
+    }
+
+    /**
+     * @return The {@link Executor} used to handle requests or <code>null</code> if
+     * requests are handled on the dispatcher thread
+     */
+    public Executor getExecutor() {
+        return executor;
     }
 
     /**
@@ -131,7 +615,8 @@ public class HTTPServer {
     }
 
     /**
-     * Stop the web server
+     * Stop the web server. Waits up to 10 seconds for requests that are still
+     * being processed
      *
      * @return <code>true</code> on success
      */
@@ -140,9 +625,13 @@ public class HTTPServer {
     }
 
     /**
-     * Stop the web server
+     * Stop the web server. New connections are refused and new requests on open
+     * connections are answered with {@link HTTPResponseCode#SERVICE_UNAVAILABLE}
+     * and <code>Connection: close</code> while the server waits for the requests
+     * that are still being processed. The server stops as soon as there are no
+     * requests left or when the delay has passed
      *
-     * @param delay The delay to wait in seconds for connections to close
+     * @param delay The max time to wait in seconds for requests to finish
      * @return <code>true</code> on success
      */
     public boolean stop(int delay) {
@@ -155,19 +644,92 @@ public class HTTPServer {
         }
 
         hasShutDown = true;
-        httpServer.stop(10);
+        this.drain(delay, TimeUnit.SECONDS);
+        // The requests are counted as finished once their responses have been
+        // written, so there is nothing left for the transports to wait for. Some
+        // HttpServer versions wait for the whole delay even when idle
+        transports.forEach(transport -> transport.stop(0));
+        if (shutdownExecutorOnStop && executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+        return true;
+    }
+
+    /**
+     * Stop accepting new connections if the transports support it and wait for the
+     * requests that are still being processed to finish. The requests are counted
+     * by the server so this works the same for every transport. Connections that
+     * are already open are not closed,
+     * but requests received on them while draining are answered with
+     * {@link HTTPResponseCode#SERVICE_UNAVAILABLE} and <code>Connection: close</code>
+     * so that clients reconnect to another node. Use {@link HTTPServer#stop(int)}
+     * to close the remaining connections
+     *
+     * @param timeout The max time to wait
+     * @param unit    The {@link TimeUnit} of the timeout
+     * @return <code>true</code> if all requests finished before the timeout
+     */
+    public boolean drain(long timeout, TimeUnit unit) {
+        if (!draining) {
+            draining = true;
+            transports.forEach(HTTPTransport::stopAccepting);
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (inFlightRequests) {
+            while (inFlightRequests.get() > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(inFlightRequests, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
         return true;
     }
 
     /**
-     * Add a {@link HTTPEndpoint} to the web server
+     * @return <code>true</code> if the server is rejecting new requests because
+     * it is shutting down
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * @return The amount of requests currently being processed
+     */
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    private void requestStarted() {
+        inFlightRequests.incrementAndGet();
+    }
+
+    private void requestFinished() {
+        if (inFlightRequests.decrementAndGet() == 0 && draining) {
+            synchronized (inFlightRequests) {
+                inFlightRequests.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Add a {@link HTTPEndpoint} to the web server. The path can contain
+     * <code>{param}</code> segments like <code>/player/{id}/stats</code>. The
+     * values are available from {@link Request#getPathParameter(String)}
      *
      * @param path     The path of the api endpoint
      * @param endpoint The {@link HTTPEndpoint} to add
      * @return this {@link HTTPServer} instance so that calls can be chained
      */
     public HTTPServer addEndpoint(String path, HTTPEndpoint endpoint) {
-        httpServer.createContext(path, new ProxiedHttpHandler(path, this, endpoint));
+        this.createContext(path, new ProxiedHttpHandler(path, this, endpoint));
         return this;
     }
 
@@ -196,7 +758,7 @@ public class HTTPServer {
         if (!url.isEmpty() && url.charAt(url.length() - 1) == '/') {
             url = url.substring(0, url.length() - 1);
         }
-        httpServer.createContext(url.length() == 0 ? "/" : url, new StaticFileHandler(url, folder.getAbsolutePath(), directoryIndex));
+        this.createContext(url.length() == 0 ? "/" : url, new StaticFileHandler(url, folder.getAbsolutePath(), directoryIndex));
         return this;
     }
 
@@ -209,14 +771,34 @@ public class HTTPServer {
     }
 
     /**
-     * @return The underlying {@link com.sun.net.httpserver.HttpServer}
+     * @return The underlying {@link com.sun.net.httpserver.HttpServer} of the main
+     * address or <code>null</code> if the server has not been started or uses
+     * another transport than {@link JDKTransport}
      */
     public HttpServer getHttpServer() {
-        return httpServer;
+        if (!transports.isEmpty() && transports.get(0) instanceof JDKTransport) {
+            return ((JDKTransport) transports.get(0)).getHttpServer();
+        }
+        return null;
     }
 
     /**
-     * @return A {@link List} with all {@link HTTPMiddleware} to use for the request
+     * @return The underlying {@link com.sun.net.httpserver.HttpServer}s of all
+     * listeners using {@link JDKTransport}. Empty until the server has been
+     * started
+     */
+    public List<HttpServer> getHttpServers() {
+        List<HttpServer> result = new ArrayList<>();
+        for (HTTPTransport transport : transports) {
+            if (transport instanceof JDKTransport) {
+                result.add(((JDKTransport) transport).getHttpServer());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return {@link List} with all {@link HTTPMiddleware} to use for the request
      */
     public List<HTTPMiddleware> getMiddlewares() {
         return middlewares;
@@ -233,6 +815,14 @@ public class HTTPServer {
         return this;
     }
 
+    /**
+     * @return A number that changes every time the middlewares are modified. Used
+     * to know when a {@link MiddlewarePipeline} needs to be rebuilt
+     */
+    public int getMiddlewareRevision() {
+        return middlewares.getRevision();
+    }
+
     /**
      * Add a {@link Consumer} that will be called if an exception is caught while
      * processing a request
@@ -254,20 +844,34 @@ public class HTTPServer {
     }
 
     /**
-     * The internal {@link com.sun.net.httpserver.HttpHandler} used by the web
-     * server
+     * The internal handler used by the web server
      *
      * @author Zeeraa
      */
-    public static class ProxiedHttpHandler implements HttpHandler {
+    public static class ProxiedHttpHandler implements HttpHandler, TransportHandler {
         private final String path;
         private final HTTPServer server;
         private final HTTPEndpoint endpoint;
+        private volatile MiddlewarePipeline middlewarePipeline;
 
         private ProxiedHttpHandler(String path, HTTPServer server, HTTPEndpoint endpoint) {
             this.path = path;
             this.server = server;
             this.endpoint = endpoint;
+            this.middlewarePipeline = null;
+        }
+
+        /**
+         * @return The {@link MiddlewarePipeline} for this endpoint. The pipeline is
+         * only rebuilt after the middlewares have changed
+         */
+        public MiddlewarePipeline getMiddlewarePipeline() {
+            MiddlewarePipeline pipeline = middlewarePipeline;
+            if (pipeline == null || !pipeline.isUpToDate(server, endpoint)) {
+                pipeline = MiddlewarePipeline.compile(server, endpoint);
+                middlewarePipeline = pipeline;
+            }
+            return pipeline;
         }
 
         public String getPath() {
@@ -282,116 +886,347 @@ public class HTTPServer {
             return server;
         }
 
+        /**
+         * @return The {@link StandardResponseType} of the endpoint or the one from
+         * the {@link HTTPServer} if the endpoint does not specify one
+         */
+        public StandardResponseType getStandardResponseType() {
+            if (endpoint.getStandardResponseType() != null) {
+                return endpoint.getStandardResponseType();
+            }
+            return server.getStandardResponseType();
+        }
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
-            AbstractHTTPResponse response = processRequest(exchange);
-			if(response == null) {
-				return;
-			}
-            response.handle(exchange);
+            handle(new JDKTransportExchange(exchange));
         }
 
-        public AbstractHTTPResponse processRequest(HttpExchange exchange) {
+        @Override
+        public void handle(TransportExchange exchange) throws IOException {
+            handle(exchange, Collections.emptyMap());
+        }
+
+        private void handle(TransportExchange exchange, Map<String, String> pathParameters) throws IOException {
+            server.requestStarted();
+            if (isCompressResponses()) {
+                exchange = server.compressResponse(exchange);
+            }
+            RequestContext context = new RequestContext();
+            boolean completesLater = false;
             try {
-                // Get default response type
-                StandardResponseType standardResponseType = server.getStandardResponseType();
-                if (endpoint.getStandardResponseType() != null) {
-                    standardResponseType = endpoint.getStandardResponseType();
+                if (server.isDraining()) {
+                    exchange.setResponseHeader(HTTPHeaders.CONNECTION, "close");
+                    getStandardResponseType().cachedError("The server is shutting down", HTTPResponseCode.SERVICE_UNAVAILABLE).handle(exchange);
+                    return;
                 }
 
-                // Get exception mode
-                ExceptionMode exceptionMode = server.getExceptionMode();
-                if (endpoint.getExceptionMode() != null) {
-                    if (endpoint.getExceptionMode() != ExceptionMode.INHERIT) {
-                        exceptionMode = endpoint.getExceptionMode();
-                    }
+                CompletableFuture<AbstractHTTPResponse> future = processRequest(exchange, pathParameters, context);
+                TransportExchange responseExchange;
+                if (context.request != null) {
+                    responseExchange = context.request.getResponseExchange();
+                } else {
+                    responseExchange = context.exchange != null ? context.exchange : exchange;
+                }
+                if (!future.isDone()) {
+                    // Async endpoint. The response is sent by the thread completing the future
+                    completesLater = true;
+                    future.whenComplete((response, throwable) -> {
+                        try {
+                            if (response != null) {
+                                response.handle(responseExchange);
+                            }
+                        } catch (Exception e) {
+                            if (context.request != null) {
+                                context.request.markFailed();
+                            }
+                            consumeException(e);
+                            responseExchange.close();
+                        } finally {
+                            finish(context);
+                        }
+                    });
+                    return;
                 }
 
-                // Request body
-                String body = null;
-                if (endpoint.getBodyParser() != null) {
+                AbstractHTTPResponse response = future.join();
+                if (response != null) {
                     try {
-                        body = endpoint.getBodyParser().parseBody(exchange);
-                    } catch (Exception e) {
-                        consumeException(e);
-                        return generateExceptionResponse(standardResponseType, exceptionMode, e, "An internal error occurred while processing the request body");
+                        response.handle(responseExchange);
+                    } catch (IOException | RuntimeException e) {
+                        if (context.request != null) {
+                            context.request.markFailed();
+                        }
+                        throw e;
                     }
                 }
+            } finally {
+                if (!completesLater) {
+                    finish(context);
+                }
+            }
+        }
 
-                // Setup request object
-                Request request;
-                try {
-                    request = new Request(server, exchange, body);
-                } catch (HTTPMethodNotSupportedException e) {
-                    return standardResponseType.error(e.getMessage(), HTTPResponseCode.METHOD_NOT_ALLOWED);
+        private void finish(RequestContext context) {
+            try {
+                if (context.request != null) {
+                    context.request.complete();
                 }
+            } finally {
+                server.requestFinished();
+            }
+        }
 
-                // Allowed method validation
-                HTTPMethod method = request.getMethod();
+        /**
+         * See {@link ProxiedHttpHandler#processRequest(TransportExchange)}
+         *
+         * @param exchange The {@link HttpExchange}
+         * @return The response or <code>null</code> if the response has already been
+         * sent
+         */
+        public AbstractHTTPResponse processRequest(HttpExchange exchange) {
+            return processRequest(new JDKTransportExchange(exchange));
+        }
 
-                if (method == HTTPMethod.OPTIONS) {
-                    getServer().getMiddlewares().forEach(middleware -> middleware.handleOptionsRequest(request));
-                    getEndpoint().getMiddlewares().forEach(middleware -> middleware.handleOptionsRequest(request));
+        /**
+         * Process a request and return the response without sending it. Blocks until
+         * the response is ready if the endpoint is an {@link AsyncHTTPEndpoint}.
+         * The request is completed before this returns, so completion handlers like
+         * the ones releasing concurrency limits or storing cached responses run
+         * before the caller sends the response
+         *
+         * @param exchange The {@link TransportExchange}
+         * @return The response or <code>null</code> if the response has already been
+         * sent
+         */
+        public AbstractHTTPResponse processRequest(TransportExchange exchange) {
+            server.requestStarted();
+            RequestContext context = new RequestContext();
+            try {
+                return processRequest(exchange, Collections.emptyMap(), context).join();
+            } finally {
+                finish(context);
+            }
+        }
 
-					List<HTTPMethod> allowed;
+        private CompletableFuture<AbstractHTTPResponse> processRequest(TransportExchange exchange, Map<String, String> pathParameters, RequestContext context) {
+            AbstractHTTPResponse response = prepareRequest(exchange, pathParameters, context);
+            if (!context.ready) {
+                return CompletableFuture.completedFuture(response);
+            }
 
-					if(endpoint.getAllowedMethods().length > 0) {
-						allowed = Arrays.asList(endpoint.getAllowedMethods());
-					} else {
-						allowed = Arrays.asList(HTTPMethod.values());
-					}
+            // Make request
+            try {
+                if (isNotModified(context)) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (endpoint instanceof AsyncHTTPEndpoint) {
+                    CompletableFuture<AbstractHTTPResponse> future = ((AsyncHTTPEndpoint) endpoint).handleRequestAsync(context.request, context.authentication);
+                    if (future == null) {
+                        throw new IllegalStateException("handleRequestAsync returned null");
+                    }
+                    return future.handle((result, throwable) -> {
+                        if (throwable == null) {
+                            return result;
+                        }
+                        return requestFailed(unwrapException(throwable));
+                    });
+                }
+                return CompletableFuture.completedFuture(endpoint.handleRequest(context.request, context.authentication));
+            } catch (Exception e) {
+                return CompletableFuture.completedFuture(requestFailed(e));
+            }
+        }
 
-					StringBuilder sb = new StringBuilder();
-					allowed.forEach(allowedMethod -> {
-						sb.append(allowedMethod.name() + ", ");
-					});
+        /**
+         * Check the version of the endpoint against the conditional headers of the
+         * request. Sends a <code>304 Not Modified</code> response if the client
+         * already has the current version, otherwise the validators are kept in the
+         * {@link RequestContext} and only added if the endpoint sends a successful
+         * response
+         *
+         * @return <code>true</code> if the response has been sent
+         */
+        private boolean isNotModified(RequestContext context) throws Exception {
+            Request request = context.request;
+            HTTPMethod method = request.getMethod();
+            if (method != HTTPMethod.GET && method != HTTPMethod.HEAD) {
+                return false;
+            }
+            String version = endpoint.getVersion(request);
+            long lastModified = endpoint.getLastModified(request);
+            if (version == null && lastModified < 0) {
+                return false;
+            }
+            String etag = version == null ? null : ConditionalRequestUtilities.toETag(version);
+            TransportExchange exchange = request.getResponseExchange();
+            if (ConditionalRequestUtilities.isNotModified(exchange, etag, lastModified)) {
+                ConditionalRequestUtilities.sendNotModified(exchange, etag, lastModified);
+                return true;
+            }
+            context.etag = etag;
+            context.lastModified = lastModified;
+            request.setResponseExchange(new ValidatorExchange(exchange, context));
+            return false;
+        }
 
-					if (sb.length() > 0) {
-						sb.setLength(sb.length() - 2);
-					}
+        private AbstractHTTPResponse requestFailed(Exception exception) {
+            // Error handling
+            return exceptionResponse(getStandardResponseType(), getExceptionMode(), exception, "An internal error occurred while processing your request");
+        }
 
-					request.getExchange().getResponseHeaders().add("Allow", sb.toString());
+        private AbstractHTTPResponse exceptionResponse(StandardResponseType standardResponseType, ExceptionMode exceptionMode, Exception exception, String message) {
+            boolean bodyException = false;
+            if (exception instanceof BodyParseException && exception.getCause() instanceof Exception) {
+                // The body is parsed the first time it is used, so report parser errors the
+                // same way no matter where that was
+                exception = (Exception) exception.getCause();
+                message = "An internal error occurred while processing the request body";
+                bodyException = true;
+            }
+            if (exception instanceof RequestBodyTooLargeException) {
+                return standardResponseType.error(exception.getMessage(), HTTPResponseCode.PAYLOAD_TOO_LARGE);
+            }
+            // Malformed bodies are the fault of the client and not worth reporting
+            if (exception instanceof JSONParseException || exception instanceof MultipartParseException) {
+                return standardResponseType.error("Invalid request body: " + exception.getMessage(), HTTPResponseCode.BAD_REQUEST);
+            }
+            if (bodyException && (exception instanceof ZipException || exception instanceof EOFException)) {
+                // Thrown while inflating a compressed body or when the body ends early
+                return standardResponseType.cachedError("The request body is truncated or could not be decoded", HTTPResponseCode.BAD_REQUEST);
+            }
+            consumeException(exception);
+            return generateExceptionResponse(standardResponseType, exceptionMode, exception, message);
+        }
 
-					byte[] response = new byte[0];
-					request.getExchange().sendResponseHeaders(200, response.length);
-					OutputStream os = request.getExchange().getResponseBody();
-					os.write(response);
-					os.close();
+        private static Exception unwrapException(Throwable throwable) {
+            if (throwable instanceof CompletionException && throwable.getCause() != null) {
+                throwable = throwable.getCause();
+            }
+            if (throwable instanceof Exception) {
+                return (Exception) throwable;
+            }
+            return new CompletionException(throwable);
+        }
+
+        /**
+         * @return The {@link ExceptionMode} of the endpoint or the one from the
+         * {@link HTTPServer} if the endpoint inherits it
+         */
+        public ExceptionMode getExceptionMode() {
+            if (endpoint.getExceptionMode() != null && endpoint.getExceptionMode() != ExceptionMode.INHERIT) {
+                return endpoint.getExceptionMode();
+            }
+            return server.getExceptionMode();
+        }
+
+        /**
+         * @return The max body size of the endpoint or the one from the
+         * {@link HTTPServer} if the endpoint does not specify one. -1 if there is no
+         * limit
+         */
+        public long getMaxBodySize() {
+            if (endpoint.getMaxBodySize() != null) {
+                return endpoint.getMaxBodySize();
+            }
+            return server.getMaxBodySize();
+        }
+
+        /**
+         * @return <code>true</code> if responses of the endpoint should be
+         * compressed. Uses the setting of the {@link HTTPServer} if the endpoint
+         * does not specify one
+         */
+        public boolean isCompressResponses() {
+            if (endpoint.getCompressResponses() != null) {
+                return endpoint.getCompressResponses();
+            }
+            return server.isCompressResponses();
+        }
+
+        /**
+         * Run everything up until the endpoint is called. Marks the context as ready
+         * if the endpoint should be called
+         *
+         * @return The response to send if the request should not reach the endpoint
+         */
+        private AbstractHTTPResponse prepareRequest(TransportExchange exchange, Map<String, String> pathParameters, RequestContext context) {
+            try {
+                // Get default response type
+                StandardResponseType standardResponseType = getStandardResponseType();
 
-					return null;
+                // Get exception mode
+                ExceptionMode exceptionMode = getExceptionMode();
+
+                // Preflight and other OPTIONS requests are answered before the body is
+                // touched. The Allow header is built when the endpoint is configured
+                if (HTTPMethod.parse(exchange.getRequestMethod()) == HTTPMethod.OPTIONS) {
+                    Request request = new Request(server, exchange, null, pathParameters);
+                    context.request = request;
+                    for (HTTPMiddleware middleware : getMiddlewarePipeline().getAll()) {
+                        middleware.handleOptionsRequest(endpoint, request);
+                    }
+                    exchange.setResponseHeader(HTTPHeaders.ALLOW, endpoint.getAllowHeader());
+                    exchange.sendResponseHeaders(HTTPResponseCode.OK.getCode(), -1);
+                    exchange.getResponseBody().close();
+                    return null;
                 }
 
-                boolean methodAllowed = false;
-                if (endpoint.getAllowedMethods().length == 0) {
-                    methodAllowed = true;
-                } else {
-                    for (HTTPMethod allowed : endpoint.getAllowedMethods()) {
-                        if (method == allowed) {
-                            methodAllowed = true;
-                            break;
-                        }
+                // Body size limit. Checked before anything is read so that oversized
+                // uploads do not hold the thread
+                long maxBodySize = getMaxBodySize();
+                if (maxBodySize >= 0 && exchange.getRequestContentLength() > maxBodySize) {
+                    // The body is left unread so the connection cant be reused
+                    exchange.setResponseHeader(HTTPHeaders.CONNECTION, "close");
+                    return standardResponseType.cachedError("The request body is larger than the limit of " + maxBodySize + " bytes", HTTPResponseCode.PAYLOAD_TOO_LARGE);
+                }
+
+                // Compressed bodies are inflated before the size limit so that the limit
+                // applies to the decompressed size
+                DecodedBodyExchange decodedExchange = null;
+                if (server.isDecompressRequests()) {
+                    String contentEncoding = exchange.getFirstRequestHeader(HTTPHeaders.CONTENT_ENCODING);
+                    if (contentEncoding != null && ContentDecoding.isSupported(contentEncoding)) {
+                        decodedExchange = new DecodedBodyExchange(exchange, contentEncoding);
+                        exchange = decodedExchange;
+                    }
+                }
+                if (maxBodySize >= 0) {
+                    exchange = new LimitedBodyExchange(exchange, maxBodySize);
+                }
+                context.exchange = exchange;
+
+                // Setup request object. The query and body are parsed when first used
+                Request request;
+                try {
+                    request = new Request(server, exchange, endpoint.getBodyParser(), pathParameters);
+                    context.request = request;
+                    if (decodedExchange != null) {
+                        request.addCompletionHandler(decodedExchange::closeRequestBody);
                     }
+                } catch (HTTPMethodNotSupportedException e) {
+                    return standardResponseType.error(e.getMessage(), HTTPResponseCode.METHOD_NOT_ALLOWED);
                 }
 
-                if (!methodAllowed) {
-                    return standardResponseType.error("Method " + method.name() + " is not allowed for this endpoint", HTTPResponseCode.METHOD_NOT_ALLOWED);
+                // Allowed method validation
+                HTTPMethod method = request.getMethod();
+
+                MiddlewarePipeline pipeline = getMiddlewarePipeline();
+
+                if (!endpoint.isMethodAllowed(method)) {
+                    return standardResponseType.cachedError("Method " + method.name() + " is not allowed for this endpoint", HTTPResponseCode.METHOD_NOT_ALLOWED);
                 }
 
                 // Pre authentication middlewares
                 try {
-                    List<HTTPMiddleware> preAuthMiddlewares = new ArrayList<>();
-                    preAuthMiddlewares.addAll(server.getMiddlewares().stream().filter(m -> m.getType() == MiddlewareType.PRE_AUTHENTICATION).collect(Collectors.toList()));
-                    preAuthMiddlewares.addAll(endpoint.getMiddlewares().stream().filter(m -> m.getType() == MiddlewareType.PRE_AUTHENTICATION).collect(Collectors.toList()));
-                    preAuthMiddlewares.sort(new MiddlewarePriority.MiddlewarePrioritySorter());
-                    for (HTTPMiddleware middleware : preAuthMiddlewares) {
+                    for (HTTPMiddleware middleware : pipeline.getPreAuthentication()) {
                         MiddlewareResponse response = middleware.handleRequest(endpoint, request, null);
                         if (response.isCancel()) {
                             return response.getResponse();
                         }
                     }
                 } catch (Exception e) {
-                    consumeException(e);
-                    return generateExceptionResponse(standardResponseType, exceptionMode, e, "An internal error occurred while processing pre authentication middlewares");
+                    return exceptionResponse(standardResponseType, exceptionMode, e, "An internal error occurred while processing pre authentication middlewares");
                 }
 
                 // Authentication
@@ -406,8 +1241,7 @@ public class HTTPServer {
                         }
                     }
                 } catch (Exception e) {
-                    consumeException(e);
-                    return generateExceptionResponse(standardResponseType, exceptionMode, e, "An internal error occurred while processing authentication");
+                    return exceptionResponse(standardResponseType, exceptionMode, e, "An internal error occurred while processing authentication");
                 }
 
                 // Then with the ones from HTTPServer
@@ -424,39 +1258,30 @@ public class HTTPServer {
 
                 // Validate authentication
                 if (endpoint.isRequireAuthentication() && authentication == null) {
-                    return standardResponseType.error("Unauthenticated", HTTPResponseCode.UNAUTHORIZED);
+                    return standardResponseType.cachedError("Unauthenticated", HTTPResponseCode.UNAUTHORIZED);
                 }
 
                 AuthenticationResponse authResponse = endpoint.handleAuthentication(authentication, request);
                 if (!authResponse.isSuccess()) {
+                    // The message comes from the endpoint and can be different for every request
                     return standardResponseType.error(authResponse.getErrorMessage(), authResponse.getCode());
                 }
 
                 // Post authentication middlewares
                 try {
-                    List<HTTPMiddleware> postAuthMiddlewares = new ArrayList<>();
-                    postAuthMiddlewares.addAll(server.getMiddlewares().stream().filter(m -> m.getType() == MiddlewareType.POST_AUTHENTICATION).collect(Collectors.toList()));
-                    postAuthMiddlewares.addAll(endpoint.getMiddlewares().stream().filter(m -> m.getType() == MiddlewareType.POST_AUTHENTICATION).collect(Collectors.toList()));
-                    postAuthMiddlewares.sort(new MiddlewarePriority.MiddlewarePrioritySorter());
-                    for (HTTPMiddleware middleware : postAuthMiddlewares) {
-                        MiddlewareResponse response = middleware.handleRequest(endpoint, request, null);
+                    for (HTTPMiddleware middleware : pipeline.getPostAuthentication()) {
+                        MiddlewareResponse response = middleware.handleRequest(endpoint, request, authentication);
                         if (response.isCancel()) {
                             return response.getResponse();
                         }
                     }
                 } catch (Exception e) {
-                    consumeException(e);
-                    return generateExceptionResponse(standardResponseType, exceptionMode, e, "An internal error occurred while processing pre authentication middlewares");
+                    return exceptionResponse(standardResponseType, exceptionMode, e, "An internal error occurred while processing pre authentication middlewares");
                 }
 
-                // Make request
-                try {
-                    return endpoint.handleRequest(request, authentication);
-                } catch (Exception e) {
-                    // Error handling
-                    consumeException(e);
-                    return generateExceptionResponse(standardResponseType, exceptionMode, e, "An internal error occurred while processing your request");
-                }
+                context.authentication = authentication;
+                context.ready = true;
+                return null;
             } catch (Exception e) {
                 e.printStackTrace();
                 System.err.println("Unhandled exception in ProxiedHttpHandler");
@@ -464,6 +1289,122 @@ public class HTTPServer {
             }
         }
 
+        /**
+         * Exchange that limits how much of the request body can be read. The
+         * connection is closed after the response if the limit was hit since the
+         * rest of the body is still unread
+         */
+        private static class LimitedBodyExchange extends FilterTransportExchange {
+            private final LimitedInputStream requestBody;
+
+            private LimitedBodyExchange(TransportExchange exchange, long limit) {
+                super(exchange);
+                this.requestBody = new LimitedInputStream(exchange.getRequestBody(), limit);
+                HttpExchange httpExchange = JDKTransportExchange.unwrap(exchange);
+                if (httpExchange != null) {
+                    // Parsers using the HttpExchange directly should also see the limit
+                    httpExchange.setStreams(requestBody, null);
+                }
+            }
+
+            @Override
+            public InputStream getRequestBody() {
+                return requestBody;
+            }
+
+            @Override
+            public void sendResponseHeaders(int code, long length) throws IOException {
+                if (requestBody.isLimitExceeded()) {
+                    exchange.setResponseHeader(HTTPHeaders.CONNECTION, "close");
+                }
+                exchange.sendResponseHeaders(code, length);
+            }
+        }
+
+        /**
+         * Exchange that decompresses the request body. The length of the
+         * decompressed body is unknown so <code>Content-Length</code> is hidden from
+         * {@link TransportExchange#getFirstRequestHeader(String)}
+         */
+        private static class DecodedBodyExchange extends FilterTransportExchange {
+            private final InputStream requestBody;
+            private final Map<String, List<String>> requestHeaders;
+
+            private DecodedBodyExchange(TransportExchange exchange, String contentEncoding) {
+                super(exchange);
+                this.requestBody = ContentDecoding.decode(exchange.getRequestBody(), contentEncoding);
+                // The length and encoding describe the compressed body, not the one read
+                // from this exchange
+                Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                headers.putAll(exchange.getRequestHeaders());
+                headers.remove(HTTPHeaders.CONTENT_LENGTH);
+                headers.remove(HTTPHeaders.CONTENT_ENCODING);
+                this.requestHeaders = Collections.unmodifiableMap(headers);
+                HttpExchange httpExchange = JDKTransportExchange.unwrap(exchange);
+                if (httpExchange != null) {
+                    httpExchange.setStreams(requestBody, null);
+                }
+            }
+
+            @Override
+            public Map<String, List<String>> getRequestHeaders() {
+                return requestHeaders;
+            }
+
+            @Override
+            public String getFirstRequestHeader(String name) {
+                return HeaderUtilities.getFirst(requestHeaders, name);
+            }
+
+            @Override
+            public InputStream getRequestBody() {
+                return requestBody;
+            }
+
+            private void closeRequestBody() {
+                try {
+                    requestBody.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        /**
+         * Exchange that adds the validators of the endpoint to <code>2xx</code>
+         * responses. Errors must not get them since caches would store the error
+         * as the current version. Validators set by the response itself are kept
+         */
+        private static class ValidatorExchange extends FilterTransportExchange {
+            private final RequestContext context;
+
+            private ValidatorExchange(TransportExchange exchange, RequestContext context) {
+                super(exchange);
+                this.context = context;
+            }
+
+            @Override
+            public void sendResponseHeaders(int code, long length) throws IOException {
+                if (code >= 200 && code < 300) {
+                    String etag = exchange.getFirstResponseHeader(HTTPHeaders.ETAG) == null ? context.etag : null;
+                    long lastModified = exchange.getFirstResponseHeader(HTTPHeaders.LAST_MODIFIED) == null ? context.lastModified : -1;
+                    ConditionalRequestUtilities.setValidators(exchange, etag, lastModified);
+                }
+                exchange.sendResponseHeaders(code, length);
+            }
+        }
+
+        /**
+         * State of a request while it is being processed
+         */
+        private static class RequestContext {
+            private TransportExchange exchange = null;
+            private Request request = null;
+            private Authentication authentication = null;
+            private boolean ready = false;
+            private String etag = null;
+            private long lastModified = -1;
+        }
+
         public void consumeException(Exception exception) {
             server.getExceptionConsumers().forEach(c -> c.accept(exception));
         }
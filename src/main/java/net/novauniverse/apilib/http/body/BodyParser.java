@@ -1,12 +1,64 @@
 package net.novauniverse.apilib.http.body;
 
 import com.sun.net.httpserver.HttpExchange;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.TransportHttpExchange;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
- * BodyParsers are used to turn the request body to a string
+ * BodyParsers are used to turn the request body to a string. Parsers can
+ * override {@link BodyParser#parse(TransportExchange)} to provide the body in
+ * another form like a byte array, a {@link java.nio.ByteBuffer} or an
+ * {@link java.io.InputStream}
  *
  * @author Zeeraa
  */
 public interface BodyParser {
     String parseBody(HttpExchange exchange) throws Exception;
-}
\ No newline at end of file
+
+    /**
+     * Parse the body of a {@link TransportExchange}. By default the body is read
+     * through a {@link TransportHttpExchange} so it works on every transport.
+     * Override this to read from the {@link TransportExchange} directly
+     *
+     * @param exchange The {@link TransportExchange}
+     * @return The parsed body
+     * @throws Exception If the body could not be parsed
+     */
+    default String parseBody(TransportExchange exchange) throws Exception {
+        return parseBody(TransportHttpExchange.of(exchange));
+    }
+
+    /**
+     * Read the body in the form this parser provides it. This is what
+     * {@link net.novauniverse.apilib.http.request.Request} uses. By default the
+     * body is parsed to a string
+     *
+     * @param exchange The {@link TransportExchange}
+     * @return The body as a {@link String}, <code>byte[]</code>,
+     * {@link java.nio.ByteBuffer} or {@link java.io.InputStream}
+     * @throws Exception If the body could not be parsed
+     */
+    default Object parse(TransportExchange exchange) throws Exception {
+        return parseBody(exchange);
+    }
+
+    /**
+     * @return The {@link Charset} used to turn a binary body into a string
+     */
+    default Charset getCharset() {
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Called once the request is complete with the value returned by
+     * {@link BodyParser#parse(TransportExchange)}. Can be used to return pooled
+     * buffers
+     *
+     * @param body The parsed body
+     */
+    default void release(Object body) {
+    }
+}
@@ -0,0 +1,121 @@
+package net.novauniverse.apilib.http.body;
+
+import com.sun.net.httpserver.HttpExchange;
+import net.novauniverse.apilib.http.exception.RequestBodyTooLargeException;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * {@link BodyParser} that reads the body into a <code>byte[]</code> without
+ * decoding it. The array is sized from the <code>Content-Length</code> header
+ * when it is present so the body is only copied once
+ *
+ * @author Zeeraa
+ */
+public class ByteArrayBodyParser implements BodyParser {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final long maxSize;
+    private final Charset charset;
+
+    /**
+     * Create a parser without a size limit
+     */
+    public ByteArrayBodyParser() {
+        this(-1);
+    }
+
+    /**
+     * @param maxSize The max size of the body in bytes or -1 for no limit
+     */
+    public ByteArrayBodyParser(long maxSize) {
+        this(maxSize, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param maxSize The max size of the body in bytes or -1 for no limit
+     * @param charset The {@link Charset} used if the body is requested as a string
+     */
+    public ByteArrayBodyParser(long maxSize, Charset charset) {
+        this.maxSize = maxSize;
+        this.charset = charset;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Override
+    public String parseBody(HttpExchange exchange) throws IOException {
+        return parseBody(new JDKTransportExchange(exchange));
+    }
+
+    @Override
+    public String parseBody(TransportExchange exchange) throws IOException {
+        return new String(parse(exchange), charset);
+    }
+
+    @Override
+    public byte[] parse(TransportExchange exchange) throws IOException {
+        return readBody(exchange, maxSize);
+    }
+
+    /**
+     * Read the full request body
+     *
+     * @param exchange The {@link TransportExchange}
+     * @param maxSize  The max size of the body in bytes or -1 for no limit
+     * @return The body
+     * @throws RequestBodyTooLargeException If the body is larger than the limit
+     * @throws IOException                  If the body could not be read
+     */
+    public static byte[] readBody(TransportExchange exchange, long maxSize) throws IOException {
+        long contentLength = exchange.getRequestContentLength();
+        if (maxSize >= 0 && contentLength > maxSize) {
+            throw new RequestBodyTooLargeException(maxSize);
+        }
+        long limit = maxSize < 0 ? Integer.MAX_VALUE - 8 : Math.min(maxSize, Integer.MAX_VALUE - 8);
+
+        if (contentLength == 0) {
+            return EMPTY;
+        }
+
+        InputStream in = exchange.getRequestBody();
+        byte[] buffer = new byte[(int) Math.min(contentLength >= 0 ? contentLength : 1024, limit)];
+        int length = 0;
+        while (true) {
+            if (length == buffer.length) {
+                if (length == contentLength || length >= limit) {
+                    // Expected end of the body. Make sure there is no more data
+                    int next = in.read();
+                    if (next < 0) {
+                        break;
+                    }
+                    if (length >= limit) {
+                        throw new RequestBodyTooLargeException(limit);
+                    }
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(buffer.length * 2L, limit));
+                    buffer[length++] = (byte) next;
+                    continue;
+                }
+                buffer = Arrays.copyOf(buffer, (int) Math.min(Math.max(buffer.length * 2L, 1024), limit));
+            }
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
+}
@@ -0,0 +1,132 @@
+package net.novauniverse.apilib.http.body;
+
+import com.sun.net.httpserver.HttpExchange;
+import net.novauniverse.apilib.http.exception.RequestBodyTooLargeException;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link BodyParser} that reads the body into a {@link ByteBuffer} taken from
+ * a {@link ByteBufferPool}. The buffer is returned to the pool once the request
+ * is complete so it should not be kept after the response has been sent
+ *
+ * @author Zeeraa
+ */
+public class ByteBufferBodyParser implements BodyParser {
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    public static final int DEFAULT_MAX_POOLED = 64;
+
+    private final ByteBufferPool pool;
+    private final long maxSize;
+    private final Charset charset;
+
+    /**
+     * Create a parser with its own pool of 16 KiB heap buffers and no size limit
+     */
+    public ByteBufferBodyParser() {
+        this(new ByteBufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED, false), -1);
+    }
+
+    /**
+     * @param pool    The {@link ByteBufferPool} to take buffers from. Can be shared
+     *                between endpoints
+     * @param maxSize The max size of the body in bytes or -1 for no limit
+     */
+    public ByteBufferBodyParser(ByteBufferPool pool, long maxSize) {
+        this(pool, maxSize, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param pool    The {@link ByteBufferPool} to take buffers from. Can be shared
+     *                between endpoints
+     * @param maxSize The max size of the body in bytes or -1 for no limit
+     * @param charset The {@link Charset} used if the body is requested as a string
+     */
+    public ByteBufferBodyParser(ByteBufferPool pool, long maxSize, Charset charset) {
+        this.pool = pool;
+        this.maxSize = maxSize;
+        this.charset = charset;
+    }
+
+    public ByteBufferPool getPool() {
+        return pool;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Override
+    public String parseBody(HttpExchange exchange) throws IOException {
+        return parseBody(new JDKTransportExchange(exchange));
+    }
+
+    @Override
+    public String parseBody(TransportExchange exchange) throws IOException {
+        ByteBuffer buffer = parse(exchange);
+        try {
+            return charset.decode(buffer).toString();
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * @return The body in a {@link ByteBuffer} ready to be read from
+     */
+    @Override
+    public ByteBuffer parse(TransportExchange exchange) throws IOException {
+        long contentLength = exchange.getRequestContentLength();
+        if (maxSize >= 0 && contentLength > maxSize) {
+            throw new RequestBodyTooLargeException(maxSize);
+        }
+        long limit = maxSize < 0 ? Integer.MAX_VALUE - 8 : Math.min(maxSize, Integer.MAX_VALUE - 8);
+
+        ReadableByteChannel channel = exchange.getRequestBodyChannel();
+        ByteBuffer buffer = pool.acquire((int) Math.min(Math.max(contentLength, 0), limit));
+        try {
+            // Read at most one byte more than the limit so that a body that is too
+            // large is noticed even if the pooled buffer is larger than the limit
+            buffer.limit((int) Math.min(buffer.capacity(), limit + 1));
+            while (true) {
+                if (!buffer.hasRemaining()) {
+                    if (buffer.position() > limit) {
+                        throw new RequestBodyTooLargeException(limit);
+                    }
+                    // Move to a larger buffer that is not pooled
+                    int capacity = (int) Math.min(buffer.capacity() * 2L, limit + 1);
+                    ByteBuffer larger = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+                    buffer.flip();
+                    larger.put(buffer);
+                    pool.release(buffer);
+                    buffer = larger;
+                }
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            pool.release(buffer);
+            throw e;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void release(Object body) {
+        if (body instanceof ByteBuffer) {
+            pool.release((ByteBuffer) body);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package net.novauniverse.apilib.http.body;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of equally sized {@link ByteBuffer}s that can be reused between
+ * requests. Requests for larger buffers are allocated without the pool
+ *
+ * @author Zeeraa
+ */
+public class ByteBufferPool {
+    private final int bufferSize;
+    private final int maxPooled;
+    private final boolean direct;
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers;
+    private final AtomicInteger pooled;
+
+    /**
+     * @param bufferSize The size of the pooled buffers
+     * @param maxPooled  The max number of idle buffers to keep
+     * @param direct     <code>true</code> to use direct buffers
+     */
+    public ByteBufferPool(int bufferSize, int maxPooled, boolean direct) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize cant be less than 1");
+        }
+        if (maxPooled < 0) {
+            throw new IllegalArgumentException("maxPooled cant be less than 0");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+        this.direct = direct;
+        this.buffers = new ConcurrentLinkedQueue<>();
+        this.pooled = new AtomicInteger(0);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * @return The number of idle buffers in the pool
+     */
+    public int getPooled() {
+        return pooled.get();
+    }
+
+    /**
+     * Get a cleared buffer with at least the requested capacity
+     *
+     * @param capacity The min capacity
+     * @return A {@link ByteBuffer} from the pool or a new one if the pool is empty
+     * or the capacity is larger than the pooled buffers
+     */
+    public ByteBuffer acquire(int capacity) {
+        if (capacity <= bufferSize) {
+            ByteBuffer buffer = buffers.poll();
+            if (buffer != null) {
+                pooled.decrementAndGet();
+                return buffer;
+            }
+            capacity = bufferSize;
+        }
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Return a buffer to the pool. Buffers that do not have the pooled size are
+     * ignored
+     *
+     * @param buffer The {@link ByteBuffer} to return. Can not be used after this
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferSize || buffer.isDirect() != direct || buffer.isReadOnly()) {
+            return;
+        }
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        buffers.offer(buffer);
+    }
+}
@@ -0,0 +1,147 @@
+package net.novauniverse.apilib.http.body;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes request bodies sent with a <code>Content-Encoding</code>.
+ * <code>gzip</code>, <code>x-gzip</code> and <code>deflate</code> are
+ * supported. Bodies are inflated while they are read so the compressed body is
+ * never buffered
+ *
+ * @author Zeeraa
+ */
+public final class ContentDecoding {
+    private ContentDecoding() {
+    }
+
+    /**
+     * @param contentEncoding The value of the <code>Content-Encoding</code> header
+     * @return <code>true</code> if all listed encodings can be decoded and at
+     * least one of them is not <code>identity</code>
+     */
+    public static boolean isSupported(String contentEncoding) {
+        boolean encoded = false;
+        for (String coding : contentEncoding.split(",")) {
+            coding = coding.trim();
+            if (coding.isEmpty() || coding.equalsIgnoreCase("identity")) {
+                continue;
+            }
+            if (!isGzip(coding) && !coding.equalsIgnoreCase("deflate")) {
+                return false;
+            }
+            encoded = true;
+        }
+        return encoded;
+    }
+
+    /**
+     * Wrap a body in streams that decode it. Nothing is read until the first
+     * read from the returned stream. Encodings are undone in the reverse order
+     * they were applied
+     *
+     * @param in              The encoded body
+     * @param contentEncoding The value of the <code>Content-Encoding</code> header
+     * @return {@link InputStream} with the decoded body. Has to be closed to free
+     * the native memory used by the decoder
+     * @throws IllegalArgumentException If an encoding is not supported
+     */
+    public static InputStream decode(InputStream in, String contentEncoding) {
+        String[] codings = contentEncoding.split(",");
+        InputStream result = in;
+        for (int i = codings.length - 1; i >= 0; i--) {
+            String coding = codings[i].trim();
+            if (coding.isEmpty() || coding.equalsIgnoreCase("identity")) {
+                continue;
+            }
+            if (isGzip(coding)) {
+                result = new DecodingInputStream(result, true);
+            } else if (coding.equalsIgnoreCase("deflate")) {
+                result = new DecodingInputStream(result, false);
+            } else {
+                throw new IllegalArgumentException("Unsupported content encoding " + coding);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isGzip(String coding) {
+        return coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip");
+    }
+
+    /**
+     * Creates the decoder on the first read since the gzip header is read as soon
+     * as a {@link GZIPInputStream} is created
+     */
+    private static class DecodingInputStream extends InputStream {
+        private final InputStream source;
+        private final boolean gzip;
+        private InputStream decoder;
+        private Inflater inflater;
+
+        private DecodingInputStream(InputStream source, boolean gzip) {
+            this.source = source;
+            this.gzip = gzip;
+            this.decoder = null;
+            this.inflater = null;
+        }
+
+        private InputStream decoder() throws IOException {
+            if (decoder == null) {
+                if (gzip) {
+                    decoder = new GZIPInputStream(source, 8192);
+                } else {
+                    // deflate should be zlib wrapped but some clients send raw deflate data,
+                    // so check for a zlib header
+                    PushbackInputStream pushback = new PushbackInputStream(source, 2);
+                    int first = pushback.read();
+                    int second = first < 0 ? -1 : pushback.read();
+                    if (second >= 0) {
+                        pushback.unread(second);
+                    }
+                    if (first >= 0) {
+                        pushback.unread(first);
+                    }
+                    boolean zlib = second >= 0 && (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+                    inflater = new Inflater(!zlib);
+                    decoder = new InflaterInputStream(pushback, inflater, 8192);
+                }
+            }
+            return decoder;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return decoder().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return decoder().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return decoder == null ? 0 : decoder.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (decoder != null) {
+                    decoder.close();
+                } else {
+                    source.close();
+                }
+            } finally {
+                if (inflater != null) {
+                    inflater.end();
+                }
+            }
+        }
+    }
+}
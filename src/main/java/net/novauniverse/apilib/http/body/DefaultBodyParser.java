@@ -1,6 +1,8 @@
 package net.novauniverse.apilib.http.body;
 
 import com.sun.net.httpserver.HttpExchange;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
 import org.apache.commons.io.IOUtils;
 
 import java.io.IOException;
@@ -33,6 +35,11 @@ public class DefaultBodyParser implements BodyParser {
 
     @Override
     public String parseBody(HttpExchange exchange) throws IOException {
+        return parseBody(new JDKTransportExchange(exchange));
+    }
+
+    @Override
+    public String parseBody(TransportExchange exchange) throws IOException {
         return IOUtils.toString(exchange.getRequestBody(), charset);
     }
 }
\ No newline at end of file
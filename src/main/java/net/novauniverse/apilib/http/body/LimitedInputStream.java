@@ -0,0 +1,89 @@
+package net.novauniverse.apilib.http.body;
+
+import net.novauniverse.apilib.http.exception.RequestBodyTooLargeException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link InputStream} that throws a {@link RequestBodyTooLargeException} if
+ * more than a set amount of bytes is read from it
+ *
+ * @author Zeeraa
+ */
+public class LimitedInputStream extends FilterInputStream {
+    private final long limit;
+    private long count;
+
+    /**
+     * @param in    The {@link InputStream} to read from
+     * @param limit The max amount of bytes that can be read
+     */
+    public LimitedInputStream(InputStream in, long limit) {
+        super(in);
+        this.limit = limit;
+        this.count = 0;
+    }
+
+    /**
+     * @return The max amount of bytes that can be read
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return The amount of bytes read so far
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return <code>true</code> if a read went past the limit. The rest of the
+     * body has not been read when this happens
+     */
+    public boolean isLimitExceeded() {
+        return count > limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            count(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long amount) throws RequestBodyTooLargeException {
+        count += amount;
+        if (count > limit) {
+            throw new RequestBodyTooLargeException(limit);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package net.novauniverse.apilib.http.body;
+
+import com.sun.net.httpserver.HttpExchange;
+import net.novauniverse.apilib.http.exception.RequestBodyTooLargeException;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link BodyParser} that does not read the body. The endpoint gets an
+ * {@link InputStream} that throws a {@link RequestBodyTooLargeException} once
+ * more than the max size has been read, which allows large uploads to be
+ * processed without keeping them in memory
+ *
+ * @author Zeeraa
+ */
+public class StreamingBodyParser implements BodyParser {
+    private final long maxSize;
+    private final Charset charset;
+
+    /**
+     * Create a parser without a size limit
+     */
+    public StreamingBodyParser() {
+        this(-1);
+    }
+
+    /**
+     * @param maxSize The max size of the body in bytes or -1 for no limit
+     */
+    public StreamingBodyParser(long maxSize) {
+        this(maxSize, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param maxSize The max size of the body in bytes or -1 for no limit
+     * @param charset The {@link Charset} used if the body is requested as a string
+     */
+    public StreamingBodyParser(long maxSize, Charset charset) {
+        this.maxSize = maxSize;
+        this.charset = charset;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Override
+    public String parseBody(HttpExchange exchange) throws IOException {
+        return parseBody(new JDKTransportExchange(exchange));
+    }
+
+    @Override
+    public String parseBody(TransportExchange exchange) throws IOException {
+        return IOUtils.toString(parse(exchange), charset);
+    }
+
+    @Override
+    public InputStream parse(TransportExchange exchange) throws IOException {
+        if (maxSize < 0) {
+            return exchange.getRequestBody();
+        }
+        if (exchange.getRequestContentLength() > maxSize) {
+            throw new RequestBodyTooLargeException(maxSize);
+        }
+        return new LimitedInputStream(exchange.getRequestBody(), maxSize);
+    }
+}
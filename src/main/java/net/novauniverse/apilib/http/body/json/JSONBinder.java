@@ -0,0 +1,24 @@
+package net.novauniverse.apilib.http.body.json;
+
+import java.io.IOException;
+
+/**
+ * Reads a value of a specific type from a {@link JSONStreamReader}. Used by
+ * {@link JSONBodyParser} to bind request bodies straight into objects without
+ * keeping the full text or a {@link org.json.JSONObject} in memory
+ *
+ * @param <T> The type to bind to
+ * @author Zeeraa
+ */
+@FunctionalInterface
+public interface JSONBinder<T> {
+    /**
+     * Read one value from the reader
+     *
+     * @param reader The {@link JSONStreamReader} positioned at the value
+     * @return The bound value
+     * @throws IOException If the json is invalid or does not match the expected
+     *                     structure
+     */
+    T bind(JSONStreamReader reader) throws IOException;
+}
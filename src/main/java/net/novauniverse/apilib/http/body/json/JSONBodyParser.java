@@ -0,0 +1,150 @@
+package net.novauniverse.apilib.http.body.json;
+
+import com.sun.net.httpserver.HttpExchange;
+import net.novauniverse.apilib.http.body.BodyParser;
+import net.novauniverse.apilib.http.body.LimitedInputStream;
+import net.novauniverse.apilib.http.exception.RequestBodyTooLargeException;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * {@link BodyParser} that binds a json body directly from the request stream
+ * using a {@link JSONStreamReader}. The body is never read into a string so
+ * large bodies can be bound into typed objects without keeping the raw text in
+ * memory. The result is available from
+ * {@link net.novauniverse.apilib.http.request.Request#getBodyAs(Class)}
+ * <p>
+ * Example
+ *
+ * <pre>
+ * new JSONBodyParser&lt;&gt;(reader -&gt; {
+ *     Point point = new Point();
+ *     reader.beginObject();
+ *     while (reader.hasNext()) {
+ *         switch (reader.nextName()) {
+ *         case "x":
+ *             point.x = reader.nextInt();
+ *             break;
+ *         case "y":
+ *             point.y = reader.nextInt();
+ *             break;
+ *         default:
+ *             reader.skipValue();
+ *         }
+ *     }
+ *     reader.endObject();
+ *     return point;
+ * });
+ * </pre>
+ *
+ * @param <T> The type the body is bound to
+ * @author Zeeraa
+ */
+public class JSONBodyParser<T> implements BodyParser {
+    private final JSONBinder<T> binder;
+    private final long maxSize;
+    private final Charset charset;
+
+    /**
+     * Create a parser without a size limit
+     *
+     * @param binder The {@link JSONBinder} used to bind the body
+     */
+    public JSONBodyParser(JSONBinder<T> binder) {
+        this(binder, -1);
+    }
+
+    /**
+     * @param binder  The {@link JSONBinder} used to bind the body
+     * @param maxSize The max size of the body in bytes or -1 for no limit
+     */
+    public JSONBodyParser(JSONBinder<T> binder, long maxSize) {
+        this(binder, maxSize, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param binder  The {@link JSONBinder} used to bind the body
+     * @param maxSize The max size of the body in bytes or -1 for no limit
+     * @param charset The {@link Charset} of the body
+     */
+    public JSONBodyParser(JSONBinder<T> binder, long maxSize, Charset charset) {
+        if (binder == null) {
+            throw new IllegalArgumentException("binder cant be null");
+        }
+        this.binder = binder;
+        this.maxSize = maxSize;
+        this.charset = charset;
+    }
+
+    /**
+     * Create a parser that reads the body into a {@link org.json.JSONObject} or
+     * {@link org.json.JSONArray} without reading the raw text into a string first
+     *
+     * @return The {@link JSONBodyParser}
+     */
+    public static JSONBodyParser<Object> toJSON() {
+        return new JSONBodyParser<>(JSONStreamReader::readValue);
+    }
+
+    /**
+     * Create a parser that passes every token of the body to a
+     * {@link JSONEventHandler}. The handler is the parsed body
+     *
+     * @param handlerSupplier Creates a new handler for each request
+     * @param <H>             The type of the handler
+     * @return The {@link JSONBodyParser}
+     */
+    public static <H extends JSONEventHandler> JSONBodyParser<H> events(Supplier<H> handlerSupplier) {
+        return new JSONBodyParser<>(reader -> {
+            H handler = handlerSupplier.get();
+            reader.accept(handler);
+            return handler;
+        });
+    }
+
+    public JSONBinder<T> getBinder() {
+        return binder;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Override
+    public String parseBody(HttpExchange exchange) throws IOException {
+        return IOUtils.toString(exchange.getRequestBody(), charset);
+    }
+
+    @Override
+    public String parseBody(TransportExchange exchange) throws IOException {
+        return IOUtils.toString(exchange.getRequestBody(), charset);
+    }
+
+    @Override
+    public T parse(TransportExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        if (maxSize >= 0) {
+            if (exchange.getRequestContentLength() > maxSize) {
+                throw new RequestBodyTooLargeException(maxSize);
+            }
+            in = new LimitedInputStream(in, maxSize);
+        }
+
+        JSONStreamReader reader = new JSONStreamReader(new InputStreamReader(in, charset));
+        T result = binder.bind(reader);
+        reader.endDocument();
+        return result;
+    }
+}
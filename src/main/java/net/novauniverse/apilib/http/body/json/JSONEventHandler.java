@@ -0,0 +1,50 @@
+package net.novauniverse.apilib.http.body.json;
+
+import java.io.IOException;
+
+/**
+ * Receives a json document as a series of events from
+ * {@link JSONStreamReader#accept(JSONEventHandler)}. All methods do nothing by
+ * default so only the needed ones have to be implemented
+ *
+ * @author Zeeraa
+ */
+public interface JSONEventHandler {
+    default void startObject() throws IOException {
+    }
+
+    default void endObject() throws IOException {
+    }
+
+    default void startArray() throws IOException {
+    }
+
+    default void endArray() throws IOException {
+    }
+
+    /**
+     * Called for each key in an object before the value
+     *
+     * @param name The key
+     * @throws IOException To stop parsing
+     */
+    default void name(String name) throws IOException {
+    }
+
+    default void stringValue(String value) throws IOException {
+    }
+
+    /**
+     * @param value The value as a {@link Long}, {@link java.math.BigInteger} or
+     *              {@link Double}
+     * @throws IOException To stop parsing
+     */
+    default void numberValue(Number value) throws IOException {
+    }
+
+    default void booleanValue(boolean value) throws IOException {
+    }
+
+    default void nullValue() throws IOException {
+    }
+}
@@ -0,0 +1,654 @@
+package net.novauniverse.apilib.http.body.json;
+
+import net.novauniverse.apilib.http.exception.JSONParseException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Pull parser that reads json one token at a time from a {@link Reader}. Only a
+ * small buffer and the current token are kept in memory, so documents can be
+ * processed while they are being received
+ * <p>
+ * Example reading <code>{"names": ["a", "b"]}</code>
+ *
+ * <pre>
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *     if (reader.nextName().equals("names")) {
+ *         reader.beginArray();
+ *         while (reader.hasNext()) {
+ *             names.add(reader.nextString());
+ *         }
+ *         reader.endArray();
+ *     } else {
+ *         reader.skipValue();
+ *     }
+ * }
+ * reader.endObject();
+ * </pre>
+ *
+ * @author Zeeraa
+ */
+public class JSONStreamReader implements Closeable {
+    public static final int DEFAULT_MAX_DEPTH = 256;
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final Reader reader;
+    private final int maxDepth;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private long bufferOffset;
+
+    private int[] stack;
+    private int stackSize;
+
+    private JSONToken peeked;
+    private String peekedValue;
+    private final StringBuilder text;
+
+    public JSONStreamReader(Reader reader) {
+        this(reader, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * @param reader   The {@link Reader} to read from
+     * @param maxDepth The max nesting depth of objects and arrays
+     */
+    public JSONStreamReader(Reader reader, int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("maxDepth cant be less than 1");
+        }
+        this.reader = reader;
+        this.maxDepth = maxDepth;
+        this.buffer = new char[8192];
+        this.position = 0;
+        this.limit = 0;
+        this.bufferOffset = 0;
+        this.stack = new int[16];
+        this.stackSize = 1;
+        this.stack[0] = EMPTY_DOCUMENT;
+        this.peeked = null;
+        this.peekedValue = null;
+        this.text = new StringBuilder();
+    }
+
+    /**
+     * @return The type of the next token without consuming it
+     * @throws IOException If the json is invalid
+     */
+    public JSONToken peek() throws IOException {
+        if (peeked == null) {
+            peeked = doPeek();
+        }
+        return peeked;
+    }
+
+    /**
+     * @return <code>true</code> if the current object or array has more elements
+     * @throws IOException If the json is invalid
+     */
+    public boolean hasNext() throws IOException {
+        JSONToken token = peek();
+        return token != JSONToken.END_OBJECT && token != JSONToken.END_ARRAY && token != JSONToken.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(JSONToken.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(JSONToken.END_OBJECT);
+        stackSize--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(JSONToken.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(JSONToken.END_ARRAY);
+        stackSize--;
+    }
+
+    /**
+     * @return The next key in the current object
+     * @throws IOException If the next token is not a key
+     */
+    public String nextName() throws IOException {
+        expect(JSONToken.NAME);
+        return peekedValue;
+    }
+
+    /**
+     * @return The next value as a string. Numbers are returned as they were
+     *         written
+     * @throws IOException If the next token is not a string or number
+     */
+    public String nextString() throws IOException {
+        JSONToken token = peek();
+        if (token != JSONToken.STRING && token != JSONToken.NUMBER) {
+            throw error("Expected a string but was " + token);
+        }
+        peeked = null;
+        return peekedValue;
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(JSONToken.BOOLEAN);
+        return peekedValue.equals("true");
+    }
+
+    public void nextNull() throws IOException {
+        expect(JSONToken.NULL);
+    }
+
+    /**
+     * @return The next value as a long. Strings containing a number are accepted
+     * @throws IOException If the value is not a number that fits in a long
+     */
+    public long nextLong() throws IOException {
+        String value = nextNumberText();
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            try {
+                return new BigDecimal(value).longValueExact();
+            } catch (NumberFormatException | ArithmeticException e2) {
+                throw error("Expected a long but was " + value);
+            }
+        }
+    }
+
+    /**
+     * @return The next value as an int. Strings containing a number are accepted
+     * @throws IOException If the value is not a number that fits in an int
+     */
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("Expected an int but was " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * @return The next value as a double. Strings containing a number are
+     *         accepted
+     * @throws IOException If the value is not a number
+     */
+    public double nextDouble() throws IOException {
+        String value = nextNumberText();
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw error("Expected a double but was " + value);
+        }
+    }
+
+    /**
+     * @return The next number as a {@link Long} if it is an integer that fits, a
+     *         {@link BigInteger} for larger integers or a {@link Double}
+     * @throws IOException If the next token is not a number
+     */
+    public Number nextNumber() throws IOException {
+        expect(JSONToken.NUMBER);
+        return toNumber(peekedValue);
+    }
+
+    /**
+     * Skip the next value including all nested values
+     *
+     * @throws IOException If the json is invalid
+     */
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            switch (peek()) {
+            case BEGIN_OBJECT:
+                beginObject();
+                depth++;
+                break;
+            case BEGIN_ARRAY:
+                beginArray();
+                depth++;
+                break;
+            case END_OBJECT:
+                endObject();
+                depth--;
+                break;
+            case END_ARRAY:
+                endArray();
+                depth--;
+                break;
+            case END_DOCUMENT:
+                throw error("Unexpected end of document");
+            default:
+                peeked = null;
+                break;
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Read the next value into {@link JSONObject}, {@link JSONArray},
+     * {@link String}, {@link Number}, {@link Boolean} or {@link JSONObject#NULL}
+     *
+     * @return The value
+     * @throws IOException If the json is invalid
+     */
+    public Object readValue() throws IOException {
+        switch (peek()) {
+        case BEGIN_OBJECT:
+            JSONObject object = new JSONObject();
+            beginObject();
+            while (hasNext()) {
+                String name = nextName();
+                object.put(name, readValue());
+            }
+            endObject();
+            return object;
+        case BEGIN_ARRAY:
+            JSONArray array = new JSONArray();
+            beginArray();
+            while (hasNext()) {
+                array.put(readValue());
+            }
+            endArray();
+            return array;
+        case STRING:
+            return nextString();
+        case NUMBER:
+            return nextNumber();
+        case BOOLEAN:
+            return nextBoolean();
+        case NULL:
+            nextNull();
+            return JSONObject.NULL;
+        default:
+            throw error("Expected a value but was " + peek());
+        }
+    }
+
+    /**
+     * Read the next value and pass it to a {@link JSONEventHandler}
+     *
+     * @param handler The {@link JSONEventHandler} to call
+     * @throws IOException If the json is invalid or the handler throws
+     */
+    public void accept(JSONEventHandler handler) throws IOException {
+        int depth = 0;
+        do {
+            switch (peek()) {
+            case BEGIN_OBJECT:
+                beginObject();
+                handler.startObject();
+                depth++;
+                break;
+            case END_OBJECT:
+                endObject();
+                handler.endObject();
+                depth--;
+                break;
+            case BEGIN_ARRAY:
+                beginArray();
+                handler.startArray();
+                depth++;
+                break;
+            case END_ARRAY:
+                endArray();
+                handler.endArray();
+                depth--;
+                break;
+            case NAME:
+                handler.name(nextName());
+                break;
+            case STRING:
+                handler.stringValue(nextString());
+                break;
+            case NUMBER:
+                handler.numberValue(nextNumber());
+                break;
+            case BOOLEAN:
+                handler.booleanValue(nextBoolean());
+                break;
+            case NULL:
+                nextNull();
+                handler.nullValue();
+                break;
+            default:
+                throw error("Unexpected end of document");
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Make sure nothing but whitespace follows the document
+     *
+     * @throws IOException If there is more data
+     */
+    public void endDocument() throws IOException {
+        if (peek() != JSONToken.END_DOCUMENT) {
+            throw error("Expected the end of the document but was " + peek());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String nextNumberText() throws IOException {
+        JSONToken token = peek();
+        if (token != JSONToken.NUMBER && token != JSONToken.STRING) {
+            throw error("Expected a number but was " + token);
+        }
+        peeked = null;
+        return peekedValue.trim();
+    }
+
+    private static Number toNumber(String value) {
+        boolean integer = true;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '.' || c == 'e' || c == 'E') {
+                integer = false;
+                break;
+            }
+        }
+        if (!integer) {
+            return Double.parseDouble(value);
+        }
+        if (value.length() < 19) {
+            return Long.parseLong(value);
+        }
+        BigInteger big = new BigInteger(value);
+        return big.bitLength() < 64 ? (Number) big.longValue() : big;
+    }
+
+    private void expect(JSONToken token) throws IOException {
+        if (peek() != token) {
+            throw error("Expected " + token + " but was " + peeked);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) throws IOException {
+        if (stackSize == maxDepth + 1) {
+            throw error("Max depth of " + maxDepth + " exceeded");
+        }
+        if (stackSize == stack.length) {
+            int[] grown = new int[stack.length * 2];
+            System.arraycopy(stack, 0, grown, 0, stack.length);
+            stack = grown;
+        }
+        stack[stackSize++] = scope;
+    }
+
+    private JSONToken doPeek() throws IOException {
+        int top = stack[stackSize - 1];
+        if (top == EMPTY_ARRAY) {
+            stack[stackSize - 1] = NONEMPTY_ARRAY;
+        } else if (top == NONEMPTY_ARRAY) {
+            int c = nextNonWhitespace(true);
+            if (c == ']') {
+                return JSONToken.END_ARRAY;
+            }
+            if (c != ',') {
+                throw error("Expected , or ]");
+            }
+        } else if (top == EMPTY_OBJECT || top == NONEMPTY_OBJECT) {
+            stack[stackSize - 1] = DANGLING_NAME;
+            if (top == NONEMPTY_OBJECT) {
+                int c = nextNonWhitespace(true);
+                if (c == '}') {
+                    return JSONToken.END_OBJECT;
+                }
+                if (c != ',') {
+                    throw error("Expected , or }");
+                }
+            }
+            int c = nextNonWhitespace(true);
+            if (c == '}' && top == EMPTY_OBJECT) {
+                return JSONToken.END_OBJECT;
+            }
+            if (c != '"') {
+                throw error("Expected a name");
+            }
+            peekedValue = readString();
+            return JSONToken.NAME;
+        } else if (top == DANGLING_NAME) {
+            stack[stackSize - 1] = NONEMPTY_OBJECT;
+            if (nextNonWhitespace(true) != ':') {
+                throw error("Expected :");
+            }
+        } else if (top == EMPTY_DOCUMENT) {
+            stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+        } else {
+            if (nextNonWhitespace(false) == -1) {
+                return JSONToken.END_DOCUMENT;
+            }
+            throw error("Unexpected data after the end of the document");
+        }
+
+        int c = nextNonWhitespace(true);
+        switch (c) {
+        case ']':
+            if (top == EMPTY_ARRAY) {
+                return JSONToken.END_ARRAY;
+            }
+            throw error("Unexpected ]");
+        case '{':
+            return JSONToken.BEGIN_OBJECT;
+        case '[':
+            return JSONToken.BEGIN_ARRAY;
+        case '"':
+            peekedValue = readString();
+            return JSONToken.STRING;
+        case 't':
+            readLiteral("rue");
+            peekedValue = "true";
+            return JSONToken.BOOLEAN;
+        case 'f':
+            readLiteral("alse");
+            peekedValue = "false";
+            return JSONToken.BOOLEAN;
+        case 'n':
+            readLiteral("ull");
+            peekedValue = null;
+            return JSONToken.NULL;
+        default:
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                peekedValue = readNumber((char) c);
+                return JSONToken.NUMBER;
+            }
+            throw error("Unexpected character " + (char) c);
+        }
+    }
+
+    private boolean fill() throws IOException {
+        bufferOffset += limit;
+        position = 0;
+        limit = 0;
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    private int nextNonWhitespace(boolean required) throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                if (required) {
+                    throw error("Unexpected end of input");
+                }
+                return -1;
+            }
+            char c = buffer[position++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    private char nextChar() throws IOException {
+        if (position == limit && !fill()) {
+            throw error("Unexpected end of input");
+        }
+        return buffer[position++];
+    }
+
+    private void readLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (nextChar() != rest.charAt(i)) {
+                throw error("Invalid literal");
+            }
+        }
+    }
+
+    private String readNumber(char first) throws IOException {
+        text.setLength(0);
+        text.append(first);
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            char c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                text.append(c);
+                position++;
+            } else {
+                break;
+            }
+        }
+        String value = text.toString();
+        if (!isValidNumber(value)) {
+            throw error("Invalid number " + value);
+        }
+        return value;
+    }
+
+    private static boolean isValidNumber(String value) {
+        int i = 0;
+        int length = value.length();
+        if (value.charAt(i) == '-') {
+            i++;
+        }
+        if (i == length) {
+            return false;
+        }
+        if (value.charAt(i) == '0') {
+            i++;
+        } else {
+            int start = i;
+            while (i < length && Character.isDigit(value.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            int start = i;
+            while (i < length && Character.isDigit(value.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isDigit(value.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+
+    private String readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position++];
+                if (c == '"') {
+                    text.append(buffer, start, position - 1 - start);
+                    return text.toString();
+                }
+                if (c == '\\') {
+                    text.append(buffer, start, position - 1 - start);
+                    text.append(readEscape());
+                    start = position;
+                } else if (c < 0x20) {
+                    throw error("Unescaped control character in string");
+                }
+            }
+            text.append(buffer, start, position - start);
+            if (!fill()) {
+                throw error("Unterminated string");
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        char c = nextChar();
+        switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+            return c;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(nextChar(), 16);
+                if (digit < 0) {
+                    throw error("Invalid unicode escape");
+                }
+                value = (value << 4) | digit;
+            }
+            return (char) value;
+        default:
+            throw error("Invalid escape \\" + c);
+        }
+    }
+
+    private JSONParseException error(String message) {
+        return new JSONParseException(message, bufferOffset + position);
+    }
+}
@@ -0,0 +1,10 @@
+package net.novauniverse.apilib.http.body.json;
+
+/**
+ * The kinds of tokens returned by {@link JSONStreamReader#peek()}
+ *
+ * @author Zeeraa
+ */
+public enum JSONToken {
+    BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT;
+}
@@ -0,0 +1,101 @@
+package net.novauniverse.apilib.http.body.multipart;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of a <code>multipart/form-data</code> body in the order they were
+ * sent. Closing the body deletes all temp files
+ *
+ * @author Zeeraa
+ */
+public class MultipartBody implements Closeable {
+    private final List<MultipartPart> parts;
+
+    MultipartBody(List<MultipartPart> parts) {
+        this.parts = Collections.unmodifiableList(parts);
+    }
+
+    /**
+     * @return Read only {@link List} with all parts
+     */
+    public List<MultipartPart> getParts() {
+        return parts;
+    }
+
+    /**
+     * @param name The name of the form field
+     * @return The first part with the name or <code>null</code> if not found
+     */
+    public MultipartPart getPart(String name) {
+        for (MultipartPart part : parts) {
+            if (name.equals(part.getName())) {
+                return part;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param name The name of the form field
+     * @return {@link List} with all parts with the name
+     */
+    public List<MultipartPart> getParts(String name) {
+        List<MultipartPart> result = new ArrayList<>(1);
+        for (MultipartPart part : parts) {
+            if (name.equals(part.getName())) {
+                result.add(part);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return {@link List} with all parts that are uploaded files
+     */
+    public List<MultipartPart> getFiles() {
+        List<MultipartPart> result = new ArrayList<>();
+        for (MultipartPart part : parts) {
+            if (part.isFile()) {
+                result.add(part);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the value of a form field that is not a file
+     *
+     * @param name The name of the form field
+     * @return The value as a UTF-8 string or <code>null</code> if not found
+     * @throws IOException If the part was spooled and could not be read
+     */
+    public String getField(String name) throws IOException {
+        for (MultipartPart part : parts) {
+            if (!part.isFile() && name.equals(part.getName())) {
+                return part.getString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The number of parts
+     */
+    public int size() {
+        return parts.size();
+    }
+
+    /**
+     * Delete the temp files of all parts
+     */
+    @Override
+    public void close() {
+        for (MultipartPart part : parts) {
+            part.delete();
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package net.novauniverse.apilib.http.body.multipart;
+
+import com.sun.net.httpserver.HttpExchange;
+import net.novauniverse.apilib.http.body.BodyParser;
+import net.novauniverse.apilib.http.exception.MultipartParseException;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
+import net.novauniverse.apilib.http.utilities.QueryParameterUtilities;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link BodyParser} for <code>multipart/form-data</code> bodies. Parts are
+ * read straight from the request stream. Parts up to the memory threshold are
+ * kept in memory and larger parts are spooled to temp files, so uploads never
+ * have to fit in memory. The result is a {@link MultipartBody} available from
+ * {@link net.novauniverse.apilib.http.request.Request#getMultipart()}. Temp
+ * files are deleted once the request is complete unless they were moved with
+ * {@link MultipartPart#transferTo(Path)}
+ *
+ * @author Zeeraa
+ */
+public class MultipartBodyParser implements BodyParser {
+    public static final int DEFAULT_MEMORY_THRESHOLD = 64 * 1024;
+    public static final int DEFAULT_MAX_PARTS = 1000;
+    public static final int DEFAULT_MAX_HEADER_SIZE = 16 * 1024;
+
+    private int memoryThreshold;
+    private long maxPartSize;
+    private int maxParts;
+    private int maxHeaderSize;
+    private Path tempDirectory;
+    private Charset charset;
+
+    public MultipartBodyParser() {
+        this.memoryThreshold = DEFAULT_MEMORY_THRESHOLD;
+        this.maxPartSize = -1;
+        this.maxParts = DEFAULT_MAX_PARTS;
+        this.maxHeaderSize = DEFAULT_MAX_HEADER_SIZE;
+        this.tempDirectory = null;
+        this.charset = StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Set the max size of a part that is kept in memory. Larger parts are spooled
+     * to a temp file. Default is 64 KiB
+     *
+     * @param memoryThreshold The size in bytes
+     * @return this {@link MultipartBodyParser} instance so that calls can be
+     * chained
+     */
+    public MultipartBodyParser setMemoryThreshold(int memoryThreshold) {
+        if (memoryThreshold < 0) {
+            throw new IllegalArgumentException("memoryThreshold cant be less than 0");
+        }
+        this.memoryThreshold = memoryThreshold;
+        return this;
+    }
+
+    public int getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    /**
+     * Set the max size of a single part. Larger parts get a 413 response
+     *
+     * @param maxPartSize The size in bytes or -1 for no limit
+     * @return this {@link MultipartBodyParser} instance so that calls can be
+     * chained
+     */
+    public MultipartBodyParser setMaxPartSize(long maxPartSize) {
+        if (maxPartSize < -1) {
+            throw new IllegalArgumentException("maxPartSize cant be less than -1");
+        }
+        this.maxPartSize = maxPartSize;
+        return this;
+    }
+
+    public long getMaxPartSize() {
+        return maxPartSize;
+    }
+
+    /**
+     * Set the max amount of parts in a body. Default is 1000
+     *
+     * @param maxParts The max amount of parts
+     * @return this {@link MultipartBodyParser} instance so that calls can be
+     * chained
+     */
+    public MultipartBodyParser setMaxParts(int maxParts) {
+        if (maxParts < 1) {
+            throw new IllegalArgumentException("maxParts cant be less than 1");
+        }
+        this.maxParts = maxParts;
+        return this;
+    }
+
+    public int getMaxParts() {
+        return maxParts;
+    }
+
+    /**
+     * Set the max size of the headers of a single part. Default is 16 KiB
+     *
+     * @param maxHeaderSize The size in bytes
+     * @return this {@link MultipartBodyParser} instance so that calls can be
+     * chained
+     */
+    public MultipartBodyParser setMaxHeaderSize(int maxHeaderSize) {
+        if (maxHeaderSize < 1) {
+            throw new IllegalArgumentException("maxHeaderSize cant be less than 1");
+        }
+        this.maxHeaderSize = maxHeaderSize;
+        return this;
+    }
+
+    public int getMaxHeaderSize() {
+        return maxHeaderSize;
+    }
+
+    /**
+     * Set the directory to spool large parts to
+     *
+     * @param tempDirectory The directory or <code>null</code> to use the default
+     *                      temp directory
+     * @return this {@link MultipartBodyParser} instance so that calls can be
+     * chained
+     */
+    public MultipartBodyParser setTempDirectory(Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+        return this;
+    }
+
+    public Path getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * Set the {@link Charset} used if the body is requested as a string
+     *
+     * @param charset The {@link Charset} to use
+     * @return this {@link MultipartBodyParser} instance so that calls can be
+     * chained
+     */
+    public MultipartBodyParser setCharset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    @Override
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Override
+    public String parseBody(HttpExchange exchange) throws IOException {
+        return IOUtils.toString(exchange.getRequestBody(), charset);
+    }
+
+    @Override
+    public String parseBody(TransportExchange exchange) throws IOException {
+        return IOUtils.toString(exchange.getRequestBody(), charset);
+    }
+
+    @Override
+    public MultipartBody parse(TransportExchange exchange) throws IOException {
+        String contentType = exchange.getFirstRequestHeader(HTTPHeaders.CONTENT_TYPE);
+        if (contentType == null || !contentType.regionMatches(true, 0, "multipart/", 0, 10)) {
+            throw new MultipartParseException("The request is not multipart");
+        }
+        String boundary = parseParameters(contentType).get("boundary");
+        if (boundary == null || boundary.isEmpty() || boundary.length() > 70) {
+            throw new MultipartParseException("Missing or invalid boundary");
+        }
+
+        MultipartReader reader = new MultipartReader(exchange.getRequestBody(), boundary, 16 * 1024);
+        List<MultipartPart> parts = new ArrayList<>();
+        PartOutput output = null;
+        try {
+            boolean hasNext = reader.skipPreamble();
+            while (hasNext) {
+                if (parts.size() == maxParts) {
+                    throw new MultipartParseException("The body has more than " + maxParts + " parts");
+                }
+                Map<String, String> headers = reader.readHeaders(maxHeaderSize);
+                String disposition = headers.get(HTTPHeaders.CONTENT_DISPOSITION);
+                Map<String, String> parameters = disposition == null ? new HashMap<>() : parseParameters(disposition);
+
+                output = new PartOutput(memoryThreshold, maxPartSize, tempDirectory);
+                hasNext = reader.readPart(output);
+                parts.add(output.finish(parameters.get("name"), getFileName(parameters), headers.get(HTTPHeaders.CONTENT_TYPE), headers));
+                output = null;
+            }
+        } catch (IOException | RuntimeException e) {
+            if (output != null) {
+                output.discard();
+            }
+            new MultipartBody(parts).close();
+            throw e;
+        }
+        return new MultipartBody(parts);
+    }
+
+    @Override
+    public void release(Object body) {
+        if (body instanceof MultipartBody) {
+            ((MultipartBody) body).close();
+        }
+    }
+
+    private static String getFileName(Map<String, String> parameters) {
+        String extended = parameters.get("filename*");
+        if (extended != null) {
+            // RFC 5987 format: charset'language'percent-encoded-value
+            int quote = extended.indexOf('\'');
+            int secondQuote = quote < 0 ? -1 : extended.indexOf('\'', quote + 1);
+            if (secondQuote > 0) {
+                return QueryParameterUtilities.decode(extended.substring(secondQuote + 1).replace("+", "%2B"));
+            }
+        }
+        return parameters.get("filename");
+    }
+
+    /**
+     * Parse the parameters of a header like <code>Content-Disposition</code>.
+     * Names are lower case and quoted values are unquoted
+     *
+     * @param header The value of the header
+     * @return {@link Map} with the parameters
+     */
+    static Map<String, String> parseParameters(String header) {
+        Map<String, String> result = new HashMap<>();
+        int length = header.length();
+        int i = header.indexOf(';');
+        while (i >= 0 && i < length) {
+            // Skip the separator and whitespace
+            i++;
+            while (i < length && (header.charAt(i) == ' ' || header.charAt(i) == '\t')) {
+                i++;
+            }
+            int nameStart = i;
+            while (i < length && header.charAt(i) != '=' && header.charAt(i) != ';') {
+                i++;
+            }
+            String name = header.substring(nameStart, i).trim().toLowerCase();
+            if (i >= length || header.charAt(i) == ';') {
+                continue;
+            }
+            i++;
+
+            String value;
+            if (i < length && header.charAt(i) == '"') {
+                StringBuilder builder = new StringBuilder();
+                i++;
+                while (i < length && header.charAt(i) != '"') {
+                    char c = header.charAt(i++);
+                    if (c == '\\' && i < length) {
+                        c = header.charAt(i++);
+                    }
+                    builder.append(c);
+                }
+                value = builder.toString();
+                i = header.indexOf(';', i);
+            } else {
+                int end = header.indexOf(';', i);
+                value = header.substring(i, end < 0 ? length : end).trim();
+                i = end;
+            }
+            if (!name.isEmpty()) {
+                result.putIfAbsent(name, value);
+            }
+        }
+        return result;
+    }
+}
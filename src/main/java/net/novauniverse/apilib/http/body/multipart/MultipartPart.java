@@ -0,0 +1,198 @@
+package net.novauniverse.apilib.http.body.multipart;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A single part of a multipart body. Small parts are kept in memory while
+ * larger parts are stored in a temp file that is deleted once the request is
+ * complete
+ *
+ * @author Zeeraa
+ */
+public class MultipartPart {
+    private final String name;
+    private final String fileName;
+    private final String contentType;
+    private final Map<String, String> headers;
+    private final byte[] data;
+    private volatile Path file;
+    private final long size;
+
+    MultipartPart(String name, String fileName, String contentType, Map<String, String> headers, byte[] data, Path file, long size) {
+        this.name = name;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.data = data;
+        this.file = file;
+        this.size = size;
+    }
+
+    /**
+     * @return The name of the form field
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The file name sent by the client or <code>null</code> if this part
+     * is not a file
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return <code>true</code> if the part is an uploaded file
+     */
+    public boolean isFile() {
+        return fileName != null;
+    }
+
+    /**
+     * @return The <code>Content-Type</code> of the part or <code>null</code> if it
+     * was not sent
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @param name The case insensitive name of the header
+     * @return The value of the header or <code>null</code> if it was not sent
+     */
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    /**
+     * @return Read only {@link Map} with the headers of the part
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return The size of the part in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return <code>true</code> if the data is kept in memory,
+     * <code>false</code> if it was spooled to a temp file
+     */
+    public boolean isInMemory() {
+        return data != null;
+    }
+
+    /**
+     * @return The temp file with the data or <code>null</code> if the part is kept
+     * in memory
+     */
+    public Path getPath() {
+        return file;
+    }
+
+    /**
+     * @return The data of the part. This reads the whole temp file if the part was
+     * spooled to disk
+     * @throws IOException If the temp file could not be read
+     */
+    public byte[] getBytes() throws IOException {
+        if (data != null) {
+            return data;
+        }
+        return Files.readAllBytes(requireFile());
+    }
+
+    /**
+     * @return The data of the part as a UTF-8 string
+     * @throws IOException If the temp file could not be read
+     */
+    public String getString() throws IOException {
+        return getString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param charset The {@link Charset} of the data
+     * @return The data of the part as a string
+     * @throws IOException If the temp file could not be read
+     */
+    public String getString(Charset charset) throws IOException {
+        return new String(getBytes(), charset);
+    }
+
+    /**
+     * @return {@link InputStream} with the data of the part
+     * @throws IOException If the temp file could not be opened
+     */
+    public InputStream getInputStream() throws IOException {
+        if (data != null) {
+            return new ByteArrayInputStream(data);
+        }
+        return Files.newInputStream(requireFile());
+    }
+
+    /**
+     * Save the part to a file. Spooled parts are moved instead of copied when
+     * possible
+     *
+     * @param target The file to write to. Replaced if it already exists
+     * @throws IOException If the file could not be written
+     */
+    public void transferTo(Path target) throws IOException {
+        if (data != null) {
+            Files.write(target, data);
+            return;
+        }
+        Path source = requireFile();
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // Moving can fail across file systems
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(source);
+        }
+        file = null;
+    }
+
+    /**
+     * Delete the temp file of the part. Called automatically once the request is
+     * complete
+     */
+    public void delete() {
+        Path path = file;
+        if (path != null) {
+            file = null;
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private Path requireFile() {
+        Path path = file;
+        if (path == null) {
+            throw new IllegalStateException("The part has already been moved or deleted");
+        }
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return "MultipartPart{name=" + name + ", fileName=" + fileName + ", contentType=" + contentType + ", size=" + size + "}";
+    }
+}
@@ -0,0 +1,189 @@
+package net.novauniverse.apilib.http.body.multipart;
+
+import net.novauniverse.apilib.http.exception.MultipartParseException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Splits a multipart body into parts while it is being read. Only one buffer is
+ * used and part data is handed to a {@link PartOutput} as soon as it is known
+ * not to be part of a boundary
+ *
+ * @author Zeeraa
+ */
+final class MultipartReader {
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    /**
+     * @param in         The body
+     * @param boundary   The boundary from the <code>Content-Type</code> header
+     * @param bufferSize The size of the read buffer
+     */
+    MultipartReader(InputStream in, String boundary, int bufferSize) {
+        byte[] boundaryBytes = boundary.getBytes(StandardCharsets.ISO_8859_1);
+        this.in = in;
+        this.delimiter = new byte[boundaryBytes.length + 4];
+        this.delimiter[0] = '\r';
+        this.delimiter[1] = '\n';
+        this.delimiter[2] = '-';
+        this.delimiter[3] = '-';
+        System.arraycopy(boundaryBytes, 0, delimiter, 4, boundaryBytes.length);
+        this.buffer = new byte[Math.max(bufferSize, delimiter.length * 4)];
+        // The first boundary is not preceded by a line break, so pretend it is to
+        // be able to search for the same delimiter everywhere
+        this.buffer[0] = '\r';
+        this.buffer[1] = '\n';
+        this.position = 0;
+        this.limit = 2;
+    }
+
+    /**
+     * Skip everything before the first boundary
+     *
+     * @return <code>true</code> if a part follows, <code>false</code> if the body
+     * has no parts
+     * @throws IOException If the body could not be read or has no boundary
+     */
+    boolean skipPreamble() throws IOException {
+        return readPart(null);
+    }
+
+    /**
+     * Read the data of the current part up to the next boundary
+     *
+     * @param out Where to write the data or <code>null</code> to discard it
+     * @return <code>true</code> if another part follows, <code>false</code> if this
+     * was the last part
+     * @throws IOException If the body could not be read or ends without the
+     *                     closing boundary
+     */
+    boolean readPart(PartOutput out) throws IOException {
+        while (true) {
+            int index = indexOfDelimiter();
+            if (index >= 0) {
+                if (out != null) {
+                    out.write(buffer, position, index - position);
+                }
+                position = index + delimiter.length;
+                return readDelimiterEnd();
+            }
+
+            // Everything except a possible start of the delimiter at the end can be
+            // passed on
+            int safe = Math.max(position, limit - delimiter.length + 1);
+            if (out != null && safe > position) {
+                out.write(buffer, position, safe - position);
+            }
+            position = safe;
+            if (!fill()) {
+                throw new MultipartParseException("The body ended before the closing boundary");
+            }
+        }
+    }
+
+    /**
+     * Read the headers of the next part
+     *
+     * @param maxSize The max size of all headers in bytes
+     * @return {@link Map} with the headers. Names are case insensitive
+     * @throws IOException If the body could not be read or the headers are too
+     *                     large
+     */
+    Map<String, String> readHeaders(int maxSize) throws IOException {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int size = 0;
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                throw new MultipartParseException("The body ended inside the part headers");
+            }
+            if (++size > maxSize) {
+                throw new MultipartParseException("The part headers are larger than " + maxSize + " bytes");
+            }
+            if (c != '\n') {
+                line.write(c);
+                continue;
+            }
+
+            byte[] bytes = line.toByteArray();
+            int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+            String text = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            line.reset();
+            if (text.isEmpty()) {
+                return headers;
+            }
+            int colon = text.indexOf(':');
+            if (colon <= 0) {
+                throw new MultipartParseException("Invalid part header " + text);
+            }
+            headers.put(text.substring(0, colon).trim(), text.substring(colon + 1).trim());
+        }
+    }
+
+    private int indexOfDelimiter() {
+        int last = limit - delimiter.length;
+        byte first = delimiter[0];
+        outer:
+        for (int i = position; i <= last; i++) {
+            if (buffer[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private boolean readDelimiterEnd() throws IOException {
+        int first = read();
+        int second = read();
+        if (first == '-' && second == '-') {
+            // Closing boundary. Anything after it is ignored
+            return false;
+        }
+        // Whitespace is allowed after the boundary
+        while (first == ' ' || first == '\t') {
+            first = second;
+            second = read();
+        }
+        if (first == '\r' && second == '\n') {
+            return true;
+        }
+        throw new MultipartParseException("Invalid data after a boundary");
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read <= 0) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+}
@@ -0,0 +1,103 @@
+package net.novauniverse.apilib.http.body.multipart;
+
+import net.novauniverse.apilib.http.exception.RequestBodyTooLargeException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Collects the data of a single part. Data is kept in memory until it passes
+ * the threshold and is then moved to a temp file
+ *
+ * @author Zeeraa
+ */
+final class PartOutput {
+    private final int memoryThreshold;
+    private final long maxSize;
+    private final Path tempDirectory;
+    private byte[] memory;
+    private int length;
+    private Path file;
+    private OutputStream fileOutput;
+    private long size;
+
+    PartOutput(int memoryThreshold, long maxSize, Path tempDirectory) {
+        this.memoryThreshold = memoryThreshold;
+        this.maxSize = maxSize;
+        this.tempDirectory = tempDirectory;
+        this.memory = null;
+        this.length = 0;
+        this.file = null;
+        this.fileOutput = null;
+        this.size = 0;
+    }
+
+    void write(byte[] data, int offset, int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        size += count;
+        if (maxSize >= 0 && size > maxSize) {
+            throw new RequestBodyTooLargeException(maxSize);
+        }
+
+        if (fileOutput == null && size > memoryThreshold) {
+            file = tempDirectory == null ? Files.createTempFile("multipart-", ".tmp") : Files.createTempFile(tempDirectory, "multipart-", ".tmp");
+            fileOutput = new BufferedOutputStream(Files.newOutputStream(file), 8192);
+            if (length > 0) {
+                fileOutput.write(memory, 0, length);
+            }
+            memory = null;
+            length = 0;
+        }
+
+        if (fileOutput != null) {
+            fileOutput.write(data, offset, count);
+            return;
+        }
+
+        if (memory == null) {
+            memory = new byte[Math.min(Math.max(count, 256), memoryThreshold)];
+        } else if (length + count > memory.length) {
+            memory = Arrays.copyOf(memory, Math.min(Math.max(memory.length * 2, length + count), memoryThreshold));
+        }
+        System.arraycopy(data, offset, memory, length, count);
+        length += count;
+    }
+
+    /**
+     * Finish writing and create the {@link MultipartPart}
+     */
+    MultipartPart finish(String name, String fileName, String contentType, Map<String, String> headers) throws IOException {
+        if (fileOutput != null) {
+            fileOutput.close();
+            fileOutput = null;
+            return new MultipartPart(name, fileName, contentType, headers, null, file, size);
+        }
+        byte[] data = memory == null ? new byte[0] : (length == memory.length ? memory : Arrays.copyOf(memory, length));
+        return new MultipartPart(name, fileName, contentType, headers, data, null, size);
+    }
+
+    /**
+     * Delete the temp file if the part could not be read
+     */
+    void discard() {
+        try {
+            if (fileOutput != null) {
+                fileOutput.close();
+            }
+        } catch (IOException ignored) {
+        }
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
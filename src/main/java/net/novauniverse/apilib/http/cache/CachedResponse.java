@@ -0,0 +1,138 @@
+package net.novauniverse.apilib.http.cache;
+
+import com.sun.net.httpserver.HttpExchange;
+import net.novauniverse.apilib.http.response.AbstractHTTPResponse;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
+import net.novauniverse.apilib.http.utilities.ConditionalRequestUtilities;
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A response stored in a {@link ResponseCache}. The body is stored encoded, so
+ * sending a cached response only copies the stored bytes. Instances are
+ * immutable and shared between all requests that hit the cache
+ *
+ * @author Zeeraa
+ */
+public class CachedResponse extends AbstractHTTPResponse {
+	private final int code;
+	private final String[] headers;
+	private final byte[] body;
+	private final long expiresAt;
+	private final String etag;
+	private final long lastModified;
+
+	/**
+	 * @param code      The http response code
+	 * @param headers   The response headers as name and value pairs
+	 * @param body      The encoded body. Not copied
+	 * @param expiresAt The {@link System#nanoTime()} when the response expires
+	 */
+	CachedResponse(int code, String[] headers, byte[] body, long expiresAt) {
+		this.code = code;
+		this.headers = headers;
+		this.body = body;
+		this.expiresAt = expiresAt;
+
+		// Validators are looked up once so hits can answer conditional requests
+		String etag = null;
+		long lastModified = -1;
+		for (int i = 0; i < headers.length; i += 2) {
+			if (headers[i].equalsIgnoreCase(HTTPHeaders.ETAG)) {
+				etag = headers[i + 1];
+			} else if (headers[i].equalsIgnoreCase(HTTPHeaders.LAST_MODIFIED)) {
+				lastModified = ConditionalRequestUtilities.parseDate(headers[i + 1]);
+			}
+		}
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * Create a cached response from the headers and body sent by an endpoint
+	 *
+	 * @param code            The http response code
+	 * @param responseHeaders The headers to store
+	 * @param body            The encoded body. Not copied
+	 * @param timeToLiveNanos How long the response can be used
+	 * @return The {@link CachedResponse}
+	 */
+	static CachedResponse create(int code, Map<String, List<String>> responseHeaders, byte[] body, long timeToLiveNanos) {
+		int count = 0;
+		for (List<String> values : responseHeaders.values()) {
+			count += values.size();
+		}
+		String[] headers = new String[count * 2];
+		int i = 0;
+		for (Map.Entry<String, List<String>> entry : responseHeaders.entrySet()) {
+			for (String value : entry.getValue()) {
+				headers[i++] = entry.getKey();
+				headers[i++] = value;
+			}
+		}
+		return new CachedResponse(code, headers, body, System.nanoTime() + timeToLiveNanos);
+	}
+
+	/**
+	 * @return The http response code
+	 */
+	public int getCode() {
+		return code;
+	}
+
+	/**
+	 * @return The size of the body in bytes
+	 */
+	public int getLength() {
+		return body.length;
+	}
+
+	/**
+	 * @param now The current {@link System#nanoTime()}
+	 * @return <code>true</code> if the response is too old to be used
+	 */
+	public boolean isExpired(long now) {
+		return now - expiresAt >= 0;
+	}
+
+	/**
+	 * @return Approximate amount of memory used by this response in bytes
+	 */
+	long getWeight() {
+		long weight = 64 + body.length;
+		for (String header : headers) {
+			weight += 40 + header.length() * 2L;
+		}
+		return weight;
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		this.handle(new JDKTransportExchange(exchange));
+	}
+
+	@Override
+	public void handle(TransportExchange exchange) throws IOException {
+		if ((etag != null || lastModified >= 0) && ConditionalRequestUtilities.isNotModified(exchange, etag, lastModified)) {
+			ConditionalRequestUtilities.sendNotModified(exchange, etag, lastModified);
+			return;
+		}
+		for (int i = 0; i < headers.length; i += 2) {
+			exchange.addResponseHeader(headers[i], headers[i + 1]);
+		}
+		if (body.length == 0) {
+			// A length of 0 would mean chunked transfer
+			exchange.sendResponseHeaders(code, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(code, body.length);
+		OutputStream stream = exchange.getResponseBody();
+		stream.write(body);
+		stream.close();
+	}
+}
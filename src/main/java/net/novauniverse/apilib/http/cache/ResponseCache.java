@@ -0,0 +1,237 @@
+package net.novauniverse.apilib.http.cache;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size bounded LRU store for {@link CachedResponse}s. Responses are stored by a
+ * key built from the request and grouped by path so all responses for a path
+ * can be invalidated after a write. The least recently used responses are
+ * evicted once the total size passes the limit, and expired responses are
+ * removed when they are looked up. One cache can be shared by multiple
+ * {@link net.novauniverse.apilib.http.middleware.middlewares.ResponseCacheMiddleware}s
+ * with different time to live settings
+ *
+ * @author Zeeraa
+ */
+public class ResponseCache {
+	public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+	public static final int DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+
+	private final long maxSize;
+	private final int maxEntrySize;
+	private final LinkedHashMap<String, Entry> entries;
+	private final Map<String, Set<String>> keysByPath;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	private long size;
+
+	/**
+	 * Create a cache with a max size of 64 MiB and a max entry size of 1 MiB
+	 */
+	public ResponseCache() {
+		this(DEFAULT_MAX_SIZE, DEFAULT_MAX_ENTRY_SIZE);
+	}
+
+	/**
+	 * @param maxSize      The max total size of all responses in bytes
+	 * @param maxEntrySize The max size of a single response body in bytes. Larger
+	 *                     responses are not cached
+	 */
+	public ResponseCache(long maxSize, int maxEntrySize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize cant be less than 1");
+		}
+		if (maxEntrySize < 0) {
+			throw new IllegalArgumentException("maxEntrySize cant be less than 0");
+		}
+		this.maxSize = maxSize;
+		this.maxEntrySize = maxEntrySize;
+		this.entries = new LinkedHashMap<>(64, 0.75F, true);
+		this.keysByPath = new HashMap<>();
+		this.hits = new AtomicLong(0);
+		this.misses = new AtomicLong(0);
+		this.size = 0;
+	}
+
+	/**
+	 * @return The max total size of all responses in bytes
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return The max size of a single response body in bytes
+	 */
+	public int getMaxEntrySize() {
+		return maxEntrySize;
+	}
+
+	/**
+	 * Get a response that has not expired
+	 *
+	 * @param key The key of the response
+	 * @return The {@link CachedResponse} or <code>null</code> if not found
+	 */
+	public CachedResponse get(String key) {
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				if (!entry.response.isExpired(System.nanoTime())) {
+					hits.incrementAndGet();
+					return entry.response;
+				}
+				remove(key, entry);
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Store a response. Responses larger than the max entry size are ignored
+	 *
+	 * @param path     The path of the request. Used by
+	 *                 {@link ResponseCache#invalidate(String)}
+	 * @param key      The key of the response
+	 * @param response The {@link CachedResponse}
+	 */
+	public void put(String path, String key, CachedResponse response) {
+		if (response.getLength() > maxEntrySize) {
+			return;
+		}
+		Entry entry = new Entry(path, response);
+		synchronized (entries) {
+			Entry previous = entries.put(key, entry);
+			if (previous != null) {
+				size -= previous.weight;
+			} else {
+				keysByPath.computeIfAbsent(path, p -> new HashSet<>()).add(key);
+			}
+			size += entry.weight;
+
+			// Evict the least recently used responses
+			Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+			while (size > maxSize && iterator.hasNext()) {
+				Map.Entry<String, Entry> eldest = iterator.next();
+				iterator.remove();
+				size -= eldest.getValue().weight;
+				removeFromPath(eldest.getValue().path, eldest.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Remove all responses for a path. Call this after a write changes the data
+	 * returned by the path
+	 *
+	 * @param path The path without query like <code>/api/servers</code>
+	 */
+	public void invalidate(String path) {
+		synchronized (entries) {
+			Set<String> keys = keysByPath.remove(path);
+			if (keys != null) {
+				for (String key : keys) {
+					Entry entry = entries.remove(key);
+					if (entry != null) {
+						size -= entry.weight;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove all responses for paths starting with a prefix
+	 *
+	 * @param prefix The prefix like <code>/api/leaderboard/</code>
+	 */
+	public void invalidatePrefix(String prefix) {
+		synchronized (entries) {
+			Set<String> paths = new HashSet<>();
+			for (String path : keysByPath.keySet()) {
+				if (path.startsWith(prefix)) {
+					paths.add(path);
+				}
+			}
+			paths.forEach(this::invalidate);
+		}
+	}
+
+	/**
+	 * Remove all responses
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			keysByPath.clear();
+			size = 0;
+		}
+	}
+
+	/**
+	 * @return The amount of stored responses
+	 */
+	public int getEntryCount() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return Approximate total size of all stored responses in bytes
+	 */
+	public long getSize() {
+		synchronized (entries) {
+			return size;
+		}
+	}
+
+	/**
+	 * @return The amount of lookups that found a response
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return The amount of lookups that did not find a response
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private void remove(String key, Entry entry) {
+		entries.remove(key);
+		size -= entry.weight;
+		removeFromPath(entry.path, key);
+	}
+
+	private void removeFromPath(String path, String key) {
+		Set<String> keys = keysByPath.get(path);
+		if (keys != null) {
+			keys.remove(key);
+			if (keys.isEmpty()) {
+				keysByPath.remove(path);
+			}
+		}
+	}
+
+	private static class Entry {
+		private final String path;
+		private final CachedResponse response;
+		private final long weight;
+
+		private Entry(String path, CachedResponse response) {
+			this.path = path;
+			this.response = response;
+			this.weight = response.getWeight() + path.length() * 2L;
+		}
+	}
+}
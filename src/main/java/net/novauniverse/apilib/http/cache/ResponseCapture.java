@@ -0,0 +1,245 @@
+package net.novauniverse.apilib.http.cache;
+
+import net.novauniverse.apilib.http.transport.FilterTransportExchange;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link TransportExchange} that copies the response into a
+ * {@link ResponseCache} while it is sent. Headers that were already set when
+ * the capture started are not stored since they are set again by the
+ * middlewares on every request. The response is only stored by
+ * {@link ResponseCapture#commit()} once the body has been written completely,
+ * and never if writing it failed. Responses with a <code>Vary</code> header
+ * naming request headers that are not part of the key are not stored, since a
+ * hit could send them to a client they were not made for
+ *
+ * @author Zeeraa
+ */
+public class ResponseCapture extends FilterTransportExchange {
+	private final ResponseCache cache;
+	private final String path;
+	private final String key;
+	private final long timeToLiveNanos;
+	private final Set<String> existingHeaders;
+	private final Set<String> varyHeaders;
+	private OutputStream responseBody;
+	private CachedResponse pending;
+	private boolean failed;
+
+	/**
+	 * @param exchange        The {@link TransportExchange} to wrap
+	 * @param cache           The {@link ResponseCache} to store the response in
+	 * @param path            The path of the request
+	 * @param key             The key to store the response with
+	 * @param timeToLiveNanos How long the response can be used
+	 * @param varyHeaders     The request headers that are part of the key
+	 */
+	public ResponseCapture(TransportExchange exchange, ResponseCache cache, String path, String key, long timeToLiveNanos, Collection<String> varyHeaders) {
+		super(exchange);
+		this.cache = cache;
+		this.path = path;
+		this.key = key;
+		this.timeToLiveNanos = timeToLiveNanos;
+		this.existingHeaders = new HashSet<>();
+		for (String name : exchange.getResponseHeaders().keySet()) {
+			existingHeaders.add(name.toLowerCase());
+		}
+		this.varyHeaders = new HashSet<>();
+		for (String name : varyHeaders) {
+			this.varyHeaders.add(name.toLowerCase());
+		}
+		// Compression and cors headers are added again on every request
+		this.varyHeaders.add(HTTPHeaders.ACCEPT_ENCODING.toLowerCase());
+		this.varyHeaders.add(HTTPHeaders.ORIGIN.toLowerCase());
+		this.responseBody = null;
+		this.pending = null;
+		this.failed = false;
+	}
+
+	/**
+	 * Store the captured response in the cache. Should be called once the request
+	 * has completed without failing, since an exception thrown while writing the
+	 * body can still close the stream normally. Does nothing if the response was
+	 * not cacheable, was not written completely or writing it failed
+	 */
+	public synchronized void commit() {
+		if (pending != null && !failed) {
+			cache.put(path, key, pending);
+		}
+		pending = null;
+	}
+
+	/**
+	 * Discard the captured response. Called when writing it failed
+	 */
+	private synchronized void fail() {
+		failed = true;
+		pending = null;
+	}
+
+	private synchronized void complete(CachedResponse response) {
+		if (!failed) {
+			pending = response;
+		}
+	}
+
+	@Override
+	public void sendResponseHeaders(int code, long length) throws IOException {
+		Map<String, List<String>> headers = isCacheable(code, length) ? getHeadersToStore() : null;
+		exchange.sendResponseHeaders(code, length);
+		if (headers == null) {
+			return;
+		}
+		if (length < 0) {
+			complete(CachedResponse.create(code, headers, new byte[0], timeToLiveNanos));
+			return;
+		}
+		responseBody = new CaptureOutputStream(exchange.getResponseBody(), code, headers, (int) length);
+	}
+
+	@Override
+	public OutputStream getResponseBody() {
+		if (responseBody != null) {
+			return responseBody;
+		}
+		return exchange.getResponseBody();
+	}
+
+	private boolean isCacheable(int code, long length) {
+		if (code != 200 || length > cache.getMaxEntrySize()) {
+			return false;
+		}
+		if (exchange.getFirstResponseHeader(HTTPHeaders.SET_COOKIE) != null) {
+			return false;
+		}
+		String cacheControl = exchange.getFirstResponseHeader(HTTPHeaders.CACHE_CONTROL);
+		if (cacheControl != null) {
+			String lowerCase = cacheControl.toLowerCase();
+			if (lowerCase.contains("no-store") || lowerCase.contains("private")) {
+				return false;
+			}
+		}
+		List<String> vary = exchange.getResponseHeaders().get(HTTPHeaders.VARY);
+		if (vary != null) {
+			for (String value : vary) {
+				for (String name : value.split(",")) {
+					name = name.trim().toLowerCase();
+					// Vary: * means the response can depend on anything
+					if (!name.isEmpty() && !varyHeaders.contains(name)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private Map<String, List<String>> getHeadersToStore() {
+		Map<String, List<String>> result = new LinkedHashMap<>();
+		for (Map.Entry<String, List<String>> entry : exchange.getResponseHeaders().entrySet()) {
+			String name = entry.getKey().toLowerCase();
+			if (existingHeaders.contains(name) || name.equals("content-length") || name.equals("transfer-encoding") || name.equals("connection") || name.equals("date")) {
+				continue;
+			}
+			// Copied since outer exchanges can still add values to the same lists
+			result.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+		}
+		return result;
+	}
+
+	/**
+	 * Copies everything written to the response. The copy is kept for
+	 * {@link ResponseCapture#commit()} when the stream is closed unless the body
+	 * got too large, was shorter than the announced length or writing failed
+	 */
+	private class CaptureOutputStream extends OutputStream {
+		private final OutputStream out;
+		private final int code;
+		private final Map<String, List<String>> headers;
+		private final int length;
+		private ByteArrayOutputStream copy;
+		private boolean closed;
+
+		private CaptureOutputStream(OutputStream out, int code, Map<String, List<String>> headers, int length) {
+			this.out = out;
+			this.code = code;
+			this.headers = headers;
+			this.length = length;
+			this.copy = new ByteArrayOutputStream(length > 0 ? length : 8192);
+			this.closed = false;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			try {
+				out.write(b);
+			} catch (IOException | RuntimeException e) {
+				copy = null;
+				fail();
+				throw e;
+			}
+			if (copy != null) {
+				copy.write(b);
+				checkSize();
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			try {
+				out.write(b, off, len);
+			} catch (IOException | RuntimeException e) {
+				copy = null;
+				fail();
+				throw e;
+			}
+			if (copy != null) {
+				copy.write(b, off, len);
+				checkSize();
+			}
+		}
+
+		private void checkSize() {
+			if (copy.size() > cache.getMaxEntrySize()) {
+				copy = null;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				out.close();
+			} catch (IOException | RuntimeException e) {
+				copy = null;
+				fail();
+				throw e;
+			}
+			// A length of 0 means chunked so any size is complete
+			if (copy != null && (length == 0 || copy.size() == length)) {
+				complete(CachedResponse.create(code, headers, copy.toByteArray(), timeToLiveNanos));
+			}
+			copy = null;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package net.novauniverse.apilib.http.endpoint;
+
+import net.novauniverse.apilib.http.auth.Authentication;
+import net.novauniverse.apilib.http.enums.ExceptionMode;
+import net.novauniverse.apilib.http.request.Request;
+import net.novauniverse.apilib.http.response.AbstractHTTPResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * An api endpoint that responds asynchronously. The worker thread is released
+ * as soon as {@link AsyncHTTPEndpoint#handleRequestAsync(Request, Authentication)}
+ * returns and the response is sent by the thread that completes the future
+ * <p>
+ * If the future completes exceptionally the error response is generated using
+ * the {@link ExceptionMode} of the endpoint just like for exceptions thrown by
+ * {@link HTTPEndpoint#handleRequest(Request, Authentication)}
+ *
+ * @author Zeeraa
+ */
+public abstract class AsyncHTTPEndpoint extends HTTPEndpoint {
+	/**
+	 * Handle a user request
+	 *
+	 * @param request        The {@link Request} object
+	 * @param authentication The {@link Authentication} object or <code>null</code>
+	 *                       if the user is not authenticated
+	 * @return {@link CompletableFuture} that completes with the
+	 *         {@link AbstractHTTPResponse} to send
+	 * @throws Exception If anything goes wrong with the request
+	 */
+	public abstract CompletableFuture<AbstractHTTPResponse> handleRequestAsync(Request request, Authentication authentication) throws Exception;
+
+	/**
+	 * Blocks until the response from
+	 * {@link AsyncHTTPEndpoint#handleRequestAsync(Request, Authentication)} is
+	 * ready. The {@link net.novauniverse.apilib.http.HTTPServer} does not use this
+	 */
+	@Override
+	public final AbstractHTTPResponse handleRequest(Request request, Authentication authentication) throws Exception {
+		try {
+			return handleRequestAsync(request, authentication).get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+}
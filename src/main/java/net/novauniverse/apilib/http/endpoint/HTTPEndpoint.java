@@ -10,6 +10,8 @@ import net.novauniverse.apilib.http.enums.ExceptionMode;
 import net.novauniverse.apilib.http.enums.HTTPMethod;
 import net.novauniverse.apilib.http.enums.StandardResponseType;
 import net.novauniverse.apilib.http.middleware.HTTPMiddleware;
+import net.novauniverse.apilib.http.middleware.MiddlewareList;
+import net.novauniverse.apilib.http.middleware.MiddlewarePipeline;
 import net.novauniverse.apilib.http.request.Request;
 import net.novauniverse.apilib.http.response.AbstractHTTPResponse;
 
@@ -23,23 +25,31 @@ import java.util.List;
  */
 public abstract class HTTPEndpoint {
 	private HTTPMethod[] allowedMethods;
+	private boolean[] allowedMethodTable;
+	private String allowHeader;
 	private boolean useWebServerAuthentication;
 	private final List<AuthenticationProvider> authenticationProviders;
 	private StandardResponseType standardResponseType;
 	private ExceptionMode exceptionMode;
 	private boolean requireAuthentication;
 	private BodyParser bodyParser;
-	private final List<HTTPMiddleware> middlewares;
+	private Long maxBodySize;
+	private Boolean compressResponses;
+	private final MiddlewareList middlewares;
 
 	public HTTPEndpoint() {
 		this.allowedMethods = new HTTPMethod[] {};
+		this.allowedMethodTable = null;
+		this.allowHeader = buildAllowHeader(HTTPMethod.values());
 		this.useWebServerAuthentication = true;
 		this.authenticationProviders = new ArrayList<>();
 		this.standardResponseType = null;
 		this.exceptionMode = ExceptionMode.INHERIT;
 		this.requireAuthentication = false;
 		this.bodyParser = new DefaultBodyParser();
-		this.middlewares = new ArrayList<>();
+		this.maxBodySize = null;
+		this.compressResponses = null;
+		this.middlewares = new MiddlewareList();
 	}
 
 	/**
@@ -130,7 +140,27 @@ public abstract class HTTPEndpoint {
 	 * @param allowedMethods Array of {@link HTTPMethod}s to allow
 	 */
 	protected void setAllowedMethods(HTTPMethod... allowedMethods) {
+		boolean[] table = null;
+		if (allowedMethods.length > 0) {
+			table = new boolean[HTTPMethod.values().length];
+			for (HTTPMethod method : allowedMethods) {
+				table[method.ordinal()] = true;
+			}
+		}
 		this.allowedMethods = allowedMethods;
+		this.allowedMethodTable = table;
+		this.allowHeader = buildAllowHeader(allowedMethods.length > 0 ? allowedMethods : HTTPMethod.values());
+	}
+
+	private static String buildAllowHeader(HTTPMethod[] methods) {
+		StringBuilder builder = new StringBuilder();
+		for (HTTPMethod method : methods) {
+			if (builder.length() > 0) {
+				builder.append(", ");
+			}
+			builder.append(method.name());
+		}
+		return builder.toString();
 	}
 
 	/**
@@ -157,6 +187,27 @@ public abstract class HTTPEndpoint {
 		return allowedMethods;
 	}
 
+	/**
+	 * Check if a {@link HTTPMethod} is allowed without looping over
+	 * {@link HTTPEndpoint#getAllowedMethods()}
+	 *
+	 * @param method The {@link HTTPMethod} to check
+	 * @return <code>true</code> if the method is allowed. All methods are allowed
+	 *         if no allowed methods have been set
+	 */
+	public boolean isMethodAllowed(HTTPMethod method) {
+		boolean[] table = allowedMethodTable;
+		return table == null || table[method.ordinal()];
+	}
+
+	/**
+	 * @return The value of the <code>Allow</code> header listing the allowed
+	 *         methods. Built once when the allowed methods are set
+	 */
+	public String getAllowHeader() {
+		return allowHeader;
+	}
+
 	/**
 	 * @return The {@link BodyParser} to be used by all requests to this endpoint
 	 */
@@ -180,6 +231,14 @@ public abstract class HTTPEndpoint {
 		return middlewares;
 	}
 
+	/**
+	 * @return A number that changes every time the middlewares are modified. Used
+	 *         to know when a {@link MiddlewarePipeline} needs to be rebuilt
+	 */
+	public int getMiddlewareRevision() {
+		return middlewares.getRevision();
+	}
+
 	/**
 	 * Set the {@link BodyParser} to use
 	 *
@@ -189,6 +248,52 @@ public abstract class HTTPEndpoint {
 		this.bodyParser = bodyParser;
 	}
 
+	/**
+	 * @return The max size of request bodies in bytes, -1 for no limit or
+	 *         <code>null</code> to use the limit of the {@link HTTPServer}
+	 */
+	public Long getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	/**
+	 * Set the max size of request bodies for this endpoint. Requests with a larger
+	 * <code>Content-Length</code> get a 413 response before the body is read and
+	 * chunked bodies are cut off once they pass the limit
+	 *
+	 * @param maxBodySize The max size in bytes, -1 for no limit or
+	 *                    <code>null</code> to use the limit of the
+	 *                    {@link HTTPServer}
+	 */
+	protected void setMaxBodySize(Long maxBodySize) {
+		if (maxBodySize != null && maxBodySize < -1) {
+			throw new IllegalArgumentException("maxBodySize cant be less than -1");
+		}
+		this.maxBodySize = maxBodySize;
+	}
+
+	/**
+	 * @return <code>true</code> to compress responses, <code>false</code> to never
+	 *         compress them or <code>null</code> to use the setting of the
+	 *         {@link HTTPServer}
+	 */
+	public Boolean getCompressResponses() {
+		return compressResponses;
+	}
+
+	/**
+	 * Set if responses from this endpoint should be compressed. Turn this off for
+	 * endpoints that stream events or send data that is already compressed
+	 *
+	 * @param compressResponses <code>true</code> to compress responses,
+	 *                          <code>false</code> to never compress them or
+	 *                          <code>null</code> to use the setting of the
+	 *                          {@link HTTPServer}
+	 */
+	protected void setCompressResponses(Boolean compressResponses) {
+		this.compressResponses = compressResponses;
+	}
+
 	/**
 	 * Handle a user request
 	 *
@@ -212,4 +317,34 @@ public abstract class HTTPEndpoint {
 	public AuthenticationResponse handleAuthentication(Authentication authentication, Request request) {
 		return AuthenticationResponse.OK;
 	}
+
+	/**
+	 * Override this to return a cheap version token for the data the endpoint
+	 * would return, like a revision counter or a hash kept next to the data. It is
+	 * sent as the <code>ETag</code> and if the client already has this version an
+	 * empty <code>304 Not Modified</code> response is sent without calling
+	 * {@link HTTPEndpoint#handleRequest(Request, Authentication)}. Only used for
+	 * <code>GET</code> and <code>HEAD</code> requests
+	 *
+	 * @param request The {@link Request}
+	 * @return The version token or <code>null</code> if the version is unknown
+	 * @throws Exception If anything goes wrong while getting the version
+	 */
+	public String getVersion(Request request) throws Exception {
+		return null;
+	}
+
+	/**
+	 * Override this to return the time the data the endpoint would return last
+	 * changed. It is sent as <code>Last-Modified</code> and used for
+	 * <code>If-Modified-Since</code> requests in the same way as
+	 * {@link HTTPEndpoint#getVersion(Request)}
+	 *
+	 * @param request The {@link Request}
+	 * @return The time in milliseconds since the epoch or -1 if unknown
+	 * @throws Exception If anything goes wrong while getting the time
+	 */
+	public long getLastModified(Request request) throws Exception {
+		return -1;
+	}
 }
@@ -7,4 +7,38 @@ package net.novauniverse.apilib.http.enums;
  */
 public enum HTTPMethod {
 	GET, HEAD, POST, PUT, DELETE, CONNECT, OPTIONS, TRACE, PATCH;
-}
\ No newline at end of file
+
+	/**
+	 * Get a method by name. Faster than {@link HTTPMethod#valueOf(String)} since
+	 * it does not throw and only converts the case if the name is not already
+	 * upper case
+	 *
+	 * @param name The name of the method
+	 * @return The {@link HTTPMethod} or <code>null</code> if not found
+	 */
+	public static HTTPMethod parse(String name) {
+		switch (name) {
+		case "GET":
+			return GET;
+		case "HEAD":
+			return HEAD;
+		case "POST":
+			return POST;
+		case "PUT":
+			return PUT;
+		case "DELETE":
+			return DELETE;
+		case "CONNECT":
+			return CONNECT;
+		case "OPTIONS":
+			return OPTIONS;
+		case "TRACE":
+			return TRACE;
+		case "PATCH":
+			return PATCH;
+		default:
+			String upperCase = name.toUpperCase();
+			return upperCase.equals(name) ? null : parse(upperCase);
+		}
+	}
+}
@@ -383,6 +383,17 @@ public enum HTTPResponseCode {
 	 */
 	NETWORK_AUTHENTICATION_REQUIRED(511);
 
+	/**
+	 * Lookup table indexed by the response code
+	 */
+	private static final HTTPResponseCode[] BY_CODE = new HTTPResponseCode[600];
+
+	static {
+		for (HTTPResponseCode c : HTTPResponseCode.values()) {
+			BY_CODE[c.getCode()] = c;
+		}
+	}
+
 	private final int code;
 
 	HTTPResponseCode(int code) {
@@ -402,11 +413,9 @@ public enum HTTPResponseCode {
 	 *         its not implemented in this enum
 	 */
 	public static HTTPResponseCode getByCode(int code) {
-		for (HTTPResponseCode c : HTTPResponseCode.values()) {
-			if (c.getCode() == code) {
-				return c;
-			}
+		if (code < 0 || code >= BY_CODE.length) {
+			return null;
 		}
-		return null;
+		return BY_CODE[code];
 	}
 }
\ No newline at end of file
@@ -3,9 +3,15 @@ package net.novauniverse.apilib.http.enums;
 import net.novauniverse.apilib.http.HTTPServer;
 import net.novauniverse.apilib.http.response.AbstractHTTPResponse;
 import net.novauniverse.apilib.http.response.JSONResponse;
+import net.novauniverse.apilib.http.response.PreEncodedResponse;
 import net.novauniverse.apilib.http.response.TextResponse;
 import org.json.JSONObject;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
  * This enum specifies the default error response types from the
  * {@link HTTPServer}
@@ -22,6 +28,17 @@ public enum StandardResponseType {
 	 */
 	JSON;
 
+	/**
+	 * Max amount of messages cached for each response code. Keeps the catalog from
+	 * growing if it is used with messages that contain user input
+	 */
+	private static final int MAX_CACHED_MESSAGES = 64;
+
+	/**
+	 * Pre-encoded error responses by response code and message
+	 */
+	private final AtomicReferenceArray<Map<String, PreEncodedResponse>> catalog = new AtomicReferenceArray<>(600);
+
 	public AbstractHTTPResponse error(String message, HTTPResponseCode code) {
 		return this.error(message, code.getCode());
 	}
@@ -35,4 +52,56 @@ public enum StandardResponseType {
 		json.put("error", message);
 		return new JSONResponse(json, code);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Get an error response that is only encoded the first time it is used. The
+	 * same instance is returned for every call with the same message and code, so
+	 * use this for fixed messages on hot paths like authentication failures
+	 *
+	 * @param message The error message
+	 * @param code    The {@link HTTPResponseCode}
+	 * @return The shared {@link AbstractHTTPResponse}
+	 */
+	public AbstractHTTPResponse cachedError(String message, HTTPResponseCode code) {
+		return this.cachedError(message, code.getCode());
+	}
+
+	/**
+	 * Get an error response that is only encoded the first time it is used. The
+	 * same instance is returned for every call with the same message and code, so
+	 * use this for fixed messages on hot paths like authentication failures
+	 *
+	 * @param message The error message
+	 * @param code    The http response code
+	 * @return The shared {@link AbstractHTTPResponse}
+	 */
+	public AbstractHTTPResponse cachedError(String message, int code) {
+		if (code < 0 || code >= catalog.length() || message == null) {
+			return error(message, code);
+		}
+		Map<String, PreEncodedResponse> responses = catalog.get(code);
+		if (responses == null) {
+			catalog.compareAndSet(code, null, new ConcurrentHashMap<>());
+			responses = catalog.get(code);
+		}
+		PreEncodedResponse response = responses.get(message);
+		if (response == null) {
+			response = encode(message, code);
+			if (responses.size() < MAX_CACHED_MESSAGES) {
+				PreEncodedResponse existing = responses.putIfAbsent(message, response);
+				if (existing != null) {
+					response = existing;
+				}
+			}
+		}
+		return response;
+	}
+
+	private PreEncodedResponse encode(String message, int code) {
+		if (this == TEXT) {
+			return new PreEncodedResponse(message.getBytes(StandardCharsets.UTF_8), code, "text/plain; charset=utf-8");
+		}
+		String json = "{\"error\":" + JSONObject.quote(message) + "}";
+		return new PreEncodedResponse(json.getBytes(StandardCharsets.UTF_8), code, "application/json; charset=utf-8");
+	}
+}
@@ -0,0 +1,20 @@
+package net.novauniverse.apilib.http.exception;
+
+/**
+ * Thrown when the request body is read for the first time and the
+ * {@link net.novauniverse.apilib.http.body.BodyParser} fails. The cause is the
+ * exception thrown by the parser
+ *
+ * @author Zeeraa
+ */
+public class BodyParseException extends RuntimeException {
+	private static final long serialVersionUID = 3416460212373617286L;
+
+	public BodyParseException(Throwable cause) {
+		super(cause);
+	}
+
+	public BodyParseException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
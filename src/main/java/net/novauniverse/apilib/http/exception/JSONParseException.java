@@ -0,0 +1,27 @@
+package net.novauniverse.apilib.http.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link net.novauniverse.apilib.http.body.json.JSONStreamReader} when
+ * the json is invalid or does not have the expected structure
+ *
+ * @author Zeeraa
+ */
+public class JSONParseException extends IOException {
+	private static final long serialVersionUID = 6040466771398046186L;
+
+	private final long offset;
+
+	public JSONParseException(String message, long offset) {
+		super(message + " at offset " + offset);
+		this.offset = offset;
+	}
+
+	/**
+	 * @return The character offset in the document where the error was found
+	 */
+	public long getOffset() {
+		return offset;
+	}
+}
@@ -0,0 +1,17 @@
+package net.novauniverse.apilib.http.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link net.novauniverse.apilib.http.body.multipart.MultipartBodyParser}
+ * when a multipart body is malformed
+ *
+ * @author Zeeraa
+ */
+public class MultipartParseException extends IOException {
+	private static final long serialVersionUID = -4735380112742066952L;
+
+	public MultipartParseException(String message) {
+		super(message);
+	}
+}
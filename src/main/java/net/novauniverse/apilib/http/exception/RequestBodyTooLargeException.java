@@ -0,0 +1,26 @@
+package net.novauniverse.apilib.http.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown while reading a request body that is larger than the allowed size
+ *
+ * @author Zeeraa
+ */
+public class RequestBodyTooLargeException extends IOException {
+	private static final long serialVersionUID = -2205861496326618913L;
+
+	private final long limit;
+
+	public RequestBodyTooLargeException(long limit) {
+		super("The request body is larger than the limit of " + limit + " bytes");
+		this.limit = limit;
+	}
+
+	/**
+	 * @return The max allowed size in bytes
+	 */
+	public long getLimit() {
+		return limit;
+	}
+}
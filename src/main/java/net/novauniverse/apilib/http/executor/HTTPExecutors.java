@@ -0,0 +1,180 @@
+package net.novauniverse.apilib.http.executor;
+
+import net.novauniverse.apilib.http.HTTPServer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory methods for executors that can be passed to
+ * {@link HTTPServer#setExecutor(java.util.concurrent.Executor)}.<br>
+ * <br>
+ * Without an executor all requests are handled on the single dispatcher thread
+ * of the underlying server, so one slow endpoint blocks every other request
+ *
+ * @author Zeeraa
+ */
+public class HTTPExecutors {
+	/**
+	 * The prefix used for the names of worker threads created by this class
+	 */
+	public static final String DEFAULT_THREAD_NAME_PREFIX = "HTTPServer-worker";
+
+	/**
+	 * The time idle threads above the core pool size are kept alive
+	 */
+	public static final long DEFAULT_KEEP_ALIVE_SECONDS = 60;
+
+	private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadFactoryMethod();
+	private static volatile Boolean virtualThreadsSupported = null;
+
+	private static Method findVirtualThreadFactoryMethod() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException | SecurityException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Check if the running JVM supports virtual threads. Virtual threads are
+	 * available from Java 21, and on Java 19 and 20 when preview features are
+	 * enabled
+	 *
+	 * @return <code>true</code> if
+	 *         {@link HTTPExecutors#virtualThreadPerTaskExecutor()} can be used
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		Boolean supported = virtualThreadsSupported;
+		if (supported == null) {
+			supported = false;
+			if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+				try {
+					((ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null)).shutdown();
+					supported = true;
+				} catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+					// Preview features are not enabled on this JVM
+				}
+			}
+			virtualThreadsSupported = supported;
+		}
+		return supported;
+	}
+
+	/**
+	 * Create an executor that starts a new virtual thread for each request. This
+	 * allows a large amount of requests that block on io to run at the same time
+	 * without sizing a thread pool
+	 *
+	 * @return The new {@link ExecutorService}
+	 * @throws UnsupportedOperationException If the running JVM does not support
+	 *                                       virtual threads
+	 */
+	public static ExecutorService virtualThreadPerTaskExecutor() {
+		if (!isVirtualThreadsSupported()) {
+			throw new UnsupportedOperationException("Virtual threads are not supported by this JVM (" + System.getProperty("java.version") + ")");
+		}
+		try {
+			return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new UnsupportedOperationException("Failed to create virtual thread executor", e);
+		}
+	}
+
+	/**
+	 * Create an executor that starts a new virtual thread for each request if the
+	 * running JVM supports it
+	 *
+	 * @param fallback The {@link ExecutorService} to return if virtual threads are
+	 *                 not supported. Can be <code>null</code>
+	 * @return The new virtual thread {@link ExecutorService} or the fallback
+	 */
+	public static ExecutorService virtualThreadPerTaskExecutor(ExecutorService fallback) {
+		if (isVirtualThreadsSupported()) {
+			return virtualThreadPerTaskExecutor();
+		}
+		return fallback;
+	}
+
+	/**
+	 * Create a pool with one thread for each available processor
+	 *
+	 * @return The new {@link ExecutorService}
+	 */
+	public static ExecutorService processorBoundThreadPool() {
+		return fixedThreadPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create a pool with a fixed amount of threads and an unbounded queue
+	 *
+	 * @param threads The amount of threads
+	 * @return The new {@link ExecutorService}
+	 */
+	public static ExecutorService fixedThreadPool(int threads) {
+		return threadPool(threads, threads, new LinkedBlockingQueue<>(), new NamedThreadFactory(DEFAULT_THREAD_NAME_PREFIX), new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * Create a pool that grows from <code>coreThreads</code> to
+	 * <code>maxThreads</code> and queues up to <code>queueCapacity</code> requests.
+	 * When both the pool and the queue are full the request is rejected and the
+	 * server answers it with <code>503 Service Unavailable</code>. Requests are
+	 * never run on the thread that accepted them since that thread also serves
+	 * other connections
+	 *
+	 * @param coreThreads   The amount of threads to always keep alive
+	 * @param maxThreads    The max amount of threads
+	 * @param queueCapacity The max amount of queued requests. Use 0 to hand
+	 *                      requests directly to a thread
+	 * @return The new {@link ExecutorService}
+	 */
+	public static ExecutorService boundedThreadPool(int coreThreads, int maxThreads, int queueCapacity) {
+		return boundedThreadPool(coreThreads, maxThreads, queueCapacity, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * Create a pool that grows from <code>coreThreads</code> to
+	 * <code>maxThreads</code> and queues up to <code>queueCapacity</code> requests
+	 *
+	 * @param coreThreads      The amount of threads to always keep alive
+	 * @param maxThreads       The max amount of threads
+	 * @param queueCapacity    The max amount of queued requests. Use 0 to hand
+	 *                         requests directly to a thread
+	 * @param rejectionHandler The {@link RejectedExecutionHandler} to use when
+	 *                         both the pool and the queue are full
+	 * @return The new {@link ExecutorService}
+	 */
+	public static ExecutorService boundedThreadPool(int coreThreads, int maxThreads, int queueCapacity, RejectedExecutionHandler rejectionHandler) {
+		if (queueCapacity < 0) {
+			throw new IllegalArgumentException("Queue capacity cant be less than 0");
+		}
+		BlockingQueue<Runnable> queue = queueCapacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity);
+		return threadPool(coreThreads, maxThreads, queue, new NamedThreadFactory(DEFAULT_THREAD_NAME_PREFIX), rejectionHandler);
+	}
+
+	/**
+	 * Create a pool with a custom queue, thread factory and rejection policy
+	 *
+	 * @param coreThreads      The amount of threads to always keep alive
+	 * @param maxThreads       The max amount of threads
+	 * @param queue            The {@link BlockingQueue} to hold waiting requests
+	 * @param threadFactory    The {@link ThreadFactory} to use
+	 * @param rejectionHandler The {@link RejectedExecutionHandler} to use when the
+	 *                         pool can not accept any more requests
+	 * @return The new {@link ExecutorService}
+	 */
+	public static ExecutorService threadPool(int coreThreads, int maxThreads, BlockingQueue<Runnable> queue, ThreadFactory threadFactory, RejectedExecutionHandler rejectionHandler) {
+		return new ThreadPoolExecutor(coreThreads, maxThreads, DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, queue, threadFactory, rejectionHandler);
+	}
+}
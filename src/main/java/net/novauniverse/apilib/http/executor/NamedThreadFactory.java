@@ -0,0 +1,57 @@
+package net.novauniverse.apilib.http.executor;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link ThreadFactory} that gives every thread a name made of a prefix and
+ * an incrementing number, for example <code>HTTPServer-worker-3</code>
+ *
+ * @author Zeeraa
+ */
+public class NamedThreadFactory implements ThreadFactory {
+	private final String prefix;
+	private final boolean daemon;
+	private final AtomicInteger counter;
+
+	/**
+	 * Create a factory for non daemon threads
+	 *
+	 * @param prefix The prefix of the thread names
+	 */
+	public NamedThreadFactory(String prefix) {
+		this(prefix, false);
+	}
+
+	/**
+	 * @param prefix The prefix of the thread names
+	 * @param daemon <code>true</code> if the created threads should be daemon
+	 *               threads
+	 */
+	public NamedThreadFactory(String prefix, boolean daemon) {
+		this.prefix = prefix;
+		this.daemon = daemon;
+		this.counter = new AtomicInteger(0);
+	}
+
+	/**
+	 * @return The prefix of the thread names
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * @return <code>true</code> if the created threads are daemon threads
+	 */
+	public boolean isDaemon() {
+		return daemon;
+	}
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+		thread.setDaemon(daemon);
+		return thread;
+	}
+}
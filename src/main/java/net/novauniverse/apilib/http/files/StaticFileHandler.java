@@ -2,13 +2,17 @@ package net.novauniverse.apilib.http.files;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.TransportHandler;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
 
 import java.io.*;
 import java.util.HashMap;
 import java.util.Map;
 
 // Code based on https://stackoverflow.com/a/42404471
-public class StaticFileHandler implements HttpHandler {
+public class StaticFileHandler implements HttpHandler, TransportHandler {
     private static final Map<String, String> MIME_MAP = new HashMap<>();
 
     static {
@@ -65,6 +69,11 @@ public class StaticFileHandler implements HttpHandler {
     }
 
     public void handle(HttpExchange he) throws IOException {
+        handle(new JDKTransportExchange(he));
+    }
+
+    @Override
+    public void handle(TransportExchange he) throws IOException {
         String method = he.getRequestMethod();
         if (!("HEAD".equals(method) || "GET".equals(method))) {
             sendError(he, 501, "Unsupported HTTP method");
@@ -108,7 +117,7 @@ public class StaticFileHandler implements HttpHandler {
         }
 
         String mimeType = lookupMime(urlPath);
-        he.getResponseHeaders().set("Content-Type", mimeType);
+        he.setResponseHeader(HTTPHeaders.CONTENT_TYPE, mimeType);
         if ("GET".equals(method)) {
             he.sendResponseHeaders(200, canonicalFile.length());
             OutputStream os = he.getResponseBody();
@@ -129,11 +138,11 @@ public class StaticFileHandler implements HttpHandler {
         }
     }
 
-    private void sendError(HttpExchange he, int rCode, String description) throws IOException {
+    private void sendError(TransportExchange he, int rCode, String description) throws IOException {
         String message = "HTTP error " + rCode + ": " + description;
         byte[] messageBytes = message.getBytes("UTF-8");
 
-        he.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        he.setResponseHeader(HTTPHeaders.CONTENT_TYPE, "text/plain; charset=utf-8");
         he.sendResponseHeaders(rCode, messageBytes.length);
         OutputStream os = he.getResponseBody();
         os.write(messageBytes);
@@ -141,7 +150,7 @@ public class StaticFileHandler implements HttpHandler {
     }
 
     // This is one function to avoid giving away where we failed
-    private void reportPathTraversal(HttpExchange he) throws IOException {
+    private void reportPathTraversal(TransportExchange he) throws IOException {
         sendError(he, 400, "Path traversal attempt detected");
     }
 
@@ -0,0 +1,75 @@
+package net.novauniverse.apilib.http.limit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Additive increase, multiplicative decrease {@link ConcurrencyLimit}. The
+ * limit grows by one while requests finish faster than the latency threshold
+ * and the limit is being used, and gets multiplied by the backoff ratio as soon
+ * as a request is slower than the threshold
+ *
+ * @author Zeeraa
+ */
+public class AIMDLimit implements ConcurrencyLimit {
+	public static final int DEFAULT_INITIAL_LIMIT = 20;
+	public static final int DEFAULT_MIN_LIMIT = 1;
+	public static final int DEFAULT_MAX_LIMIT = 1000;
+	public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double backoffRatio;
+	private final long latencyThresholdNanos;
+	private volatile int limit;
+
+	/**
+	 * Create a limit with the default settings that backs off when requests take
+	 * longer than the provided threshold
+	 *
+	 * @param latencyThreshold The latency threshold
+	 * @param unit             The {@link TimeUnit} of the threshold
+	 */
+	public AIMDLimit(long latencyThreshold, TimeUnit unit) {
+		this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_BACKOFF_RATIO, latencyThreshold, unit);
+	}
+
+	/**
+	 * @param initialLimit     The limit to start with
+	 * @param minLimit         The limit will never go below this
+	 * @param maxLimit         The limit will never go above this
+	 * @param backoffRatio     The value to multiply the limit with when a request
+	 *                         is too slow. Has to be between 0.5 and 1
+	 * @param latencyThreshold Requests slower than this are treated as a sign of
+	 *                         overload
+	 * @param unit             The {@link TimeUnit} of the threshold
+	 */
+	public AIMDLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long latencyThreshold, TimeUnit unit) {
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new IllegalArgumentException("Invalid limit range " + minLimit + " - " + maxLimit);
+		}
+		if (backoffRatio < 0.5 || backoffRatio >= 1) {
+			throw new IllegalArgumentException("Backoff ratio has to be between 0.5 and 1");
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.backoffRatio = backoffRatio;
+		this.latencyThresholdNanos = unit.toNanos(latencyThreshold);
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+	}
+
+	@Override
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public synchronized void onSample(long latencyNanos, int inFlight) {
+		int current = limit;
+		if (latencyNanos > latencyThresholdNanos) {
+			limit = Math.max(minLimit, (int) (current * backoffRatio));
+		} else if (inFlight * 2 >= current) {
+			// Only grow while the limit is actually being used
+			limit = Math.min(maxLimit, current + 1);
+		}
+	}
+}
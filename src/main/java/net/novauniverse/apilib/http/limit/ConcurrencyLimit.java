@@ -0,0 +1,23 @@
+package net.novauniverse.apilib.http.limit;
+
+/**
+ * An algorithm that decides how many requests a {@link ConcurrencyLimiter}
+ * allows at the same time based on the latency of finished requests
+ *
+ * @author Zeeraa
+ */
+public interface ConcurrencyLimit {
+	/**
+	 * @return The current max amount of concurrent requests
+	 */
+	int getLimit();
+
+	/**
+	 * Called every time a request finishes
+	 *
+	 * @param latencyNanos The time the request took in nanoseconds
+	 * @param inFlight     The amount of requests that were being processed when
+	 *                     the request started, including the request itself
+	 */
+	void onSample(long latencyNanos, int inFlight);
+}
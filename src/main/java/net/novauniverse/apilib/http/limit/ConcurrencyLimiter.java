@@ -0,0 +1,68 @@
+package net.novauniverse.apilib.http.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of the amount of concurrent requests and rejects requests above
+ * the limit decided by a {@link ConcurrencyLimit}
+ *
+ * @author Zeeraa
+ */
+public class ConcurrencyLimiter {
+	private final ConcurrencyLimit limit;
+	private final AtomicInteger inFlight;
+
+	/**
+	 * @param limit The {@link ConcurrencyLimit} to use
+	 */
+	public ConcurrencyLimiter(ConcurrencyLimit limit) {
+		this.limit = limit;
+		this.inFlight = new AtomicInteger(0);
+	}
+
+	/**
+	 * @return The {@link ConcurrencyLimit} used by this limiter
+	 */
+	public ConcurrencyLimit getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return The amount of requests currently holding a permit
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * Try to get a permit for a new request. Every successful call has to be
+	 * followed by a call to {@link ConcurrencyLimiter#release(long, int)}
+	 *
+	 * @return The amount of requests in flight including this one or -1 if the
+	 *         limit has been reached
+	 */
+	public int tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= limit.getLimit()) {
+				return -1;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return current + 1;
+			}
+		}
+	}
+
+	/**
+	 * Release a permit and report the latency of the request to the
+	 * {@link ConcurrencyLimit}
+	 *
+	 * @param latencyNanos The time the request took in nanoseconds
+	 * @param inFlight     The value returned by
+	 *                     {@link ConcurrencyLimiter#tryAcquire()}
+	 */
+	public void release(long latencyNanos, int inFlight) {
+		this.inFlight.decrementAndGet();
+		limit.onSample(latencyNanos, inFlight);
+	}
+}
@@ -0,0 +1,29 @@
+package net.novauniverse.apilib.http.limit;
+
+/**
+ * A {@link ConcurrencyLimit} that never changes
+ *
+ * @author Zeeraa
+ */
+public class FixedLimit implements ConcurrencyLimit {
+	private final int limit;
+
+	/**
+	 * @param limit The max amount of concurrent requests
+	 */
+	public FixedLimit(int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Limit cant be less than 1");
+		}
+		this.limit = limit;
+	}
+
+	@Override
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public void onSample(long latencyNanos, int inFlight) {
+	}
+}
@@ -0,0 +1,111 @@
+package net.novauniverse.apilib.http.limit;
+
+/**
+ * {@link ConcurrencyLimit} that compares the recent latency with the long term
+ * latency. When requests start to queue up the recent latency grows and the
+ * limit shrinks by the same ratio. While the latencies are equal the limit
+ * grows by a small queue allowance so that the limit can find the capacity of
+ * the server without a configured threshold
+ *
+ * @author Zeeraa
+ */
+public class GradientLimit implements ConcurrencyLimit {
+	public static final int DEFAULT_INITIAL_LIMIT = 20;
+	public static final int DEFAULT_MIN_LIMIT = 1;
+	public static final int DEFAULT_MAX_LIMIT = 1000;
+	public static final double DEFAULT_TOLERANCE = 1.5;
+	public static final double DEFAULT_SMOOTHING = 0.2;
+	public static final int DEFAULT_SHORT_WINDOW = 10;
+	public static final int DEFAULT_LONG_WINDOW = 600;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double tolerance;
+	private final double smoothing;
+	private final double shortFactor;
+	private final double longFactor;
+
+	private double shortLatency;
+	private double longLatency;
+	private double estimatedLimit;
+	private volatile int limit;
+
+	/**
+	 * Create a limit with the default settings
+	 */
+	public GradientLimit() {
+		this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_TOLERANCE, DEFAULT_SMOOTHING, DEFAULT_SHORT_WINDOW, DEFAULT_LONG_WINDOW);
+	}
+
+	/**
+	 * @param initialLimit The limit to start with
+	 * @param minLimit     The limit will never go below this
+	 * @param maxLimit     The limit will never go above this
+	 * @param tolerance    How much the recent latency can grow compared to the long
+	 *                     term latency before the limit shrinks. Has to be at least
+	 *                     1
+	 * @param smoothing    How fast the limit moves towards the new estimate.
+	 *                     Between 0 (never) and 1 (instantly)
+	 * @param shortWindow  The amount of requests the recent latency is averaged
+	 *                     over
+	 * @param longWindow   The amount of requests the long term latency is averaged
+	 *                     over
+	 */
+	public GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing, int shortWindow, int longWindow) {
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new IllegalArgumentException("Invalid limit range " + minLimit + " - " + maxLimit);
+		}
+		if (tolerance < 1) {
+			throw new IllegalArgumentException("Tolerance cant be less than 1");
+		}
+		if (smoothing <= 0 || smoothing > 1) {
+			throw new IllegalArgumentException("Smoothing has to be between 0 and 1");
+		}
+		if (shortWindow < 1 || longWindow < shortWindow) {
+			throw new IllegalArgumentException("Invalid window sizes " + shortWindow + " and " + longWindow);
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.tolerance = tolerance;
+		this.smoothing = smoothing;
+		this.shortFactor = 2.0 / (shortWindow + 1);
+		this.longFactor = 2.0 / (longWindow + 1);
+		this.shortLatency = 0;
+		this.longLatency = 0;
+		this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		this.limit = (int) estimatedLimit;
+	}
+
+	@Override
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public synchronized void onSample(long latencyNanos, int inFlight) {
+		if (longLatency == 0) {
+			shortLatency = latencyNanos;
+			longLatency = latencyNanos;
+			return;
+		}
+
+		shortLatency += (latencyNanos - shortLatency) * shortFactor;
+		longLatency += (latencyNanos - longLatency) * longFactor;
+
+		// Let the long term latency recover faster after a period of overload
+		if (longLatency / shortLatency > 2) {
+			longLatency *= 0.95;
+		}
+
+		// Requests are not limited by the limit so there is nothing to learn
+		if (inFlight < estimatedLimit / 2) {
+			return;
+		}
+
+		double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / shortLatency));
+		double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+		newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+		estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+		limit = (int) estimatedLimit;
+	}
+}
@@ -2,21 +2,26 @@ package net.novauniverse.apilib.http.middleware;
 
 import net.novauniverse.apilib.http.auth.Authentication;
 import net.novauniverse.apilib.http.endpoint.HTTPEndpoint;
+import net.novauniverse.apilib.http.request.AttributeKey;
 import net.novauniverse.apilib.http.request.Request;
 import net.novauniverse.apilib.http.response.AbstractHTTPResponse;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Middlewares can be used to run code before the request and can be used to
  * modify behavior without having to write the code multiple times for each
  * endpoint.<br>
- * For passing data use {@link Request#getMiddlewareData()} and set the values
- * in there.<br>
+ * For passing data use {@link Request#setAttribute(AttributeKey, Object)} with
+ * an {@link AttributeKey} shared with the endpoint.<br>
  * Middlewares can also cancel the request and send their own
  * {@link AbstractHTTPResponse} to the user.
  * 
  * @author Zeeraa
  */
 public abstract class HTTPMiddleware {
+	private static final AtomicInteger ORDER_REVISION = new AtomicInteger(0);
+
 	private MiddlewarePriority priority;
 	private MiddlewareType type;
 
@@ -40,30 +45,65 @@ public abstract class HTTPMiddleware {
 	}
 
 	/**
-	 * Set the new priority
+	 * @return A number that changes every time the priority or type of any
+	 *         middleware changes. Used to know when a {@link MiddlewarePipeline}
+	 *         needs to be sorted again
+	 */
+	public static int getOrderRevision() {
+		return ORDER_REVISION.get();
+	}
+
+	/**
+	 * Set the new priority. Pipelines that already contain this middleware are
+	 * sorted again on the next request
 	 * 
 	 * @param priority The new {@link MiddlewarePriority} to use
 	 */
 	protected void setPriority(MiddlewarePriority priority) {
-		this.priority = priority;
+		if (this.priority != priority) {
+			this.priority = priority;
+			ORDER_REVISION.incrementAndGet();
+		}
 	}
 
+	/**
+	 * Called for <code>OPTIONS</code> requests before the response is sent. The
+	 * body is never parsed for these requests
+	 *
+	 * @param request The {@link Request} from the user
+	 */
 	public void handleOptionsRequest(Request request) {
 	}
 
 	/**
-	 * Set the new type
+	 * Called for <code>OPTIONS</code> requests before the response is sent.
+	 * Override this instead of {@link HTTPMiddleware#handleOptionsRequest(Request)}
+	 * if the response depends on the endpoint
+	 *
+	 * @param endpoint The requested {@link HTTPEndpoint}
+	 * @param request  The {@link Request} from the user
+	 */
+	public void handleOptionsRequest(HTTPEndpoint endpoint, Request request) {
+		handleOptionsRequest(request);
+	}
+
+	/**
+	 * Set the new type. Pipelines that already contain this middleware are sorted
+	 * again on the next request
 	 * 
 	 * @param type The new {@link MiddlewareType} of this middleware
 	 */
 	protected void setType(MiddlewareType type) {
-		this.type = type;
+		if (this.type != type) {
+			this.type = type;
+			ORDER_REVISION.incrementAndGet();
+		}
 	}
 
 	/**
 	 * This method is called when the middleware executes.<br>
-	 * For passing data use {@link Request#getMiddlewareData()} and set the values
-	 * in there.<br>
+	 * For passing data use {@link Request#setAttribute(AttributeKey, Object)} with
+	 * an {@link AttributeKey} shared with the endpoint.<br>
 	 * Note that the authentication parameter will always be <code>null</code> if
 	 * the {@link MiddlewareType} is set to
 	 * {@link MiddlewareType#PRE_AUTHENTICATION}
@@ -0,0 +1,73 @@
+package net.novauniverse.apilib.http.middleware;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread safe {@link List} of {@link HTTPMiddleware}s that counts changes. The
+ * revision is increased by every change made through the list, its iterators
+ * or sub lists so a {@link MiddlewarePipeline} knows when it needs to be
+ * rebuilt
+ *
+ * @author Zeeraa
+ */
+public class MiddlewareList extends AbstractList<HTTPMiddleware> {
+	private final CopyOnWriteArrayList<HTTPMiddleware> middlewares;
+	private final AtomicInteger revision;
+
+	public MiddlewareList() {
+		this.middlewares = new CopyOnWriteArrayList<>();
+		this.revision = new AtomicInteger(0);
+	}
+
+	/**
+	 * @return A number that changes every time the list is modified
+	 */
+	public int getRevision() {
+		return revision.get();
+	}
+
+	@Override
+	public HTTPMiddleware get(int index) {
+		return middlewares.get(index);
+	}
+
+	@Override
+	public int size() {
+		return middlewares.size();
+	}
+
+	@Override
+	public HTTPMiddleware set(int index, HTTPMiddleware element) {
+		HTTPMiddleware previous = middlewares.set(index, element);
+		revision.incrementAndGet();
+		return previous;
+	}
+
+	@Override
+	public void add(int index, HTTPMiddleware element) {
+		middlewares.add(index, element);
+		revision.incrementAndGet();
+	}
+
+	@Override
+	public HTTPMiddleware remove(int index) {
+		HTTPMiddleware removed = middlewares.remove(index);
+		revision.incrementAndGet();
+		return removed;
+	}
+
+	@Override
+	public Object[] toArray() {
+		// Taken from a single snapshot so it is consistent while other threads add
+		// middlewares
+		return middlewares.toArray();
+	}
+
+	@Override
+	public <T> T[] toArray(T[] a) {
+		return middlewares.toArray(a);
+	}
+}
@@ -0,0 +1,104 @@
+package net.novauniverse.apilib.http.middleware;
+
+import net.novauniverse.apilib.http.HTTPServer;
+import net.novauniverse.apilib.http.endpoint.HTTPEndpoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The merged and sorted {@link HTTPMiddleware}s of a {@link HTTPServer} and a
+ * {@link HTTPEndpoint}. A pipeline is immutable and only gets rebuilt when the
+ * middlewares of the server or the endpoint change or when the priority or type
+ * of a middleware changes
+ *
+ * @author Zeeraa
+ */
+public class MiddlewarePipeline {
+	private static final HTTPMiddleware[] EMPTY = new HTTPMiddleware[0];
+
+	private final HTTPMiddleware[] all;
+	private final HTTPMiddleware[] preAuthentication;
+	private final HTTPMiddleware[] postAuthentication;
+	private final int serverRevision;
+	private final int endpointRevision;
+	private final int orderRevision;
+
+	private MiddlewarePipeline(HTTPMiddleware[] all, HTTPMiddleware[] preAuthentication, HTTPMiddleware[] postAuthentication, int serverRevision, int endpointRevision, int orderRevision) {
+		this.all = all;
+		this.preAuthentication = preAuthentication;
+		this.postAuthentication = postAuthentication;
+		this.serverRevision = serverRevision;
+		this.endpointRevision = endpointRevision;
+		this.orderRevision = orderRevision;
+	}
+
+	/**
+	 * Build the pipeline for an endpoint
+	 *
+	 * @param server   The {@link HTTPServer}
+	 * @param endpoint The {@link HTTPEndpoint}
+	 * @return The compiled {@link MiddlewarePipeline}
+	 */
+	public static MiddlewarePipeline compile(HTTPServer server, HTTPEndpoint endpoint) {
+		// Read the revisions first so that a middleware added while compiling
+		// causes another rebuild on the next request
+		int serverRevision = server.getMiddlewareRevision();
+		int endpointRevision = endpoint.getMiddlewareRevision();
+		int orderRevision = HTTPMiddleware.getOrderRevision();
+
+		List<HTTPMiddleware> all = new ArrayList<>(server.getMiddlewares());
+		all.addAll(endpoint.getMiddlewares());
+
+		return new MiddlewarePipeline(all.toArray(EMPTY), sortedOfType(all, MiddlewareType.PRE_AUTHENTICATION), sortedOfType(all, MiddlewareType.POST_AUTHENTICATION), serverRevision, endpointRevision, orderRevision);
+	}
+
+	private static HTTPMiddleware[] sortedOfType(List<HTTPMiddleware> middlewares, MiddlewareType type) {
+		List<HTTPMiddleware> result = new ArrayList<>();
+		for (HTTPMiddleware middleware : middlewares) {
+			if (middleware.getType() == type) {
+				result.add(middleware);
+			}
+		}
+		// The sort is stable so server middlewares still run before endpoint
+		// middlewares with the same priority
+		result.sort(new MiddlewarePriority.MiddlewarePrioritySorter());
+		return result.toArray(EMPTY);
+	}
+
+	/**
+	 * Check if this pipeline is still up to date
+	 *
+	 * @param server   The {@link HTTPServer}
+	 * @param endpoint The {@link HTTPEndpoint}
+	 * @return <code>true</code> if no middlewares have been changed since this
+	 *         pipeline was compiled
+	 */
+	public boolean isUpToDate(HTTPServer server, HTTPEndpoint endpoint) {
+		return serverRevision == server.getMiddlewareRevision() && endpointRevision == endpoint.getMiddlewareRevision() && orderRevision == HTTPMiddleware.getOrderRevision();
+	}
+
+	/**
+	 * @return All middlewares in the order they were added, server middlewares
+	 *         first. Do not modify the returned array
+	 */
+	public HTTPMiddleware[] getAll() {
+		return all;
+	}
+
+	/**
+	 * @return The sorted {@link MiddlewareType#PRE_AUTHENTICATION} middlewares. Do
+	 *         not modify the returned array
+	 */
+	public HTTPMiddleware[] getPreAuthentication() {
+		return preAuthentication;
+	}
+
+	/**
+	 * @return The sorted {@link MiddlewareType#POST_AUTHENTICATION} middlewares.
+	 *         Do not modify the returned array
+	 */
+	public HTTPMiddleware[] getPostAuthentication() {
+		return postAuthentication;
+	}
+}
@@ -0,0 +1,69 @@
+package net.novauniverse.apilib.http.middleware.middlewares;
+
+import net.novauniverse.apilib.http.auth.Authentication;
+import net.novauniverse.apilib.http.endpoint.HTTPEndpoint;
+import net.novauniverse.apilib.http.enums.HTTPResponseCode;
+import net.novauniverse.apilib.http.enums.StandardResponseType;
+import net.novauniverse.apilib.http.limit.ConcurrencyLimit;
+import net.novauniverse.apilib.http.limit.ConcurrencyLimiter;
+import net.novauniverse.apilib.http.limit.GradientLimit;
+import net.novauniverse.apilib.http.middleware.HTTPMiddleware;
+import net.novauniverse.apilib.http.middleware.MiddlewarePriority;
+import net.novauniverse.apilib.http.middleware.MiddlewareResponse;
+import net.novauniverse.apilib.http.middleware.MiddlewareType;
+import net.novauniverse.apilib.http.request.Request;
+
+/**
+ * This middleware limits the amount of requests that are processed at the same
+ * time and rejects the rest with {@link HTTPResponseCode#SERVICE_UNAVAILABLE}
+ * before authentication runs. The limit adapts to the latency of the requests
+ * using a {@link ConcurrencyLimit}.<br>
+ * <br>
+ * Add it to the {@link net.novauniverse.apilib.http.HTTPServer} for a server
+ * wide limit or to a {@link HTTPEndpoint} for a limit that only applies to that
+ * endpoint. Every instance has its own limit.<br>
+ * <br>
+ * Its type is {@link MiddlewareType#PRE_AUTHENTICATION} and has the priority of
+ * {@link MiddlewarePriority#LOWEST}
+ *
+ * @author Zeeraa
+ */
+public class ConcurrencyLimitMiddleware extends HTTPMiddleware {
+	private final ConcurrencyLimiter limiter;
+
+	/**
+	 * Create a limiter using {@link GradientLimit} with the default settings
+	 */
+	public ConcurrencyLimitMiddleware() {
+		this(new GradientLimit());
+	}
+
+	/**
+	 * @param limit The {@link ConcurrencyLimit} to use
+	 */
+	public ConcurrencyLimitMiddleware(ConcurrencyLimit limit) {
+		this.limiter = new ConcurrencyLimiter(limit);
+		this.setPriority(MiddlewarePriority.LOWEST);
+		this.setType(MiddlewareType.PRE_AUTHENTICATION);
+	}
+
+	/**
+	 * @return The {@link ConcurrencyLimiter} used by this middleware
+	 */
+	public ConcurrencyLimiter getLimiter() {
+		return limiter;
+	}
+
+	@Override
+	public MiddlewareResponse handleRequest(HTTPEndpoint endpoint, Request request, Authentication authentication) {
+		int inFlight = limiter.tryAcquire();
+		if (inFlight < 0) {
+			StandardResponseType responseType = endpoint.getStandardResponseType() == null ? request.getServer().getStandardResponseType() : endpoint.getStandardResponseType();
+			return MiddlewareResponse.CANCEL(responseType.cachedError("Too many concurrent requests", HTTPResponseCode.SERVICE_UNAVAILABLE));
+		}
+
+		long start = System.nanoTime();
+		request.addCompletionHandler(() -> limiter.release(System.nanoTime() - start, inFlight));
+		return MiddlewareResponse.CONTINUE;
+	}
+}
@@ -0,0 +1,337 @@
+package net.novauniverse.apilib.http.middleware.middlewares;
+
+import net.novauniverse.apilib.http.auth.Authentication;
+import net.novauniverse.apilib.http.endpoint.HTTPEndpoint;
+import net.novauniverse.apilib.http.enums.HTTPMethod;
+import net.novauniverse.apilib.http.middleware.HTTPMiddleware;
+import net.novauniverse.apilib.http.middleware.MiddlewarePriority;
+import net.novauniverse.apilib.http.middleware.MiddlewareResponse;
+import net.novauniverse.apilib.http.middleware.MiddlewareType;
+import net.novauniverse.apilib.http.request.Request;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Configurable CORS middleware. Origins can be matched exactly, with
+ * <code>*</code> wildcards like <code>https://*.example.com</code> or all
+ * origins can be allowed. All header values are built when the middleware is
+ * configured so handling a request only does a lookup on the origin, and the
+ * preflight headers of each endpoint are built the first time it gets a
+ * preflight. Preflights are answered with <code>Access-Control-Max-Age</code> so
+ * browsers can cache them.<br>
+ * <br>
+ * Its type is {@link MiddlewareType#PRE_AUTHENTICATION} and has the priority of
+ * {@link MiddlewarePriority#LOWEST}
+ *
+ * @author Zeeraa
+ */
+public class CorsMiddleware extends HTTPMiddleware {
+	public static final int DEFAULT_MAX_AGE = 600;
+
+	private final Set<String> allowedOrigins;
+	private final List<Pattern> allowedOriginPatterns;
+	private boolean allowAnyOrigin;
+	private String allowedMethods;
+	private String allowedHeaders;
+	private String exposedHeaders;
+	private boolean allowCredentials;
+	private String maxAge;
+	private final Map<HTTPEndpoint, Preflight> preflights;
+
+	public CorsMiddleware() {
+		this.setPriority(MiddlewarePriority.LOWEST);
+		this.setType(MiddlewareType.PRE_AUTHENTICATION);
+
+		this.allowedOrigins = new HashSet<>();
+		this.allowedOriginPatterns = new ArrayList<>();
+		this.allowAnyOrigin = false;
+		this.allowedMethods = null;
+		this.allowedHeaders = null;
+		this.exposedHeaders = null;
+		this.allowCredentials = false;
+		this.maxAge = String.valueOf(DEFAULT_MAX_AGE);
+		this.preflights = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Allow an origin. <code>*</code> allows all origins and origins containing
+	 * <code>*</code> are matched as wildcards. <code>*</code> can not be combined
+	 * with {@link CorsMiddleware#setAllowCredentials(boolean)}
+	 *
+	 * @param origin The origin like <code>https://example.com</code>
+	 * @return this {@link CorsMiddleware} instance so that calls can be chained
+	 * @throws IllegalStateException if <code>*</code> is used while credentials
+	 *                               are allowed
+	 */
+	public CorsMiddleware allowOrigin(String origin) {
+		if (origin.equals("*")) {
+			if (allowCredentials) {
+				throw new IllegalStateException("Any origin can not be allowed while credentials are allowed");
+			}
+			allowAnyOrigin = true;
+		} else if (origin.indexOf('*') >= 0) {
+			StringBuilder regex = new StringBuilder();
+			String[] parts = origin.toLowerCase().split("\\*", -1);
+			for (int i = 0; i < parts.length; i++) {
+				if (i > 0) {
+					regex.append("[^/]*");
+				}
+				regex.append(Pattern.quote(parts[i]));
+			}
+			allowedOriginPatterns.add(Pattern.compile(regex.toString()));
+		} else {
+			allowedOrigins.add(origin.toLowerCase());
+		}
+		return this;
+	}
+
+	/**
+	 * Allow multiple origins. See {@link CorsMiddleware#allowOrigin(String)}
+	 *
+	 * @param origins The origins
+	 * @return this {@link CorsMiddleware} instance so that calls can be chained
+	 */
+	public CorsMiddleware allowOrigins(String... origins) {
+		for (String origin : origins) {
+			allowOrigin(origin);
+		}
+		return this;
+	}
+
+	/**
+	 * Set the methods sent in preflight responses
+	 *
+	 * @param methods The methods. If empty the allowed methods of the endpoint are
+	 *                used
+	 * @return this {@link CorsMiddleware} instance so that calls can be chained
+	 */
+	public CorsMiddleware setAllowedMethods(HTTPMethod... methods) {
+		if (methods.length == 0) {
+			allowedMethods = null;
+		} else {
+			StringBuilder builder = new StringBuilder();
+			for (HTTPMethod method : methods) {
+				if (builder.length() > 0) {
+					builder.append(", ");
+				}
+				builder.append(method.name());
+			}
+			allowedMethods = builder.toString();
+		}
+		preflights.clear();
+		return this;
+	}
+
+	/**
+	 * Send <code>Access-Control-Allow-Methods: *</code> in preflight responses
+	 *
+	 * @return this {@link CorsMiddleware} instance so that calls can be chained
+	 */
+	public CorsMiddleware allowAnyMethod() {
+		allowedMethods = "*";
+		preflights.clear();
+		return this;
+	}
+
+	/**
+	 * Set the request headers allowed in preflight responses
+	 *
+	 * @param headers The headers or <code>*</code>. If empty the headers
+	 *                requested by the browser are allowed
+	 * @return this {@link CorsMiddleware} instance so that calls can be chained
+	 */
+	public CorsMiddleware setAllowedHeaders(String... headers) {
+		allowedHeaders = headers.length == 0 ? null : String.join(", ", headers);
+		preflights.clear();
+		return this;
+	}
+
+	/**
+	 * Set the response headers that scripts are allowed to read
+	 *
+	 * @param headers The headers
+	 * @return this {@link CorsMiddleware} instance so that calls can be chained
+	 */
+	public CorsMiddleware setExposedHeaders(String... headers) {
+		exposedHeaders = headers.length == 0 ? null : String.join(", ", headers);
+		return this;
+	}
+
+	/**
+	 * Set if <code>Access-Control-Allow-Credentials: true</code> should be sent.
+	 * Credentials can only be allowed for explicit origins since sending them to
+	 * every origin would let any site make authenticated requests
+	 *
+	 * @param allowCredentials <code>true</code> to allow credentials
+	 * @return this {@link CorsMiddleware} instance so that calls can be chained
+	 * @throws IllegalStateException if credentials are allowed while any origin is
+	 *                               allowed
+	 */
+	public CorsMiddleware setAllowCredentials(boolean allowCredentials) {
+		if (allowCredentials && allowAnyOrigin) {
+			throw new IllegalStateException("Credentials can not be allowed while any origin is allowed");
+		}
+		this.allowCredentials = allowCredentials;
+		return this;
+	}
+
+	/**
+	 * Set how long browsers can cache preflight responses. Default is 600 seconds
+	 *
+	 * @param maxAge The time in seconds or -1 to not send the header
+	 * @return this {@link CorsMiddleware} instance so that calls can be chained
+	 */
+	public CorsMiddleware setMaxAge(int maxAge) {
+		if (maxAge < -1) {
+			throw new IllegalArgumentException("maxAge cant be less than -1");
+		}
+		this.maxAge = maxAge == -1 ? null : String.valueOf(maxAge);
+		preflights.clear();
+		return this;
+	}
+
+	/**
+	 * Check if an origin is allowed
+	 *
+	 * @param origin The value of the <code>Origin</code> header
+	 * @return <code>true</code> if the origin is allowed
+	 */
+	public boolean isOriginAllowed(String origin) {
+		if (origin == null) {
+			return false;
+		}
+		if (allowAnyOrigin) {
+			return true;
+		}
+		String lowerCase = origin.toLowerCase();
+		if (allowedOrigins.contains(lowerCase)) {
+			return true;
+		}
+		for (Pattern pattern : allowedOriginPatterns) {
+			if (pattern.matcher(lowerCase).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Add the headers sent on all responses
+	 *
+	 * @param request The {@link Request}
+	 * @return <code>true</code> if the origin was allowed
+	 */
+	private boolean addOriginHeaders(Request request) {
+		String origin = request.getFirstRequestHeader(HTTPHeaders.ORIGIN);
+		if (allowAnyOrigin) {
+			request.setResponseHeader(HTTPHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+		} else {
+			// The response depends on the origin so caches have to know that
+			addVary(request, HTTPHeaders.ORIGIN);
+			if (!isOriginAllowed(origin)) {
+				return false;
+			}
+			request.setResponseHeader(HTTPHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, origin);
+			if (allowCredentials) {
+				request.setResponseHeader(HTTPHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public MiddlewareResponse handleRequest(HTTPEndpoint endpoint, Request request, Authentication authentication) {
+		if (addOriginHeaders(request) && exposedHeaders != null) {
+			request.setResponseHeader(HTTPHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, exposedHeaders);
+		}
+		return MiddlewareResponse.CONTINUE;
+	}
+
+	@Override
+	public void handleOptionsRequest(HTTPEndpoint endpoint, Request request) {
+		if (!addOriginHeaders(request)) {
+			return;
+		}
+		String[] headers = getPreflight(endpoint).headers;
+		for (int i = 0; i < headers.length; i += 2) {
+			request.setResponseHeader(headers[i], headers[i + 1]);
+		}
+		if (allowedHeaders == null) {
+			String requestedHeaders = request.getFirstRequestHeader(HTTPHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+			if (requestedHeaders != null) {
+				addVary(request, HTTPHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+				request.setResponseHeader(HTTPHeaders.ACCESS_CONTROL_ALLOW_HEADERS, requestedHeaders);
+			}
+		}
+	}
+
+	/**
+	 * Get the preflight headers of an endpoint. They are built again if the
+	 * allowed methods of the endpoint were changed
+	 *
+	 * @param endpoint The {@link HTTPEndpoint}
+	 * @return The {@link Preflight} of the endpoint
+	 */
+	private Preflight getPreflight(HTTPEndpoint endpoint) {
+		String allowHeader = endpoint.getAllowHeader();
+		Preflight preflight = preflights.get(endpoint);
+		if (preflight == null || preflight.allowHeader != allowHeader) {
+			List<String> headers = new ArrayList<>();
+			headers.add(HTTPHeaders.ACCESS_CONTROL_ALLOW_METHODS);
+			headers.add(allowedMethods == null ? allowHeader : allowedMethods);
+			if (allowedHeaders != null) {
+				headers.add(HTTPHeaders.ACCESS_CONTROL_ALLOW_HEADERS);
+				headers.add(allowedHeaders);
+			}
+			if (maxAge != null) {
+				headers.add(HTTPHeaders.ACCESS_CONTROL_MAX_AGE);
+				headers.add(maxAge);
+			}
+			preflight = new Preflight(allowHeader, headers.toArray(new String[0]));
+			preflights.put(endpoint, preflight);
+		}
+		return preflight;
+	}
+
+	/**
+	 * Add a header to <code>Vary</code> without removing the headers already in it
+	 *
+	 * @param request The {@link Request}
+	 * @param header  The name of the header the response depends on
+	 */
+	private static void addVary(Request request, String header) {
+		TransportExchange exchange = request.getTransportExchange();
+		String vary = exchange.getFirstResponseHeader(HTTPHeaders.VARY);
+		if (vary == null) {
+			exchange.setResponseHeader(HTTPHeaders.VARY, header);
+			return;
+		}
+		for (String value : vary.split(",")) {
+			if (value.trim().equalsIgnoreCase(header)) {
+				return;
+			}
+		}
+		exchange.setResponseHeader(HTTPHeaders.VARY, vary + ", " + header);
+	}
+
+	/**
+	 * The preflight headers of an endpoint as name and value pairs
+	 */
+	private static class Preflight {
+		private final String allowHeader;
+		private final String[] headers;
+
+		private Preflight(String allowHeader, String[] headers) {
+			this.allowHeader = allowHeader;
+			this.headers = headers;
+		}
+	}
+}
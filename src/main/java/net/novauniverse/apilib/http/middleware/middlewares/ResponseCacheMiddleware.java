@@ -0,0 +1,147 @@
+package net.novauniverse.apilib.http.middleware.middlewares;
+
+import net.novauniverse.apilib.http.auth.Authentication;
+import net.novauniverse.apilib.http.cache.CachedResponse;
+import net.novauniverse.apilib.http.cache.ResponseCache;
+import net.novauniverse.apilib.http.cache.ResponseCapture;
+import net.novauniverse.apilib.http.endpoint.HTTPEndpoint;
+import net.novauniverse.apilib.http.enums.HTTPMethod;
+import net.novauniverse.apilib.http.middleware.HTTPMiddleware;
+import net.novauniverse.apilib.http.middleware.MiddlewarePriority;
+import net.novauniverse.apilib.http.middleware.MiddlewareResponse;
+import net.novauniverse.apilib.http.middleware.MiddlewareType;
+import net.novauniverse.apilib.http.request.Request;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * This middleware answers <code>GET</code> requests from a
+ * {@link ResponseCache} so the endpoint only runs when the response is missing
+ * or expired. Responses are stored as the bytes the endpoint sent, so a hit
+ * does not serialize anything. Only <code>200</code> responses without
+ * <code>Set-Cookie</code> or <code>Cache-Control: no-store</code> or
+ * <code>private</code> are stored. Responses that send <code>Vary: *</code>
+ * or vary on request headers that are not part of the key are not stored
+ * either.<br>
+ * <br>
+ * Responses are keyed by the path, the query and the headers set with
+ * {@link ResponseCacheMiddleware#setVaryHeaders(String...)}. Authenticated
+ * requests skip the cache unless
+ * {@link ResponseCacheMiddleware#setAuthenticationKey(Function)} is used to
+ * give each user their own responses.<br>
+ * <br>
+ * Add it to a {@link HTTPEndpoint} to use a time to live for that endpoint.
+ * Multiple middlewares can share the same {@link ResponseCache}.<br>
+ * <br>
+ * Its type is {@link MiddlewareType#POST_AUTHENTICATION} and has the priority
+ * of {@link MiddlewarePriority#HIGHEST} so that it runs after all other
+ * middlewares
+ *
+ * @author Zeeraa
+ */
+public class ResponseCacheMiddleware extends HTTPMiddleware {
+	private final ResponseCache cache;
+	private final long timeToLiveNanos;
+	private String[] varyHeaders;
+	private Function<Authentication, String> authenticationKey;
+
+	/**
+	 * @param cache      The {@link ResponseCache} to store responses in
+	 * @param timeToLive How long responses can be used
+	 * @param unit       The {@link TimeUnit} of the time to live
+	 */
+	public ResponseCacheMiddleware(ResponseCache cache, long timeToLive, TimeUnit unit) {
+		if (timeToLive < 1) {
+			throw new IllegalArgumentException("timeToLive cant be less than 1");
+		}
+		this.cache = cache;
+		this.timeToLiveNanos = unit.toNanos(timeToLive);
+		this.varyHeaders = new String[0];
+		this.authenticationKey = null;
+		this.setPriority(MiddlewarePriority.HIGHEST);
+		this.setType(MiddlewareType.POST_AUTHENTICATION);
+	}
+
+	/**
+	 * @return The {@link ResponseCache} used by this middleware
+	 */
+	public ResponseCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Set the request headers that change the response, like
+	 * <code>Accept-Language</code>. Their values are part of the key
+	 *
+	 * @param varyHeaders The names of the headers
+	 * @return this {@link ResponseCacheMiddleware} instance so that calls can be
+	 *         chained
+	 */
+	public ResponseCacheMiddleware setVaryHeaders(String... varyHeaders) {
+		this.varyHeaders = varyHeaders.clone();
+		return this;
+	}
+
+	/**
+	 * Allow caching for authenticated requests. The returned value is part of the
+	 * key so users never get each others responses
+	 *
+	 * @param authenticationKey {@link Function} returning a value that identifies
+	 *                          the user or <code>null</code> to skip the cache
+	 *                          for authenticated requests
+	 * @return this {@link ResponseCacheMiddleware} instance so that calls can be
+	 *         chained
+	 */
+	public ResponseCacheMiddleware setAuthenticationKey(Function<Authentication, String> authenticationKey) {
+		this.authenticationKey = authenticationKey;
+		return this;
+	}
+
+	@Override
+	public MiddlewareResponse handleRequest(HTTPEndpoint endpoint, Request request, Authentication authentication) {
+		if (request.getMethod() != HTTPMethod.GET) {
+			return MiddlewareResponse.CONTINUE;
+		}
+
+		URI uri = request.getTransportExchange().getRequestURI();
+		String path = uri.getPath();
+		StringBuilder key = new StringBuilder(64).append(path);
+		String query = uri.getRawQuery();
+		if (query != null) {
+			key.append('?').append(query);
+		}
+		for (String header : varyHeaders) {
+			String value = request.getFirstRequestHeader(header);
+			key.append('\n');
+			if (value != null) {
+				key.append(value);
+			}
+		}
+		if (authentication != null) {
+			String user = authenticationKey == null ? null : authenticationKey.apply(authentication);
+			if (user == null) {
+				return MiddlewareResponse.CONTINUE;
+			}
+			key.append('\n').append(user);
+		}
+
+		String cacheKey = key.toString();
+		CachedResponse cached = cache.get(cacheKey);
+		if (cached != null) {
+			return MiddlewareResponse.CANCEL(cached);
+		}
+
+		ResponseCapture capture = new ResponseCapture(request.getResponseExchange(), cache, path, cacheKey, timeToLiveNanos, Arrays.asList(varyHeaders));
+		request.setResponseExchange(capture);
+		// Only stored once the request completed without the response failing
+		request.addCompletionHandler(() -> {
+			if (!request.isFailed()) {
+				capture.commit();
+			}
+		});
+		return MiddlewareResponse.CONTINUE;
+	}
+}
@@ -0,0 +1,73 @@
+package net.novauniverse.apilib.http.request;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Key for a typed attribute of a {@link Request}. Every key gets its own slot
+ * in the attribute array of the request, so reads and writes are an array
+ * access without hashing or boxing. Keys should be created once and kept in a
+ * <code>static final</code> field, usually in the middleware that sets the
+ * value
+ *
+ * <pre>
+ * public static final AttributeKey&lt;UUID&gt; USER_ID = AttributeKey.create("userId");
+ *
+ * request.setAttribute(USER_ID, uuid);
+ * UUID uuid = request.getAttribute(USER_ID);
+ * </pre>
+ *
+ * @param <T> The type of the value
+ * @author Zeeraa
+ */
+public final class AttributeKey<T> {
+	private static final AtomicInteger COUNT = new AtomicInteger(0);
+
+	private final String name;
+	private final int index;
+
+	private AttributeKey(String name) {
+		this.name = name;
+		this.index = COUNT.getAndIncrement();
+	}
+
+	/**
+	 * Create a new key. Keys with the same name are still separate keys
+	 *
+	 * @param <T>  The type of the value
+	 * @param name The name of the key. Only used for debugging
+	 * @return The new {@link AttributeKey}
+	 */
+	public static <T> AttributeKey<T> create(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("name cant be null");
+		}
+		return new AttributeKey<>(name);
+	}
+
+	/**
+	 * @return The amount of keys created so far. Used to size the attribute
+	 *         arrays of requests
+	 */
+	static int count() {
+		return COUNT.get();
+	}
+
+	/**
+	 * @return The name of this key
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The slot of this key in the attribute array of a request
+	 */
+	int getIndex() {
+		return index;
+	}
+
+	@Override
+	public String toString() {
+		return "AttributeKey[" + name + "]";
+	}
+}
@@ -0,0 +1,325 @@
+package net.novauniverse.apilib.http.request;
+
+import net.novauniverse.apilib.http.utilities.QueryParameterUtilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The query parameters of a request. The query is scanned once to find where
+ * every key and value starts and ends, and keys and values are only decoded
+ * when they are read. Keys can have multiple values like
+ * <code>?tag=a&amp;tag=b</code>
+ *
+ * @author Zeeraa
+ */
+public class QueryParameters {
+	/**
+	 * Ints stored for each parameter: key start, key end, value start, value end
+	 * and flags
+	 */
+	private static final int STRIDE = 5;
+	private static final int KEY_ENCODED = 1;
+	private static final int VALUE_ENCODED = 2;
+
+	private static final QueryParameters EMPTY = new QueryParameters("", new int[0], 0);
+
+	private final String query;
+	private final int[] bounds;
+	private final int count;
+	private String[] keys;
+	private String[] values;
+
+	private QueryParameters(String query, int[] bounds, int count) {
+		this.query = query;
+		this.bounds = bounds;
+		this.count = count;
+		this.keys = null;
+		this.values = null;
+	}
+
+	/**
+	 * Parse a query string
+	 *
+	 * @param rawQuery The query string without the leading <code>?</code>. Should
+	 *                 not be decoded yet since decoding <code>%26</code> would
+	 *                 split a value in two
+	 * @return The {@link QueryParameters}
+	 */
+	public static QueryParameters parse(String rawQuery) {
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return EMPTY;
+		}
+
+		int[] bounds = new int[STRIDE * 4];
+		int count = 0;
+		int start = 0;
+		int equals = -1;
+		int flags = 0;
+		int length = rawQuery.length();
+		for (int i = 0; i <= length; i++) {
+			char c = i == length ? '&' : rawQuery.charAt(i);
+			if (c == '&') {
+				if (i > start) {
+					if ((count + 1) * STRIDE > bounds.length) {
+						int[] grown = new int[bounds.length * 2];
+						System.arraycopy(bounds, 0, grown, 0, bounds.length);
+						bounds = grown;
+					}
+					int offset = count * STRIDE;
+					bounds[offset] = start;
+					bounds[offset + 1] = equals < 0 ? i : equals;
+					bounds[offset + 2] = equals < 0 ? i : equals + 1;
+					bounds[offset + 3] = i;
+					bounds[offset + 4] = flags;
+					count++;
+				}
+				start = i + 1;
+				equals = -1;
+				flags = 0;
+			} else if (c == '=' && equals < 0) {
+				equals = i;
+			} else if (c == '%' || c == '+') {
+				flags |= equals < 0 ? KEY_ENCODED : VALUE_ENCODED;
+			}
+		}
+		return new QueryParameters(rawQuery, bounds, count);
+	}
+
+	/**
+	 * @return The number of parameters including repeated keys
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return <code>true</code> if there are no parameters
+	 */
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * @param name The name of the parameter
+	 * @return <code>true</code> if the parameter is present, even without a value
+	 */
+	public boolean has(String name) {
+		return indexOf(name, 0) >= 0;
+	}
+
+	/**
+	 * Get the first value of a parameter
+	 *
+	 * @param name The name of the parameter
+	 * @return The decoded value, an empty string if the parameter has no value or
+	 *         <code>null</code> if the parameter is not present
+	 */
+	public String get(String name) {
+		int index = indexOf(name, 0);
+		return index < 0 ? null : value(index);
+	}
+
+	/**
+	 * Get the first value of a parameter
+	 *
+	 * @param name         The name of the parameter
+	 * @param defaultValue The value to return if the parameter is not present
+	 * @return The decoded value or the default value
+	 */
+	public String get(String name, String defaultValue) {
+		String value = get(name);
+		return value == null ? defaultValue : value;
+	}
+
+	/**
+	 * Get all values of a parameter
+	 *
+	 * @param name The name of the parameter
+	 * @return {@link List} with the decoded values in the order they appear in the
+	 *         query. Empty if the parameter is not present
+	 */
+	public List<String> getAll(String name) {
+		int index = indexOf(name, 0);
+		if (index < 0) {
+			return Collections.emptyList();
+		}
+		List<String> result = new ArrayList<>(2);
+		while (index >= 0) {
+			result.add(value(index));
+			index = indexOf(name, index + 1);
+		}
+		return result;
+	}
+
+	/**
+	 * @param name         The name of the parameter
+	 * @param defaultValue The value to return if the parameter is not present or
+	 *                     not a valid number
+	 * @return The first value as an int
+	 */
+	public int getInt(String name, int defaultValue) {
+		String value = get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @param name         The name of the parameter
+	 * @param defaultValue The value to return if the parameter is not present or
+	 *                     not a valid number
+	 * @return The first value as a long
+	 */
+	public long getLong(String name, long defaultValue) {
+		String value = get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @param name         The name of the parameter
+	 * @param defaultValue The value to return if the parameter is not present or
+	 *                     not a valid number
+	 * @return The first value as a double
+	 */
+	public double getDouble(String name, double defaultValue) {
+		String value = get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Double.parseDouble(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Get the first value as a boolean. <code>true</code>, <code>1</code>,
+	 * <code>yes</code> and <code>on</code> are <code>true</code> and
+	 * <code>false</code>, <code>0</code>, <code>no</code> and <code>off</code> are
+	 * <code>false</code>
+	 *
+	 * @param name         The name of the parameter
+	 * @param defaultValue The value to return if the parameter is not present or
+	 *                     not a valid boolean
+	 * @return The first value as a boolean
+	 */
+	public boolean getBoolean(String name, boolean defaultValue) {
+		String value = get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		value = value.trim();
+		if (value.equalsIgnoreCase("true") || value.equals("1") || value.equalsIgnoreCase("yes") || value.equalsIgnoreCase("on")) {
+			return true;
+		}
+		if (value.equalsIgnoreCase("false") || value.equals("0") || value.equalsIgnoreCase("no") || value.equalsIgnoreCase("off")) {
+			return false;
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * @return The decoded names of all parameters in the order they first appear
+	 */
+	public Set<String> names() {
+		Set<String> result = new LinkedHashSet<>();
+		for (int i = 0; i < count; i++) {
+			result.add(key(i));
+		}
+		return result;
+	}
+
+	/**
+	 * @return {@link Map} with the first value of each parameter
+	 */
+	public Map<String, String> toMap() {
+		Map<String, String> result = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			result.putIfAbsent(key(i), value(i));
+		}
+		return result;
+	}
+
+	/**
+	 * @return {@link Map} with all values of each parameter
+	 */
+	public Map<String, List<String>> toMultiMap() {
+		Map<String, List<String>> result = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			result.computeIfAbsent(key(i), key -> new ArrayList<>(1)).add(value(i));
+		}
+		return result;
+	}
+
+	private int indexOf(String name, int from) {
+		int length = name.length();
+		for (int i = from; i < count; i++) {
+			int offset = i * STRIDE;
+			if ((bounds[offset + 4] & KEY_ENCODED) != 0) {
+				if (key(i).equals(name)) {
+					return i;
+				}
+			} else if (bounds[offset + 1] - bounds[offset] == length && query.regionMatches(bounds[offset], name, 0, length)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private String key(int index) {
+		if (keys == null) {
+			keys = new String[count];
+		}
+		String key = keys[index];
+		if (key == null) {
+			int offset = index * STRIDE;
+			key = decode(bounds[offset], bounds[offset + 1], (bounds[offset + 4] & KEY_ENCODED) != 0);
+			keys[index] = key;
+		}
+		return key;
+	}
+
+	private String value(int index) {
+		if (values == null) {
+			values = new String[count];
+		}
+		String value = values[index];
+		if (value == null) {
+			int offset = index * STRIDE;
+			value = decode(bounds[offset + 2], bounds[offset + 3], (bounds[offset + 4] & VALUE_ENCODED) != 0);
+			values[index] = value;
+		}
+		return value;
+	}
+
+	private String decode(int start, int end, boolean encoded) {
+		if (!encoded) {
+			return query.substring(start, end);
+		}
+		return QueryParameterUtilities.decode(query, start, end);
+	}
+
+	@Override
+	public String toString() {
+		return toMultiMap().toString();
+	}
+}
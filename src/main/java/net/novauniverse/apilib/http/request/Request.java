@@ -2,14 +2,27 @@ package net.novauniverse.apilib.http.request;
 
 import com.sun.net.httpserver.HttpExchange;
 import net.novauniverse.apilib.http.HTTPServer;
+import net.novauniverse.apilib.http.body.BodyParser;
+import net.novauniverse.apilib.http.body.multipart.MultipartBody;
+import net.novauniverse.apilib.http.body.multipart.MultipartBodyParser;
 import net.novauniverse.apilib.http.enums.HTTPMethod;
+import net.novauniverse.apilib.http.exception.BodyParseException;
 import net.novauniverse.apilib.http.exception.HTTPMethodNotSupportedException;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
 import net.novauniverse.apilib.http.utilities.HeaderUtilities;
-import net.novauniverse.apilib.http.utilities.QueryParameterUtilities;
+import org.apache.commons.io.IOUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,23 +34,67 @@ import java.util.Map;
  */
 public class Request {
 	private final HTTPServer server;
-	private final HttpExchange exchange;
-	private final Map<String, String> queryParameters;
+	private final TransportExchange exchange;
 	private final HTTPMethod method;
-	private final String body;
-	private final Map<String, String> middlewareData;
+	private final BodyParser bodyParser;
+	private final Map<String, String> pathParameters;
+	private QueryParameters query;
+	private Map<String, String> queryParameters;
+	private Object body;
+	private boolean bodyParsed;
+	private Map<String, String> middlewareData;
+	private Object[] attributes;
+	private TransportExchange responseExchange;
+	private Map<String, List<String>> requestHeaders;
+	private Map<String, List<String>> responseHeaders;
+	private List<Runnable> completionHandlers;
+	private boolean completed;
+	private boolean failed;
 
 	public Request(HTTPServer server, HttpExchange exchange, String body) throws HTTPMethodNotSupportedException {
+		this(server, new JDKTransportExchange(exchange), body);
+	}
+
+	public Request(HTTPServer server, TransportExchange exchange, String body) throws HTTPMethodNotSupportedException {
+		this(server, exchange, null, Collections.emptyMap());
+		this.body = body;
+		this.bodyParsed = true;
+	}
+
+	/**
+	 * Create a request that parses the body the first time
+	 * {@link Request#getBody()} is called. The query parameters are also only
+	 * parsed when first used
+	 *
+	 * @param server         The {@link HTTPServer} that received the request
+	 * @param exchange       The {@link TransportExchange}
+	 * @param bodyParser     The {@link BodyParser} to use or <code>null</code> to
+	 *                       not parse the body
+	 * @param pathParameters The values of the <code>{param}</code> segments in the
+	 *                       path
+	 * @throws HTTPMethodNotSupportedException If the request method is unknown
+	 */
+	public Request(HTTPServer server, TransportExchange exchange, BodyParser bodyParser, Map<String, String> pathParameters) throws HTTPMethodNotSupportedException {
 		this.server = server;
 		this.exchange = exchange;
-		this.queryParameters = QueryParameterUtilities.queryToMap(exchange.getRequestURI().getQuery());
-		this.body = body;
-		this.middlewareData = new HashMap<>();
-		try {
-			this.method = HTTPMethod.valueOf(exchange.getRequestMethod().toUpperCase());
-		} catch (IllegalArgumentException e) {
-			throw new HTTPMethodNotSupportedException("The HTTP method " + exchange.getRequestMethod() + " is not yet supported by this library", e);
+		this.method = HTTPMethod.parse(exchange.getRequestMethod());
+		if (method == null) {
+			throw new HTTPMethodNotSupportedException("The HTTP method " + exchange.getRequestMethod() + " is not yet supported by this library");
 		}
+		this.bodyParser = bodyParser;
+		this.pathParameters = pathParameters;
+		this.query = null;
+		this.queryParameters = null;
+		this.body = null;
+		this.bodyParsed = bodyParser == null;
+		this.middlewareData = null;
+		this.attributes = null;
+		this.responseExchange = exchange;
+		this.requestHeaders = null;
+		this.responseHeaders = null;
+		this.completionHandlers = null;
+		this.completed = false;
+		this.failed = false;
 	}
 
 	/**
@@ -48,17 +105,26 @@ public class Request {
 	}
 
 	/**
-	 * @return A copy of all the request headers
+	 * @return Read only view of the request headers. Lookups are case insensitive.
+	 *         Use {@link HeaderUtilities#headersToMap(Map)} to get a copy
 	 */
 	public Map<String, List<String>> getRequestHeaders() {
-		return HeaderUtilities.headersToMap(exchange.getRequestHeaders());
+		if (requestHeaders == null) {
+			requestHeaders = HeaderUtilities.readOnlyView(exchange.getRequestHeaders());
+		}
+		return requestHeaders;
 	}
 
 	/**
-	 * @return A copy of all the response headers
+	 * @return Read only view of the response headers that shows headers added
+	 *         later. Use {@link Request#setResponseHeader(String, String)} to add
+	 *         headers
 	 */
 	public Map<String, List<String>> getResponseHeaders() {
-		return HeaderUtilities.headersToMap(exchange.getResponseHeaders());
+		if (responseHeaders == null) {
+			responseHeaders = HeaderUtilities.readOnlyView(exchange.getResponseHeaders());
+		}
+		return responseHeaders;
 	}
 	
 	/**
@@ -68,7 +134,7 @@ public class Request {
 	 * @return The header value or null if not found
 	 */
 	public String getFirstRequestHeader(String key) {
-		return exchange.getRequestHeaders().getFirst(key);
+		return exchange.getFirstRequestHeader(key);
 	}
 
 	/**
@@ -78,21 +144,160 @@ public class Request {
 	 * @return The header value or null if not found
 	 */
 	public String getFirstResponseHeader(String key) {
-		return exchange.getResponseHeaders().getFirst(key);
+		return exchange.getFirstResponseHeader(key);
 	}
 
 	public Request setResponseHeader(String key, String value) {
-		exchange.getResponseHeaders().add(key, value);
+		exchange.addResponseHeader(key, value);
 		return this;
 	}
 
 	/**
-	 * @return The request body as a string
+	 * Get the request body as parsed by the {@link BodyParser} of the endpoint. The
+	 * body is parsed the first time any of the body getters is called
+	 *
+	 * @return The body as a {@link String}, <code>byte[]</code>,
+	 *         {@link ByteBuffer} or {@link InputStream} depending on the
+	 *         {@link BodyParser}. <code>null</code> if the endpoint has no
+	 *         {@link BodyParser}
+	 * @throws BodyParseException If the {@link BodyParser} failed
 	 */
-	public String getBody() {
+	public Object getBodyObject() {
+		if (!bodyParsed) {
+			try {
+				body = bodyParser.parse(exchange);
+			} catch (Exception e) {
+				throw new BodyParseException(e);
+			} finally {
+				bodyParsed = true;
+			}
+		}
 		return body;
 	}
 
+	/**
+	 * @return The request body as a string. Binary bodies are decoded with the
+	 *         charset of the {@link BodyParser}
+	 * @throws BodyParseException If the {@link BodyParser} failed
+	 */
+	public String getBody() {
+		Object body = getBodyObject();
+		if (body == null || body instanceof String) {
+			return (String) body;
+		}
+		Charset charset = bodyParser == null ? StandardCharsets.UTF_8 : bodyParser.getCharset();
+		if (body instanceof byte[]) {
+			return new String((byte[]) body, charset);
+		}
+		if (body instanceof ByteBuffer) {
+			return charset.decode(((ByteBuffer) body).duplicate()).toString();
+		}
+		if (body instanceof InputStream) {
+			try {
+				// Keep the result since the stream can only be read once
+				String result = IOUtils.toString((InputStream) body, charset);
+				this.body = result;
+				return result;
+			} catch (IOException e) {
+				throw new BodyParseException(e);
+			}
+		}
+		return body.toString();
+	}
+
+	/**
+	 * @return The request body as bytes. Strings are encoded with the charset of
+	 *         the {@link BodyParser}
+	 * @throws BodyParseException If the {@link BodyParser} failed
+	 */
+	public byte[] getBodyBytes() {
+		Object body = getBodyObject();
+		if (body == null || body instanceof byte[]) {
+			return (byte[]) body;
+		}
+		if (body instanceof ByteBuffer) {
+			ByteBuffer buffer = ((ByteBuffer) body).duplicate();
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			return bytes;
+		}
+		if (body instanceof InputStream) {
+			try {
+				byte[] result = IOUtils.toByteArray((InputStream) body);
+				this.body = result;
+				return result;
+			} catch (IOException e) {
+				throw new BodyParseException(e);
+			}
+		}
+		Charset charset = bodyParser == null ? StandardCharsets.UTF_8 : bodyParser.getCharset();
+		return body.toString().getBytes(charset);
+	}
+
+	/**
+	 * @return Read only {@link ByteBuffer} with the request body. Buffers from a
+	 *         pooled {@link BodyParser} are only valid until the response has been
+	 *         sent
+	 * @throws BodyParseException If the {@link BodyParser} failed
+	 */
+	public ByteBuffer getBodyBuffer() {
+		Object body = getBodyObject();
+		if (body == null) {
+			return null;
+		}
+		if (body instanceof ByteBuffer) {
+			return ((ByteBuffer) body).asReadOnlyBuffer();
+		}
+		return ByteBuffer.wrap(getBodyBytes()).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return {@link InputStream} with the request body. Can only be read once if
+	 *         the endpoint uses a streaming {@link BodyParser}
+	 * @throws BodyParseException If the {@link BodyParser} failed
+	 */
+	public InputStream getBodyStream() {
+		Object body = getBodyObject();
+		if (body == null) {
+			return null;
+		}
+		if (body instanceof InputStream) {
+			return (InputStream) body;
+		}
+		if (body instanceof ByteBuffer) {
+			ByteBuffer buffer = ((ByteBuffer) body).duplicate();
+			if (buffer.hasArray()) {
+				return new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			}
+		}
+		return new ByteArrayInputStream(getBodyBytes());
+	}
+
+	/**
+	 * Get the body as the type produced by the {@link BodyParser}. Used with
+	 * parsers that bind the body into objects like
+	 * {@link net.novauniverse.apilib.http.body.json.JSONBodyParser}
+	 *
+	 * @param type The type of the body
+	 * @param <T>  The type of the body
+	 * @return The parsed body
+	 * @throws BodyParseException If the {@link BodyParser} failed
+	 * @throws ClassCastException If the body is not of the provided type
+	 */
+	public <T> T getBodyAs(Class<T> type) {
+		return type.cast(getBodyObject());
+	}
+
+	/**
+	 * @return The parts of the body if the endpoint uses a
+	 *         {@link MultipartBodyParser}, otherwise <code>null</code>
+	 * @throws BodyParseException If the {@link BodyParser} failed
+	 */
+	public MultipartBody getMultipart() {
+		Object body = getBodyObject();
+		return body instanceof MultipartBody ? (MultipartBody) body : null;
+	}
+
 	/**
 	 * @return The remote address of the request
 	 */
@@ -115,33 +320,242 @@ public class Request {
 	}
 
 	/**
-	 * @return The sun {@link com.sun.net.httpserver.HttpExchange}
+	 * @return The sun {@link com.sun.net.httpserver.HttpExchange} or
+	 *         <code>null</code> if the request was received by another transport
+	 *         than {@link net.novauniverse.apilib.http.transport.jdk.JDKTransport}
 	 */
 	public HttpExchange getExchange() {
+		return JDKTransportExchange.unwrap(exchange);
+	}
+
+	/**
+	 * @return The {@link TransportExchange} of the request
+	 */
+	public TransportExchange getTransportExchange() {
 		return exchange;
 	}
 
+	/**
+	 * @return The {@link TransportExchange} the response will be written to
+	 */
+	public TransportExchange getResponseExchange() {
+		return responseExchange;
+	}
+
+	/**
+	 * Replace the exchange the response is written to. Middlewares can use this to
+	 * see or change the response of the endpoint by wrapping
+	 * {@link Request#getResponseExchange()} in a
+	 * {@link net.novauniverse.apilib.http.transport.FilterTransportExchange}
+	 *
+	 * @param responseExchange The {@link TransportExchange} to write the response
+	 *                         to
+	 */
+	public void setResponseExchange(TransportExchange responseExchange) {
+		this.responseExchange = responseExchange;
+	}
+
 	/**
 	 * Allows you to access data from middlewares
 	 *
 	 * @return {@link Map} with middleware data
+	 * @deprecated Use {@link Request#getAttribute(AttributeKey)} and
+	 *             {@link Request#setAttribute(AttributeKey, Object)} which keep the
+	 *             type of the value and do not need hashing
 	 */
+	@Deprecated
 	public Map<String, String> getMiddlewareData() {
+		if (middlewareData == null) {
+			middlewareData = new HashMap<>();
+		}
 		return middlewareData;
 	}
 
 	/**
-	 * @return a {@link Map} with all query parameters supplied by the user
+	 * Get the value of an attribute set by a middleware or the endpoint
+	 *
+	 * @param <T> The type of the value
+	 * @param key The {@link AttributeKey}
+	 * @return The value or <code>null</code> if not set
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getAttribute(AttributeKey<T> key) {
+		int index = key.getIndex();
+		if (attributes == null || index >= attributes.length) {
+			return null;
+		}
+		return (T) attributes[index];
+	}
+
+	/**
+	 * Get the value of an attribute or a default value if it is not set
+	 *
+	 * @param <T>          The type of the value
+	 * @param key          The {@link AttributeKey}
+	 * @param defaultValue The value to return if the attribute is not set
+	 * @return The value or the default value
+	 */
+	public <T> T getAttribute(AttributeKey<T> key, T defaultValue) {
+		T value = getAttribute(key);
+		return value == null ? defaultValue : value;
+	}
+
+	/**
+	 * @param key The {@link AttributeKey}
+	 * @return <code>true</code> if the attribute is set
+	 */
+	public boolean hasAttribute(AttributeKey<?> key) {
+		return getAttribute(key) != null;
+	}
+
+	/**
+	 * Set the value of an attribute. Use this to pass data from middlewares to
+	 * the endpoint
+	 *
+	 * @param <T>   The type of the value
+	 * @param key   The {@link AttributeKey}
+	 * @param value The value or <code>null</code> to remove it
+	 * @return this {@link Request} instance so that calls can be chained
+	 */
+	public <T> Request setAttribute(AttributeKey<T> key, T value) {
+		int index = key.getIndex();
+		if (attributes == null || index >= attributes.length) {
+			if (value == null) {
+				return this;
+			}
+			// Sized for all keys that exist so far so later writes do not have to grow it
+			Object[] grown = new Object[Math.max(AttributeKey.count(), index + 1)];
+			if (attributes != null) {
+				System.arraycopy(attributes, 0, grown, 0, attributes.length);
+			}
+			attributes = grown;
+		}
+		attributes[index] = value;
+		return this;
+	}
+
+	/**
+	 * Remove an attribute
+	 *
+	 * @param <T> The type of the value
+	 * @param key The {@link AttributeKey}
+	 * @return The removed value or <code>null</code> if it was not set
+	 */
+	public <T> T removeAttribute(AttributeKey<T> key) {
+		T value = getAttribute(key);
+		if (value != null) {
+			attributes[key.getIndex()] = null;
+		}
+		return value;
+	}
+
+	/**
+	 * @return The decoded {@link QueryParameters} supplied by the user. Supports
+	 *         repeated keys and typed values
+	 */
+	public QueryParameters getQuery() {
+		if (query == null) {
+			query = QueryParameters.parse(exchange.getRequestURI().getRawQuery());
+		}
+		return query;
+	}
+
+	/**
+	 * @return a {@link Map} with all query parameters supplied by the user. Only
+	 *         the first value of repeated keys is included, use
+	 *         {@link Request#getQuery()} to get all of them
 	 */
 	public Map<String, String> getQueryParameters() {
+		if (queryParameters == null) {
+			queryParameters = getQuery().toMap();
+		}
 		return queryParameters;
 	}
 
+	/**
+	 * @return Read only {@link Map} with the values of the <code>{param}</code>
+	 *         segments in the path of the endpoint
+	 */
+	public Map<String, String> getPathParameters() {
+		return pathParameters;
+	}
+
+	/**
+	 * Get the value of a <code>{param}</code> segment in the path of the endpoint
+	 *
+	 * @param name The name of the parameter
+	 * @return The value or <code>null</code> if the endpoint has no parameter with
+	 *         that name
+	 */
+	public String getPathParameter(String name) {
+		return pathParameters.get(name);
+	}
+
 	/**
 	 * @return Gets the request body {@link InputStream} from the
-	 *         {@link com.sun.net.httpserver.HttpExchange}
+	 *         {@link TransportExchange}
 	 */
 	public InputStream getRequestBody() {
 		return exchange.getRequestBody();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Add a {@link Runnable} that runs once the response has been sent or the
+	 * request failed. Can be used by middlewares to release resources or to
+	 * measure how long the request took
+	 *
+	 * @param handler The {@link Runnable} to run
+	 * @return this {@link Request} instance so that calls can be chained
+	 */
+	public Request addCompletionHandler(Runnable handler) {
+		if (completionHandlers == null) {
+			completionHandlers = new ArrayList<>(2);
+		}
+		completionHandlers.add(handler);
+		return this;
+	}
+
+	/**
+	 * Mark the response as failed. This is called by the {@link HTTPServer} before
+	 * the completion handlers run if sending the response threw an exception
+	 */
+	public void markFailed() {
+		failed = true;
+	}
+
+	/**
+	 * @return <code>true</code> if sending the response failed. The response may
+	 *         have been sent partially
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * Run all completion handlers. This is called by the {@link HTTPServer} after
+	 * the response has been sent and only runs the handlers the first time it is
+	 * called
+	 */
+	public void complete() {
+		if (completed) {
+			return;
+		}
+		completed = true;
+		if (bodyParser != null && body != null) {
+			try {
+				bodyParser.release(body);
+			} catch (Exception e) {
+				server.getExceptionConsumers().forEach(c -> c.accept(e));
+			}
+		}
+		if (completionHandlers != null) {
+			for (Runnable handler : completionHandlers) {
+				try {
+					handler.run();
+				} catch (Exception e) {
+					server.getExceptionConsumers().forEach(c -> c.accept(e));
+				}
+			}
+		}
+	}
+}
@@ -1,6 +1,9 @@
 package net.novauniverse.apilib.http.response;
 
 import com.sun.net.httpserver.HttpExchange;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.TransportHttpExchange;
+
 import java.io.IOException;
 
 /**
@@ -17,4 +20,17 @@ public abstract class AbstractHTTPResponse {
 	 * @throws IOException In case something goes wrong while writing the response
 	 */
 	public abstract void handle(HttpExchange exchange) throws IOException;
+
+	/**
+	 * Send the result of the {@link AbstractHTTPResponse} to the
+	 * {@link TransportExchange}. By default the response is written through a
+	 * {@link TransportHttpExchange} so it works on every transport. Override this
+	 * to write to the {@link TransportExchange} directly
+	 * 
+	 * @param exchange the {@link TransportExchange}
+	 * @throws IOException In case something goes wrong while writing the response
+	 */
+	public void handle(TransportExchange exchange) throws IOException {
+		this.handle(TransportHttpExchange.of(exchange));
+	}
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package net.novauniverse.apilib.http.response;
 
 import com.sun.net.httpserver.HttpExchange;
 import net.novauniverse.apilib.http.enums.HTTPResponseCode;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
 
 import java.io.IOException;
 
@@ -40,6 +42,11 @@ public class EmptyResponse extends AbstractHTTPResponse {
 
 	@Override
 	public void handle(HttpExchange exchange) throws IOException {
+		this.handle(new JDKTransportExchange(exchange));
+	}
+
+	@Override
+	public void handle(TransportExchange exchange) throws IOException {
 		exchange.sendResponseHeaders(code, -1);
 	}
 }
\ No newline at end of file
@@ -2,11 +2,19 @@ package net.novauniverse.apilib.http.response;
 
 import com.sun.net.httpserver.HttpExchange;
 import net.novauniverse.apilib.http.enums.HTTPResponseCode;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
+import net.novauniverse.apilib.http.utilities.ConditionalRequestUtilities;
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -18,6 +26,10 @@ public class JSONResponse extends AbstractHTTPResponse {
 	private final JSONContainer json;
 	private final int code;
 	private final int indentation;
+	private boolean streamed;
+	private String etag;
+	private boolean generateETag;
+	private long lastModified;
 
 	/* ---- JSONObject ---- */
 	/**
@@ -148,6 +160,10 @@ public class JSONResponse extends AbstractHTTPResponse {
 		this.json = json;
 		this.code = code;
 		this.indentation = indentation;
+		this.streamed = false;
+		this.etag = null;
+		this.generateETag = false;
+		this.lastModified = -1;
 	}
 
 	/**
@@ -175,11 +191,150 @@ public class JSONResponse extends AbstractHTTPResponse {
 		return json.stringify();
 	}
 
+	/**
+	 * Set if the JSON should be written straight to the connection with chunked
+	 * transfer instead of being converted to a string first. Use this for large
+	 * responses since the first bytes are sent right away and the text is never
+	 * held in memory. Small responses are faster to send with a known length
+	 *
+	 * @param streamed <code>true</code> to stream the response
+	 * @return this {@link JSONResponse} instance so that calls can be chained
+	 */
+	public JSONResponse setStreamed(boolean streamed) {
+		this.streamed = streamed;
+		return this;
+	}
+
+	/**
+	 * @return <code>true</code> if the response is streamed with chunked transfer
+	 */
+	public boolean isStreamed() {
+		return streamed;
+	}
+
+	/**
+	 * Set the <code>ETag</code> of this response. If the client already has this
+	 * version an empty <code>304 Not Modified</code> response is sent instead
+	 *
+	 * @param etag The <code>ETag</code> or a version token that will be quoted.
+	 *             <code>null</code> to not send one
+	 * @return this {@link JSONResponse} instance so that calls can be chained
+	 */
+	public JSONResponse setETag(String etag) {
+		this.etag = etag == null ? null : ConditionalRequestUtilities.toETag(etag);
+		return this;
+	}
+
+	/**
+	 * @return The quoted <code>ETag</code> or <code>null</code> if not set
+	 */
+	public String getETag() {
+		return etag;
+	}
+
+	/**
+	 * Set if an <code>ETag</code> should be computed from the encoded body when
+	 * none has been set. The body still has to be built, but it is not sent if the
+	 * client already has it
+	 *
+	 * @param generateETag <code>true</code> to compute an <code>ETag</code>
+	 * @return this {@link JSONResponse} instance so that calls can be chained
+	 */
+	public JSONResponse setGenerateETag(boolean generateETag) {
+		this.generateETag = generateETag;
+		return this;
+	}
+
+	/**
+	 * @return <code>true</code> if an <code>ETag</code> is computed from the body
+	 */
+	public boolean isGenerateETag() {
+		return generateETag;
+	}
+
+	/**
+	 * Set the time the content of this response last changed. Used for the
+	 * <code>Last-Modified</code> header and <code>If-Modified-Since</code>
+	 * requests
+	 *
+	 * @param lastModified The time in milliseconds since the epoch or -1 to not
+	 *                     send it
+	 * @return this {@link JSONResponse} instance so that calls can be chained
+	 */
+	public JSONResponse setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+		return this;
+	}
+
+	/**
+	 * @return The time the content last changed in milliseconds since the epoch
+	 *         or -1 if not set
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Write the {@link JSONObject} or {@link JSONArray} with the specified indent
+	 * without creating a string
+	 *
+	 * @param writer The {@link Writer} to write to
+	 * @throws IOException If the writer throws
+	 */
+	public void writeJSONText(Writer writer) throws IOException {
+		try {
+			json.write(writer, indentation);
+		} catch (JSONException e) {
+			// org.json wraps exceptions from the writer
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
 	@Override
 	public void handle(HttpExchange exchange) throws IOException {
-		exchange.getResponseHeaders().add("Content-type", "application/json; charset=utf-8");
+		this.handle(new JDKTransportExchange(exchange));
+	}
+
+	@Override
+	public void handle(TransportExchange exchange) throws IOException {
+		if (code == HTTPResponseCode.OK.getCode()) {
+			// Check before the body is built if the validators are already known
+			if ((etag != null || (lastModified >= 0 && !generateETag)) && ConditionalRequestUtilities.isNotModified(exchange, etag, lastModified)) {
+				ConditionalRequestUtilities.sendNotModified(exchange, etag, lastModified);
+				return;
+			}
+		}
+
+		if (streamed) {
+			// The body is never held in memory so no ETag can be computed
+			if (code == HTTPResponseCode.OK.getCode()) {
+				ConditionalRequestUtilities.setValidators(exchange, etag, lastModified);
+			}
+			exchange.addResponseHeader(HTTPHeaders.CONTENT_TYPE, "application/json; charset=utf-8");
+			// A length of 0 makes the transport use chunked transfer
+			exchange.sendResponseHeaders(code, 0);
+			try (Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 8192)) {
+				writeJSONText(writer);
+			}
+			return;
+		}
 		String response = getJSONText();
 		byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+		if (code == HTTPResponseCode.OK.getCode()) {
+			String tag = etag;
+			if (tag == null && generateETag) {
+				tag = ConditionalRequestUtilities.computeETag(bytes);
+				if (ConditionalRequestUtilities.isNotModified(exchange, tag, lastModified)) {
+					ConditionalRequestUtilities.sendNotModified(exchange, tag, lastModified);
+					return;
+				}
+			}
+			ConditionalRequestUtilities.setValidators(exchange, tag, lastModified);
+		}
+		exchange.addResponseHeader(HTTPHeaders.CONTENT_TYPE, "application/json; charset=utf-8");
 		exchange.sendResponseHeaders(code, bytes.length);
 		OutputStream stream = exchange.getResponseBody();
 		stream.write(bytes);
@@ -191,6 +346,8 @@ interface JSONContainer {
 	String stringify();
 
 	String stringify(int indentation);
+
+	void write(Writer writer, int indentation);
 }
 
 class JSONObjectContainer implements JSONContainer {
@@ -209,6 +366,11 @@ class JSONObjectContainer implements JSONContainer {
 	public String stringify(int indentation) {
 		return json.toString(indentation);
 	}
+
+	@Override
+	public void write(Writer writer, int indentation) {
+		json.write(writer, indentation, 0);
+	}
 }
 
 class JSONArrayContainer implements JSONContainer {
@@ -227,4 +389,9 @@ class JSONArrayContainer implements JSONContainer {
 	public String stringify(int indentation) {
 		return json.toString(indentation);
 	}
+
+	@Override
+	public void write(Writer writer, int indentation) {
+		json.write(writer, indentation, 0);
+	}
 }
\ No newline at end of file
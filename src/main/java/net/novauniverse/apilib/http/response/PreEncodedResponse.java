@@ -0,0 +1,74 @@
+package net.novauniverse.apilib.http.response;
+
+import com.sun.net.httpserver.HttpExchange;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A response with a body that has already been encoded. Nothing is serialized
+ * or encoded when it is sent, so a single instance can be shared and sent to
+ * any number of requests. The body array is not copied and must not be
+ * modified after the response has been created
+ *
+ * @author Zeeraa
+ */
+public class PreEncodedResponse extends AbstractHTTPResponse {
+	private final byte[] body;
+	private final int code;
+	private final String contentType;
+
+	/**
+	 * @param body        The encoded body
+	 * @param code        The http response code
+	 * @param contentType The value of the <code>Content-Type</code> header
+	 */
+	public PreEncodedResponse(byte[] body, int code, String contentType) {
+		this.body = body;
+		this.code = code;
+		this.contentType = contentType;
+	}
+
+	/**
+	 * @return The http response code
+	 */
+	public int getCode() {
+		return code;
+	}
+
+	/**
+	 * @return The value of the <code>Content-Type</code> header
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * @return The size of the body in bytes
+	 */
+	public int getLength() {
+		return body.length;
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		this.handle(new JDKTransportExchange(exchange));
+	}
+
+	@Override
+	public void handle(TransportExchange exchange) throws IOException {
+		exchange.addResponseHeader(HTTPHeaders.CONTENT_TYPE, contentType);
+		if (body.length == 0) {
+			// A length of 0 would mean chunked transfer
+			exchange.sendResponseHeaders(code, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(code, body.length);
+		OutputStream stream = exchange.getResponseBody();
+		stream.write(body);
+		stream.close();
+	}
+}
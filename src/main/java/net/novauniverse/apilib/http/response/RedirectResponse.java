@@ -2,6 +2,9 @@ package net.novauniverse.apilib.http.response;
 
 import com.sun.net.httpserver.HttpExchange;
 import net.novauniverse.apilib.http.enums.HTTPResponseCode;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
 
 import java.io.IOException;
 
@@ -51,7 +54,12 @@ public class RedirectResponse extends AbstractHTTPResponse {
 
 	@Override
 	public void handle(HttpExchange exchange) throws IOException {
-		exchange.getResponseHeaders().add("Location", target);
+		this.handle(new JDKTransportExchange(exchange));
+	}
+
+	@Override
+	public void handle(TransportExchange exchange) throws IOException {
+		exchange.addResponseHeader(HTTPHeaders.LOCATION, target);
 		exchange.sendResponseHeaders(type.getResponseCode().getCode(), -1);
 	}
 
@@ -2,6 +2,10 @@ package net.novauniverse.apilib.http.response;
 
 import com.sun.net.httpserver.HttpExchange;
 import net.novauniverse.apilib.http.enums.HTTPResponseCode;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
+import net.novauniverse.apilib.http.utilities.ConditionalRequestUtilities;
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -17,6 +21,9 @@ public class TextResponse extends AbstractHTTPResponse {
 	private final int code;
 
 	private final TextResponseMimeType mimeType;
+	private String etag;
+	private boolean generateETag;
+	private long lastModified;
 
 	/**
 	 * A text response with the default {@link HTTPResponseCode} of
@@ -80,6 +87,9 @@ public class TextResponse extends AbstractHTTPResponse {
 		this.response = text;
 		this.code = code;
 		this.mimeType = mimeType;
+		this.etag = null;
+		this.generateETag = false;
+		this.lastModified = -1;
 	}
 
 	/**
@@ -103,10 +113,96 @@ public class TextResponse extends AbstractHTTPResponse {
 		return mimeType;
 	}
 
+	/**
+	 * Set the <code>ETag</code> of this response. If the client already has this
+	 * version an empty <code>304 Not Modified</code> response is sent instead
+	 *
+	 * @param etag The <code>ETag</code> or a version token that will be quoted.
+	 *             <code>null</code> to not send one
+	 * @return this {@link TextResponse} instance so that calls can be chained
+	 */
+	public TextResponse setETag(String etag) {
+		this.etag = etag == null ? null : ConditionalRequestUtilities.toETag(etag);
+		return this;
+	}
+
+	/**
+	 * @return The quoted <code>ETag</code> or <code>null</code> if not set
+	 */
+	public String getETag() {
+		return etag;
+	}
+
+	/**
+	 * Set if an <code>ETag</code> should be computed from the encoded body when
+	 * none has been set. The body still has to be built, but it is not sent if the
+	 * client already has it
+	 *
+	 * @param generateETag <code>true</code> to compute an <code>ETag</code>
+	 * @return this {@link TextResponse} instance so that calls can be chained
+	 */
+	public TextResponse setGenerateETag(boolean generateETag) {
+		this.generateETag = generateETag;
+		return this;
+	}
+
+	/**
+	 * @return <code>true</code> if an <code>ETag</code> is computed from the body
+	 */
+	public boolean isGenerateETag() {
+		return generateETag;
+	}
+
+	/**
+	 * Set the time the content of this response last changed. Used for the
+	 * <code>Last-Modified</code> header and <code>If-Modified-Since</code>
+	 * requests
+	 *
+	 * @param lastModified The time in milliseconds since the epoch or -1 to not
+	 *                     send it
+	 * @return this {@link TextResponse} instance so that calls can be chained
+	 */
+	public TextResponse setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+		return this;
+	}
+
+	/**
+	 * @return The time the content last changed in milliseconds since the epoch
+	 *         or -1 if not set
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
 	@Override
 	public void handle(HttpExchange exchange) throws IOException {
-		exchange.getResponseHeaders().add("Content-type", mimeType.getMimeType() + "; charset=utf-8");
+		this.handle(new JDKTransportExchange(exchange));
+	}
+
+	@Override
+	public void handle(TransportExchange exchange) throws IOException {
+		if (code == HTTPResponseCode.OK.getCode()) {
+			// Check before the body is built if the validators are already known
+			if ((etag != null || (lastModified >= 0 && !generateETag)) && ConditionalRequestUtilities.isNotModified(exchange, etag, lastModified)) {
+				ConditionalRequestUtilities.sendNotModified(exchange, etag, lastModified);
+				return;
+			}
+		}
+
 		byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+		if (code == HTTPResponseCode.OK.getCode()) {
+			String tag = etag;
+			if (tag == null && generateETag) {
+				tag = ConditionalRequestUtilities.computeETag(bytes);
+				if (ConditionalRequestUtilities.isNotModified(exchange, tag, lastModified)) {
+					ConditionalRequestUtilities.sendNotModified(exchange, tag, lastModified);
+					return;
+				}
+			}
+			ConditionalRequestUtilities.setValidators(exchange, tag, lastModified);
+		}
+		exchange.addResponseHeader(HTTPHeaders.CONTENT_TYPE, mimeType.getMimeType() + "; charset=utf-8");
 		exchange.sendResponseHeaders(code, bytes.length);
 		OutputStream stream = exchange.getResponseBody();
 		stream.write(bytes);
@@ -0,0 +1,43 @@
+package net.novauniverse.apilib.http.routing;
+
+import java.util.Map;
+
+/**
+ * The result of a successful {@link Router#match(String)}
+ *
+ * @param <T> The type of the value stored in the {@link Router}
+ * @author Zeeraa
+ */
+public class RouteMatch<T> {
+	private final String pattern;
+	private final T value;
+	private final Map<String, String> pathParameters;
+
+	RouteMatch(String pattern, T value, Map<String, String> pathParameters) {
+		this.pattern = pattern;
+		this.value = value;
+		this.pathParameters = pathParameters;
+	}
+
+	/**
+	 * @return The pattern the route was registered with
+	 */
+	public String getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * @return The value of the matched route
+	 */
+	public T getValue() {
+		return value;
+	}
+
+	/**
+	 * @return Read only {@link Map} with the values of all <code>{param}</code>
+	 *         segments in the route
+	 */
+	public Map<String, String> getPathParameters() {
+		return pathParameters;
+	}
+}
@@ -0,0 +1,319 @@
+package net.novauniverse.apilib.http.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Radix tree that maps request paths to values. Routes can contain
+ * <code>{param}</code> segments like <code>/player/{id}/stats</code> that match
+ * any single path segment. The value of the segment is available from
+ * {@link RouteMatch#getPathParameters()}
+ * <p>
+ * Like {@link com.sun.net.httpserver.HttpServer} a route matches every path
+ * that starts with it, and the route matching the longest part of the path is
+ * used. Literal segments are preferred over parameters if both match the same
+ * length. The cost of a lookup depends on the length of the path and not on the
+ * number of routes
+ * <p>
+ * Lookups do not lock. Adding a route copies the nodes on its path and replaces
+ * the root, so lookups running at the same time see either the old or the new
+ * tree
+ *
+ * @param <T> The type of the stored values
+ * @author Zeeraa
+ */
+public class Router<T> {
+	/**
+	 * Marks a parameter in a compiled pattern. Can not be part of a literal since
+	 * it is not allowed in paths
+	 */
+	private static final char PARAMETER = '\0';
+
+	private volatile Node<T> root;
+	private volatile int size;
+
+	public Router() {
+		this.root = new Node<>("");
+		this.size = 0;
+	}
+
+	/**
+	 * Add a route
+	 *
+	 * @param pattern The path of the route. Can contain <code>{param}</code>
+	 *                segments
+	 * @param value   The value to return for paths matching the route
+	 * @throws IllegalArgumentException If the pattern is invalid or a route with
+	 *                                  the same pattern already exists
+	 */
+	public synchronized void add(String pattern, T value) {
+		if (pattern == null || pattern.isEmpty()) {
+			throw new IllegalArgumentException("pattern cant be empty");
+		}
+		if (value == null) {
+			throw new IllegalArgumentException("value cant be null");
+		}
+		List<String> parameterNames = new ArrayList<>();
+		String key = compile(pattern, parameterNames);
+		Route<T> route = new Route<>(pattern, value, parameterNames.toArray(new String[0]));
+		root = insert(root, key, 0, route);
+		size++;
+	}
+
+	/**
+	 * Find the route for a path
+	 *
+	 * @param path The decoded path of the request
+	 * @return The {@link RouteMatch} or <code>null</code> if no route matches
+	 */
+	public RouteMatch<T> match(String path) {
+		Search<T> search = new Search<>(path);
+		search(root, search, 0, 0);
+		if (search.route == null) {
+			return null;
+		}
+
+		Route<T> route = search.route;
+		Map<String, String> pathParameters;
+		if (route.parameterNames.length == 0) {
+			pathParameters = Collections.emptyMap();
+		} else if (route.parameterNames.length == 1) {
+			pathParameters = Collections.singletonMap(route.parameterNames[0], search.routeValues[0]);
+		} else {
+			Map<String, String> map = new HashMap<>();
+			for (int i = 0; i < route.parameterNames.length; i++) {
+				map.put(route.parameterNames[i], search.routeValues[i]);
+			}
+			pathParameters = Collections.unmodifiableMap(map);
+		}
+		return new RouteMatch<>(route.pattern, route.value, pathParameters);
+	}
+
+	/**
+	 * @return The number of routes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Replace every <code>{param}</code> segment with {@link Router#PARAMETER}
+	 */
+	private static String compile(String pattern, List<String> parameterNames) {
+		StringBuilder key = new StringBuilder(pattern.length());
+		int i = 0;
+		while (i < pattern.length()) {
+			char c = pattern.charAt(i);
+			if (c == PARAMETER || c == '}') {
+				throw new IllegalArgumentException("Invalid character at index " + i + " in " + pattern);
+			}
+			if (c != '{') {
+				key.append(c);
+				i++;
+				continue;
+			}
+
+			if (i > 0 && pattern.charAt(i - 1) != '/') {
+				throw new IllegalArgumentException("Path parameters need to be a full segment in " + pattern);
+			}
+			int end = pattern.indexOf('}', i);
+			if (end < 0) {
+				throw new IllegalArgumentException("Missing } in " + pattern);
+			}
+			String name = pattern.substring(i + 1, end);
+			if (name.isEmpty() || name.indexOf('/') >= 0 || name.indexOf('{') >= 0) {
+				throw new IllegalArgumentException("Invalid path parameter name " + name + " in " + pattern);
+			}
+			if (end + 1 < pattern.length() && pattern.charAt(end + 1) != '/') {
+				throw new IllegalArgumentException("Path parameters need to be a full segment in " + pattern);
+			}
+			if (parameterNames.contains(name)) {
+				throw new IllegalArgumentException("Duplicate path parameter " + name + " in " + pattern);
+			}
+			parameterNames.add(name);
+			key.append(PARAMETER);
+			i = end + 1;
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Insert a route below a node. The label of the node has already been matched
+	 * up until position
+	 *
+	 * @return A copy of the node containing the route
+	 */
+	private static <T> Node<T> insert(Node<T> node, String key, int position, Route<T> route) {
+		if (position == key.length()) {
+			if (node.route != null) {
+				throw new IllegalArgumentException("A route for " + route.pattern + " already exists");
+			}
+			return node.withRoute(route);
+		}
+
+		char c = key.charAt(position);
+		if (c == PARAMETER) {
+			Node<T> child = node.parameterChild == null ? new Node<>("") : node.parameterChild;
+			return node.withParameterChild(insert(child, key, position + 1, route));
+		}
+
+		int literalEnd = key.indexOf(PARAMETER, position);
+		if (literalEnd < 0) {
+			literalEnd = key.length();
+		}
+
+		int index = node.indexOf(c);
+		if (index < 0) {
+			Node<T> child = new Node<>(key.substring(position, literalEnd));
+			return node.withChild(insert(child, key, literalEnd, route));
+		}
+
+		Node<T> child = node.children[index];
+		String label = child.label;
+		int max = Math.min(label.length(), literalEnd - position);
+		int common = 0;
+		while (common < max && label.charAt(common) == key.charAt(position + common)) {
+			common++;
+		}
+		if (common < label.length()) {
+			// Split the child at the end of the shared prefix
+			child = new Node<T>(label.substring(0, common)).withChild(child.withLabel(label.substring(common)));
+		}
+		return node.withChild(index, insert(child, key, position + common, route));
+	}
+
+	private static <T> void search(Node<T> node, Search<T> search, int position, int depth) {
+		String path = search.path;
+		if (node.route != null && position > search.length) {
+			search.route = node.route;
+			search.length = position;
+			search.routeValues = depth == 0 ? null : Arrays.copyOf(search.values, depth);
+		}
+		if (position == path.length()) {
+			return;
+		}
+
+		int index = node.indexOf(path.charAt(position));
+		if (index >= 0) {
+			Node<T> child = node.children[index];
+			if (path.startsWith(child.label, position)) {
+				search(child, search, position + child.label.length(), depth);
+			}
+		}
+
+		// Only try the parameter if the literal did not match the full path
+		if (node.parameterChild != null && search.length < path.length()) {
+			int end = path.indexOf('/', position);
+			if (end < 0) {
+				end = path.length();
+			}
+			if (end > position) {
+				if (depth == search.values.length) {
+					search.values = Arrays.copyOf(search.values, depth * 2);
+				}
+				search.values[depth] = path.substring(position, end);
+				search(node.parameterChild, search, end, depth + 1);
+			}
+		}
+	}
+
+	private static final class Route<T> {
+		private final String pattern;
+		private final T value;
+		private final String[] parameterNames;
+
+		private Route(String pattern, T value, String[] parameterNames) {
+			this.pattern = pattern;
+			this.value = value;
+			this.parameterNames = parameterNames;
+		}
+	}
+
+	/**
+	 * Immutable tree node. The children are sorted by the first character of their
+	 * label
+	 */
+	private static final class Node<T> {
+		private static final char[] NO_INDICES = new char[0];
+
+		private final String label;
+		private final char[] indices;
+		private final Node<T>[] children;
+		private final Node<T> parameterChild;
+		private final Route<T> route;
+
+		private Node(String label) {
+			this(label, NO_INDICES, newArray(0), null, null);
+		}
+
+		private Node(String label, char[] indices, Node<T>[] children, Node<T> parameterChild, Route<T> route) {
+			this.label = label;
+			this.indices = indices;
+			this.children = children;
+			this.parameterChild = parameterChild;
+			this.route = route;
+		}
+
+		private int indexOf(char c) {
+			int index = Arrays.binarySearch(indices, c);
+			return index < 0 ? -1 : index;
+		}
+
+		private Node<T> withLabel(String label) {
+			return new Node<>(label, indices, children, parameterChild, route);
+		}
+
+		private Node<T> withRoute(Route<T> route) {
+			return new Node<>(label, indices, children, parameterChild, route);
+		}
+
+		private Node<T> withParameterChild(Node<T> parameterChild) {
+			return new Node<>(label, indices, children, parameterChild, route);
+		}
+
+		private Node<T> withChild(int index, Node<T> child) {
+			Node<T>[] newChildren = children.clone();
+			newChildren[index] = child;
+			return new Node<>(label, indices, newChildren, parameterChild, route);
+		}
+
+		private Node<T> withChild(Node<T> child) {
+			char c = child.label.charAt(0);
+			int index = -(Arrays.binarySearch(indices, c) + 1);
+			char[] newIndices = new char[indices.length + 1];
+			Node<T>[] newChildren = newArray(children.length + 1);
+			System.arraycopy(indices, 0, newIndices, 0, index);
+			System.arraycopy(children, 0, newChildren, 0, index);
+			newIndices[index] = c;
+			newChildren[index] = child;
+			System.arraycopy(indices, index, newIndices, index + 1, indices.length - index);
+			System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+			return new Node<>(label, newIndices, newChildren, parameterChild, route);
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private static <T> Node<T>[] newArray(int length) {
+			return (Node<T>[]) new Node[length];
+		}
+	}
+
+	private static final class Search<T> {
+		private final String path;
+		private String[] values;
+		private Route<T> route;
+		private String[] routeValues;
+		private int length;
+
+		private Search(String path) {
+			this.path = path;
+			this.values = new String[4];
+			this.route = null;
+			this.routeValues = null;
+			this.length = -1;
+		}
+	}
+}
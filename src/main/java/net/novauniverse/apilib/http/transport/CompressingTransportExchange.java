@@ -0,0 +1,229 @@
+package net.novauniverse.apilib.http.transport;
+
+import com.sun.net.httpserver.HttpExchange;
+import net.novauniverse.apilib.http.transport.jdk.JDKTransportExchange;
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link TransportExchange} that compresses the response body with
+ * <code>gzip</code> or <code>deflate</code> if the client accepts it. The
+ * decision is made when the headers are sent: responses smaller than the
+ * threshold, responses without a body, responses that already have a
+ * <code>Content-Encoding</code> and content types that are already compressed
+ * are sent as they are. Compressed responses are sent with chunked transfer and
+ * the body is compressed while it is written
+ *
+ * @author Zeeraa
+ */
+public class CompressingTransportExchange extends FilterTransportExchange {
+	public static final int DEFAULT_THRESHOLD = 1024;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final String encoding;
+	private final int level;
+	private final int threshold;
+	private OutputStream responseBody;
+
+	/**
+	 * @param exchange  The {@link TransportExchange} to wrap
+	 * @param level     The compression level from 1 to 9 or -1 for the default
+	 *                  level
+	 * @param threshold The min size in bytes of responses to compress. Responses
+	 *                  with an unknown length are always compressed
+	 */
+	public CompressingTransportExchange(TransportExchange exchange, int level, int threshold) {
+		super(exchange);
+		if (level < -1 || level > 9) {
+			throw new IllegalArgumentException("level has to be between -1 and 9");
+		}
+		if (threshold < 0) {
+			throw new IllegalArgumentException("threshold cant be less than 0");
+		}
+		String acceptEncoding = exchange.getFirstRequestHeader(HTTPHeaders.ACCEPT_ENCODING);
+		this.encoding = acceptEncoding == null ? null : negotiate(acceptEncoding);
+		this.level = level;
+		this.threshold = threshold;
+		this.responseBody = null;
+	}
+
+	/**
+	 * @return The encoding that will be used for compressible responses or
+	 *         <code>null</code> if the client does not accept any supported
+	 *         encoding
+	 */
+	public String getEncoding() {
+		return encoding;
+	}
+
+	@Override
+	public void sendResponseHeaders(int code, long length) throws IOException {
+		if (!shouldCompress(code, length)) {
+			exchange.sendResponseHeaders(code, length);
+			return;
+		}
+
+		// The response depends on Accept-Encoding even if this client gets it
+		// uncompressed
+		exchange.addResponseHeader(HTTPHeaders.VARY, HTTPHeaders.ACCEPT_ENCODING);
+		if (encoding == null) {
+			exchange.sendResponseHeaders(code, length);
+			return;
+		}
+
+		exchange.setResponseHeader(HTTPHeaders.CONTENT_ENCODING, encoding);
+		String etag = exchange.getFirstResponseHeader(HTTPHeaders.ETAG);
+		if (etag != null && etag.startsWith("\"")) {
+			// The compressed bytes differ from the ones the strong tag was made for
+			exchange.setResponseHeader(HTTPHeaders.ETAG, "W/" + etag);
+		}
+		exchange.sendResponseHeaders(code, 0);
+		OutputStream out = exchange.getResponseBody();
+		if (encoding.equals("gzip")) {
+			responseBody = new GZIPOutputStream(out, BUFFER_SIZE) {
+				{
+					def.setLevel(level);
+				}
+			};
+		} else {
+			Deflater deflater = new Deflater(level);
+			responseBody = new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						deflater.end();
+					}
+				}
+			};
+		}
+		HttpExchange httpExchange = JDKTransportExchange.unwrap(exchange);
+		if (httpExchange != null) {
+			// Code writing to the HttpExchange directly should also be compressed
+			httpExchange.setStreams(null, responseBody);
+		}
+	}
+
+	@Override
+	public OutputStream getResponseBody() {
+		if (responseBody != null) {
+			return responseBody;
+		}
+		return exchange.getResponseBody();
+	}
+
+	@Override
+	public void close() {
+		if (responseBody != null) {
+			// Writes the end of the compressed stream for code that closes the exchange
+			// without closing the body first
+			try {
+				responseBody.close();
+			} catch (IOException ignored) {
+			}
+		}
+		exchange.close();
+	}
+
+	private boolean shouldCompress(int code, long length) {
+		if (length < 0 || (length > 0 && length < threshold)) {
+			return false;
+		}
+		if (code < 200 || code == 204 || code == 206 || code == 304) {
+			return false;
+		}
+		if (exchange.getRequestMethod().equals("HEAD")) {
+			return false;
+		}
+		if (exchange.getFirstResponseHeader(HTTPHeaders.CONTENT_ENCODING) != null) {
+			return false;
+		}
+		String contentType = exchange.getFirstResponseHeader(HTTPHeaders.CONTENT_TYPE);
+		return contentType != null && isCompressible(contentType);
+	}
+
+	/**
+	 * Check if a content type is worth compressing. Images, video, audio and
+	 * archives are already compressed
+	 *
+	 * @param contentType The value of the <code>Content-Type</code> header
+	 * @return <code>true</code> if the content type is text based
+	 */
+	public static boolean isCompressible(String contentType) {
+		int end = contentType.indexOf(';');
+		String type = (end < 0 ? contentType : contentType.substring(0, end)).trim().toLowerCase();
+		if (type.startsWith("text/")) {
+			return true;
+		}
+		return type.endsWith("json") || type.endsWith("xml") || type.endsWith("javascript") || type.equals("application/x-www-form-urlencoded");
+	}
+
+	/**
+	 * Pick the encoding to use from an <code>Accept-Encoding</code> header.
+	 * <code>gzip</code> is preferred over <code>deflate</code> if both have the
+	 * same quality
+	 *
+	 * @param acceptEncoding The value of the <code>Accept-Encoding</code> header
+	 * @return <code>gzip</code>, <code>deflate</code> or <code>null</code> if
+	 *         neither is accepted
+	 */
+	public static String negotiate(String acceptEncoding) {
+		double gzip = -1;
+		double deflate = -1;
+		double wildcard = -1;
+		int start = 0;
+		int length = acceptEncoding.length();
+		while (start < length) {
+			int end = acceptEncoding.indexOf(',', start);
+			if (end < 0) {
+				end = length;
+			}
+			int parameters = acceptEncoding.indexOf(';', start);
+			int nameEnd = parameters < 0 || parameters > end ? end : parameters;
+			String name = acceptEncoding.substring(start, nameEnd).trim();
+			double quality = nameEnd == end ? 1 : parseQuality(acceptEncoding.substring(nameEnd + 1, end));
+			if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+				gzip = Math.max(gzip, quality);
+			} else if (name.equalsIgnoreCase("deflate")) {
+				deflate = Math.max(deflate, quality);
+			} else if (name.equals("*")) {
+				wildcard = quality;
+			}
+			start = end + 1;
+		}
+		if (gzip < 0) {
+			gzip = wildcard;
+		}
+		if (deflate < 0) {
+			deflate = wildcard;
+		}
+		if (gzip > 0 && gzip >= deflate) {
+			return "gzip";
+		}
+		if (deflate > 0) {
+			return "deflate";
+		}
+		return null;
+	}
+
+	private static double parseQuality(String parameters) {
+		for (String parameter : parameters.split(";")) {
+			parameter = parameter.trim();
+			if (parameter.length() > 2 && (parameter.charAt(0) == 'q' || parameter.charAt(0) == 'Q') && parameter.charAt(1) == '=') {
+				try {
+					return Double.parseDouble(parameter.substring(2).trim());
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+}
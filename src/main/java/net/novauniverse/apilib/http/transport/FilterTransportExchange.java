@@ -0,0 +1,120 @@
+package net.novauniverse.apilib.http.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link TransportExchange} that passes all calls to another exchange.
+ * Subclasses can override single methods to wrap the request or response
+ * streams in the same way as a {@link com.sun.net.httpserver.Filter}
+ *
+ * @author Zeeraa
+ */
+public class FilterTransportExchange implements TransportExchange {
+	protected final TransportExchange exchange;
+
+	public FilterTransportExchange(TransportExchange exchange) {
+		this.exchange = exchange;
+	}
+
+	/**
+	 * @return The wrapped {@link TransportExchange}
+	 */
+	public TransportExchange getExchange() {
+		return exchange;
+	}
+
+	/**
+	 * Get the innermost exchange behind any number of
+	 * {@link FilterTransportExchange}s
+	 *
+	 * @param exchange The {@link TransportExchange}
+	 * @return The exchange created by the {@link HTTPTransport}
+	 */
+	public static TransportExchange getOriginal(TransportExchange exchange) {
+		while (exchange instanceof FilterTransportExchange) {
+			exchange = ((FilterTransportExchange) exchange).getExchange();
+		}
+		return exchange;
+	}
+
+	@Override
+	public String getRequestMethod() {
+		return exchange.getRequestMethod();
+	}
+
+	@Override
+	public URI getRequestURI() {
+		return exchange.getRequestURI();
+	}
+
+	@Override
+	public String getProtocol() {
+		return exchange.getProtocol();
+	}
+
+	@Override
+	public Map<String, List<String>> getRequestHeaders() {
+		return exchange.getRequestHeaders();
+	}
+
+	@Override
+	public Map<String, List<String>> getResponseHeaders() {
+		return exchange.getResponseHeaders();
+	}
+
+	@Override
+	public String getFirstRequestHeader(String name) {
+		return exchange.getFirstRequestHeader(name);
+	}
+
+	@Override
+	public String getFirstResponseHeader(String name) {
+		return exchange.getFirstResponseHeader(name);
+	}
+
+	@Override
+	public void addResponseHeader(String name, String value) {
+		exchange.addResponseHeader(name, value);
+	}
+
+	@Override
+	public void setResponseHeader(String name, String value) {
+		exchange.setResponseHeader(name, value);
+	}
+
+	@Override
+	public InputStream getRequestBody() {
+		return exchange.getRequestBody();
+	}
+
+	@Override
+	public void sendResponseHeaders(int code, long length) throws IOException {
+		exchange.sendResponseHeaders(code, length);
+	}
+
+	@Override
+	public OutputStream getResponseBody() {
+		return exchange.getResponseBody();
+	}
+
+	@Override
+	public InetSocketAddress getRemoteAddress() {
+		return exchange.getRemoteAddress();
+	}
+
+	@Override
+	public InetSocketAddress getLocalAddress() {
+		return exchange.getLocalAddress();
+	}
+
+	@Override
+	public void close() {
+		exchange.close();
+	}
+}
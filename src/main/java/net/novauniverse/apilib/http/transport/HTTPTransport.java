@@ -0,0 +1,75 @@
+package net.novauniverse.apilib.http.transport;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * A http engine that accepts connections, parses requests and passes them to a
+ * {@link TransportHandler}. The {@link net.novauniverse.apilib.http.HTTPServer}
+ * creates one transport for each address it listens on using a
+ * {@link HTTPTransportFactory}
+ *
+ * @author Zeeraa
+ */
+public interface HTTPTransport {
+	/**
+	 * Bind to an address. Called once before
+	 * {@link HTTPTransport#start(TransportHandler)}
+	 *
+	 * @param address The address to listen on
+	 * @param backlog The accept backlog or 0 to use the system default
+	 * @throws IOException   If the address is invalid
+	 * @throws BindException If the port is already in use
+	 */
+	void bind(InetSocketAddress address, int backlog) throws IOException, BindException;
+
+	/**
+	 * Set the {@link Executor} handlers should run on. Called before
+	 * {@link HTTPTransport#start(TransportHandler)}
+	 *
+	 * @param executor The {@link Executor} or <code>null</code> to let the
+	 *                 transport decide
+	 */
+	void setExecutor(Executor executor);
+
+	/**
+	 * Set the {@link Consumer} that receives exceptions the transport catches
+	 * outside of the handlers. Called before
+	 * {@link HTTPTransport#start(TransportHandler)}
+	 *
+	 * @param exceptionHandler The {@link Consumer} or <code>null</code> to ignore
+	 *                         the exceptions
+	 */
+	void setExceptionHandler(Consumer<Exception> exceptionHandler);
+
+	/**
+	 * Start accepting requests
+	 *
+	 * @param handler The {@link TransportHandler} that handles every request
+	 */
+	void start(TransportHandler handler);
+
+	/**
+	 * Close the listening socket so no new connections are accepted. Connections
+	 * that are already open keep working until
+	 * {@link HTTPTransport#stop(int)} is called. Transports that can not close the
+	 * listener on its own keep accepting until they are stopped
+	 */
+	void stopAccepting();
+
+	/**
+	 * Stop accepting requests and close all connections
+	 *
+	 * @param delay The max time in seconds to wait for exchanges to finish
+	 */
+	void stop(int delay);
+
+	/**
+	 * @return The address this transport is bound to or <code>null</code> if not
+	 *         bound
+	 */
+	InetSocketAddress getAddress();
+}
@@ -0,0 +1,18 @@
+package net.novauniverse.apilib.http.transport;
+
+import java.io.IOException;
+
+/**
+ * Creates {@link HTTPTransport}s for the
+ * {@link net.novauniverse.apilib.http.HTTPServer}
+ *
+ * @author Zeeraa
+ */
+@FunctionalInterface
+public interface HTTPTransportFactory {
+	/**
+	 * @return A new unbound {@link HTTPTransport}
+	 * @throws IOException If the transport could not be created
+	 */
+	HTTPTransport create() throws IOException;
+}
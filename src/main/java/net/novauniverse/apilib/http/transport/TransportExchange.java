@@ -0,0 +1,172 @@
+package net.novauniverse.apilib.http.transport;
+
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single request and response pair handed to the
+ * {@link net.novauniverse.apilib.http.HTTPServer} by a {@link HTTPTransport}.
+ * This is what the request pipeline uses instead of
+ * {@link com.sun.net.httpserver.HttpExchange} so that it can run on other http
+ * engines
+ *
+ * @author Zeeraa
+ */
+public interface TransportExchange {
+	/**
+	 * @return The method from the request line, for example <code>GET</code>
+	 */
+	String getRequestMethod();
+
+	/**
+	 * @return The {@link URI} from the request line
+	 */
+	URI getRequestURI();
+
+	/**
+	 * @return The protocol from the request line, for example
+	 *         <code>HTTP/1.1</code>
+	 */
+	String getProtocol();
+
+	/**
+	 * @return The request headers. Lookups are case insensitive. The map should
+	 *         not be modified
+	 */
+	Map<String, List<String>> getRequestHeaders();
+
+	/**
+	 * @return The response headers. Lookups are case insensitive. Changes have
+	 *         to be made before {@link TransportExchange#sendResponseHeaders(int, long)}
+	 *         is called
+	 */
+	Map<String, List<String>> getResponseHeaders();
+
+	/**
+	 * Get the first value of a request header
+	 *
+	 * @param name The case insensitive name of the header
+	 * @return The value or <code>null</code> if the header was not sent
+	 */
+	default String getFirstRequestHeader(String name) {
+		List<String> values = getRequestHeaders().get(name);
+		if (values == null || values.isEmpty()) {
+			return null;
+		}
+		return values.get(0);
+	}
+
+	/**
+	 * @return The value of the <code>Content-Length</code> request header or -1
+	 *         if it is not present or invalid
+	 */
+	default long getRequestContentLength() {
+		String value = getFirstRequestHeader(HTTPHeaders.CONTENT_LENGTH);
+		if (value == null) {
+			return -1;
+		}
+		try {
+			return Math.max(-1, Long.parseLong(value.trim()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Get the first value of a response header
+	 *
+	 * @param name The case insensitive name of the header
+	 * @return The value or <code>null</code> if the header has not been set
+	 */
+	default String getFirstResponseHeader(String name) {
+		List<String> values = getResponseHeaders().get(name);
+		if (values == null || values.isEmpty()) {
+			return null;
+		}
+		return values.get(0);
+	}
+
+	/**
+	 * Add a value to a response header
+	 *
+	 * @param name  The name of the header
+	 * @param value The value to add
+	 */
+	default void addResponseHeader(String name, String value) {
+		getResponseHeaders().computeIfAbsent(name, key -> new ArrayList<>(1)).add(value);
+	}
+
+	/**
+	 * Replace all values of a response header
+	 *
+	 * @param name  The name of the header
+	 * @param value The new value
+	 */
+	default void setResponseHeader(String name, String value) {
+		List<String> values = new ArrayList<>(1);
+		values.add(value);
+		getResponseHeaders().put(name, values);
+	}
+
+	/**
+	 * @return The {@link InputStream} of the request body
+	 */
+	InputStream getRequestBody();
+
+	/**
+	 * @return The request body as a {@link ReadableByteChannel}
+	 */
+	default ReadableByteChannel getRequestBodyChannel() {
+		return Channels.newChannel(getRequestBody());
+	}
+
+	/**
+	 * Send the status line and the response headers. This follows the same rules
+	 * as {@link com.sun.net.httpserver.HttpExchange#sendResponseHeaders(int, long)}
+	 *
+	 * @param code   The http response code
+	 * @param length The length of the body, 0 to use chunked encoding for a body
+	 *               of unknown length or -1 if there is no body
+	 * @throws IOException If the headers could not be sent
+	 */
+	void sendResponseHeaders(int code, long length) throws IOException;
+
+	/**
+	 * @return The {@link OutputStream} to write the response body to. Closing it
+	 *         finishes the exchange
+	 */
+	OutputStream getResponseBody();
+
+	/**
+	 * @return The response body as a {@link WritableByteChannel}
+	 */
+	default WritableByteChannel getResponseBodyChannel() {
+		return Channels.newChannel(getResponseBody());
+	}
+
+	/**
+	 * @return The address of the client
+	 */
+	InetSocketAddress getRemoteAddress();
+
+	/**
+	 * @return The local address the request was received on
+	 */
+	InetSocketAddress getLocalAddress();
+
+	/**
+	 * Finish the exchange. This closes the request and response streams
+	 */
+	void close();
+}
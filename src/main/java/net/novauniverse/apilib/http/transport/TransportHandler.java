@@ -0,0 +1,37 @@
+package net.novauniverse.apilib.http.transport;
+
+import net.novauniverse.apilib.http.enums.HTTPResponseCode;
+import net.novauniverse.apilib.http.utilities.HTTPHeaders;
+
+import java.io.IOException;
+
+/**
+ * Handles {@link TransportExchange}s received by a {@link HTTPTransport}
+ *
+ * @author Zeeraa
+ */
+@FunctionalInterface
+public interface TransportHandler {
+	/**
+	 * Handle a request and send the response
+	 *
+	 * @param exchange The {@link TransportExchange}
+	 * @throws IOException If the response could not be sent
+	 */
+	void handle(TransportExchange exchange) throws IOException;
+
+	/**
+	 * Answer a request the executor had no room for. Called on the thread of the
+	 * transport so it must not read the request body or block. The default sends
+	 * an empty {@link HTTPResponseCode#SERVICE_UNAVAILABLE} response and closes the
+	 * connection
+	 *
+	 * @param exchange The {@link TransportExchange}
+	 * @throws IOException If the response could not be sent
+	 */
+	default void reject(TransportExchange exchange) throws IOException {
+		exchange.setResponseHeader(HTTPHeaders.CONNECTION, "close");
+		exchange.sendResponseHeaders(HTTPResponseCode.SERVICE_UNAVAILABLE.getCode(), -1);
+		exchange.getResponseBody().close();
+	}
+}
@@ -0,0 +1,110 @@
+package net.novauniverse.apilib.http.transport.jdk;
+
+import com.sun.net.httpserver.HttpServer;
+import net.novauniverse.apilib.http.transport.HTTPTransport;
+import net.novauniverse.apilib.http.transport.TransportHandler;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * The default {@link HTTPTransport} using the
+ * {@link com.sun.net.httpserver.HttpServer} included in the jdk
+ *
+ * @author Zeeraa
+ */
+public class JDKTransport implements HTTPTransport {
+	private final HttpServer httpServer;
+	private InetSocketAddress address;
+	private Executor executor;
+
+	public JDKTransport() throws IOException {
+		this.httpServer = HttpServer.create();
+		this.address = null;
+		this.executor = null;
+	}
+
+	/**
+	 * @return The underlying {@link com.sun.net.httpserver.HttpServer}
+	 */
+	public HttpServer getHttpServer() {
+		return httpServer;
+	}
+
+	@Override
+	public void bind(InetSocketAddress address, int backlog) throws IOException, BindException {
+		httpServer.bind(address, backlog);
+		this.address = address;
+	}
+
+	@Override
+	public void setExecutor(Executor executor) {
+		// The HttpServer keeps running handlers on its dispatcher thread, which passes
+		// the exchanges on to the executor itself so rejected requests can be answered
+		this.executor = executor;
+	}
+
+	@Override
+	public void setExceptionHandler(Consumer<Exception> exceptionHandler) {
+		// Errors inside the jdk server are handled by the server itself
+	}
+
+	@Override
+	public void start(TransportHandler handler) {
+		httpServer.createContext("/", exchange -> dispatch(handler, new JDKTransportExchange(exchange)));
+		httpServer.start();
+	}
+
+	/**
+	 * Run the handler on the executor. Called on the dispatcher thread of the
+	 * HttpServer which also accepts connections, so requests the executor has no
+	 * room for are rejected instead of being handled on it
+	 */
+	private void dispatch(TransportHandler handler, JDKTransportExchange exchange) throws IOException {
+		if (executor == null) {
+			handler.handle(exchange);
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					handler.handle(exchange);
+				} catch (IOException | RuntimeException e) {
+					// Same as the HttpServer does for exceptions thrown by handlers
+					exchange.close();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			try {
+				handler.reject(exchange);
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+
+	/**
+	 * Does nothing since {@link HttpServer} can only close the listener as part of
+	 * {@link HttpServer#stop(int)}. Requests received while the
+	 * {@link net.novauniverse.apilib.http.HTTPServer} drains are answered with
+	 * <code>503 Service Unavailable</code> and <code>Connection: close</code>
+	 * until {@link JDKTransport#stop(int)} is called
+	 */
+	@Override
+	public void stopAccepting() {
+	}
+
+	@Override
+	public void stop(int delay) {
+		httpServer.stop(delay);
+	}
+
+	@Override
+	public InetSocketAddress getAddress() {
+		return address;
+	}
+}
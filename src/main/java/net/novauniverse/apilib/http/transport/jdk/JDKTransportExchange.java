@@ -0,0 +1,127 @@
+package net.novauniverse.apilib.http.transport.jdk;
+
+import com.sun.net.httpserver.HttpExchange;
+import net.novauniverse.apilib.http.transport.FilterTransportExchange;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import net.novauniverse.apilib.http.utilities.HeaderUtilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link TransportExchange} backed by a
+ * {@link com.sun.net.httpserver.HttpExchange}
+ *
+ * @author Zeeraa
+ */
+public class JDKTransportExchange implements TransportExchange {
+	private final HttpExchange exchange;
+
+	public JDKTransportExchange(HttpExchange exchange) {
+		this.exchange = exchange;
+	}
+
+	/**
+	 * @return The underlying {@link com.sun.net.httpserver.HttpExchange}
+	 */
+	public HttpExchange getHttpExchange() {
+		return exchange;
+	}
+
+	/**
+	 * Get the {@link com.sun.net.httpserver.HttpExchange} behind a
+	 * {@link TransportExchange}. Looks through any
+	 * {@link FilterTransportExchange}s
+	 *
+	 * @param exchange The {@link TransportExchange}
+	 * @return The {@link com.sun.net.httpserver.HttpExchange} or <code>null</code>
+	 *         if the exchange is not from a {@link JDKTransport}
+	 */
+	public static HttpExchange unwrap(TransportExchange exchange) {
+		exchange = FilterTransportExchange.getOriginal(exchange);
+		if (exchange instanceof JDKTransportExchange) {
+			return ((JDKTransportExchange) exchange).getHttpExchange();
+		}
+		return null;
+	}
+
+	@Override
+	public String getRequestMethod() {
+		return exchange.getRequestMethod();
+	}
+
+	@Override
+	public URI getRequestURI() {
+		return exchange.getRequestURI();
+	}
+
+	@Override
+	public String getProtocol() {
+		return exchange.getProtocol();
+	}
+
+	@Override
+	public Map<String, List<String>> getRequestHeaders() {
+		return exchange.getRequestHeaders();
+	}
+
+	@Override
+	public Map<String, List<String>> getResponseHeaders() {
+		return exchange.getResponseHeaders();
+	}
+
+	@Override
+	public String getFirstRequestHeader(String name) {
+		return HeaderUtilities.getFirst(exchange.getRequestHeaders(), name);
+	}
+
+	@Override
+	public String getFirstResponseHeader(String name) {
+		return HeaderUtilities.getFirst(exchange.getResponseHeaders(), name);
+	}
+
+	@Override
+	public void addResponseHeader(String name, String value) {
+		exchange.getResponseHeaders().add(name, value);
+	}
+
+	@Override
+	public void setResponseHeader(String name, String value) {
+		exchange.getResponseHeaders().set(name, value);
+	}
+
+	@Override
+	public InputStream getRequestBody() {
+		return exchange.getRequestBody();
+	}
+
+	@Override
+	public void sendResponseHeaders(int code, long length) throws IOException {
+		exchange.sendResponseHeaders(code, length);
+	}
+
+	@Override
+	public OutputStream getResponseBody() {
+		return exchange.getResponseBody();
+	}
+
+	@Override
+	public InetSocketAddress getRemoteAddress() {
+		return exchange.getRemoteAddress();
+	}
+
+	@Override
+	public InetSocketAddress getLocalAddress() {
+		return exchange.getLocalAddress();
+	}
+
+	@Override
+	public void close() {
+		exchange.close();
+	}
+}
@@ -0,0 +1,292 @@
+package net.novauniverse.apilib.http.transport.jdk;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link com.sun.net.httpserver.HttpExchange} backed by a
+ * {@link TransportExchange}. Used to pass exchanges to responses and body
+ * parsers that only implement the {@link com.sun.net.httpserver.HttpExchange}
+ * methods. Everything goes through the {@link TransportExchange} so wrappers
+ * like compression and response caching keep working and the code runs on
+ * every transport
+ *
+ * @author Zeeraa
+ */
+public class TransportHttpExchange extends HttpExchange {
+	private final TransportExchange exchange;
+	private final HttpExchange original;
+	private final Headers requestHeaders;
+	private final Headers responseHeaders;
+	private final Map<String, Object> attributes;
+	private InputStream requestBody;
+	private OutputStream responseBody;
+	private int responseCode;
+
+	private TransportHttpExchange(TransportExchange exchange) {
+		this.exchange = exchange;
+		this.original = JDKTransportExchange.unwrap(exchange);
+		this.requestHeaders = new TransportHeaders(exchange, false);
+		this.responseHeaders = new TransportHeaders(exchange, true);
+		this.attributes = new ConcurrentHashMap<>();
+		this.requestBody = null;
+		this.responseBody = null;
+		this.responseCode = -1;
+	}
+
+	/**
+	 * Get a {@link com.sun.net.httpserver.HttpExchange} for a
+	 * {@link TransportExchange}. The original exchange is returned if the
+	 * {@link TransportExchange} is a {@link JDKTransportExchange} that is not
+	 * wrapped
+	 *
+	 * @param exchange The {@link TransportExchange}
+	 * @return The {@link com.sun.net.httpserver.HttpExchange}
+	 */
+	public static HttpExchange of(TransportExchange exchange) {
+		if (exchange instanceof JDKTransportExchange) {
+			return ((JDKTransportExchange) exchange).getHttpExchange();
+		}
+		return new TransportHttpExchange(exchange);
+	}
+
+	/**
+	 * @return The {@link TransportExchange} this exchange writes to
+	 */
+	public TransportExchange getTransportExchange() {
+		return exchange;
+	}
+
+	@Override
+	public Headers getRequestHeaders() {
+		return requestHeaders;
+	}
+
+	@Override
+	public Headers getResponseHeaders() {
+		return responseHeaders;
+	}
+
+	@Override
+	public URI getRequestURI() {
+		return exchange.getRequestURI();
+	}
+
+	@Override
+	public String getRequestMethod() {
+		return exchange.getRequestMethod();
+	}
+
+	/**
+	 * @return The {@link HttpContext} of the original exchange
+	 * @throws UnsupportedOperationException If the request was not received by
+	 *                                       the {@link JDKTransport}
+	 */
+	@Override
+	public HttpContext getHttpContext() {
+		if (original == null) {
+			throw new UnsupportedOperationException("The request was not received by a JDKTransport");
+		}
+		return original.getHttpContext();
+	}
+
+	@Override
+	public void close() {
+		exchange.close();
+	}
+
+	@Override
+	public InputStream getRequestBody() {
+		return requestBody == null ? exchange.getRequestBody() : requestBody;
+	}
+
+	@Override
+	public OutputStream getResponseBody() {
+		return responseBody == null ? exchange.getResponseBody() : responseBody;
+	}
+
+	@Override
+	public void sendResponseHeaders(int code, long length) throws IOException {
+		exchange.sendResponseHeaders(code, length);
+		responseCode = code;
+	}
+
+	@Override
+	public InetSocketAddress getRemoteAddress() {
+		return exchange.getRemoteAddress();
+	}
+
+	@Override
+	public int getResponseCode() {
+		return responseCode;
+	}
+
+	@Override
+	public InetSocketAddress getLocalAddress() {
+		return exchange.getLocalAddress();
+	}
+
+	@Override
+	public String getProtocol() {
+		return exchange.getProtocol();
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		return original == null ? attributes.get(name) : original.getAttribute(name);
+	}
+
+	@Override
+	public void setAttribute(String name, Object value) {
+		if (original != null) {
+			original.setAttribute(name, value);
+		} else if (value == null) {
+			attributes.remove(name);
+		} else {
+			attributes.put(name, value);
+		}
+	}
+
+	@Override
+	public void setStreams(InputStream requestBody, OutputStream responseBody) {
+		if (requestBody != null) {
+			this.requestBody = requestBody;
+		}
+		if (responseBody != null) {
+			this.responseBody = responseBody;
+		}
+	}
+
+	@Override
+	public HttpPrincipal getPrincipal() {
+		return original == null ? null : original.getPrincipal();
+	}
+
+	/**
+	 * {@link Headers} that read and write the headers of a
+	 * {@link TransportExchange} instead of keeping their own copy
+	 */
+	private static class TransportHeaders extends Headers {
+		private final TransportExchange exchange;
+		private final boolean response;
+
+		private TransportHeaders(TransportExchange exchange, boolean response) {
+			this.exchange = exchange;
+			this.response = response;
+		}
+
+		private Map<String, List<String>> map() {
+			return response ? exchange.getResponseHeaders() : exchange.getRequestHeaders();
+		}
+
+		@Override
+		public int size() {
+			return map().size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return map().isEmpty();
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return map().containsKey(key);
+		}
+
+		@Override
+		public boolean containsValue(Object value) {
+			return map().containsValue(value);
+		}
+
+		@Override
+		public List<String> get(Object key) {
+			return map().get(key);
+		}
+
+		@Override
+		public String getFirst(String key) {
+			return response ? exchange.getFirstResponseHeader(key) : exchange.getFirstRequestHeader(key);
+		}
+
+		@Override
+		public List<String> put(String key, List<String> value) {
+			return map().put(key, value);
+		}
+
+		@Override
+		public void add(String key, String value) {
+			if (response) {
+				exchange.addResponseHeader(key, value);
+			} else {
+				map().computeIfAbsent(key, name -> new ArrayList<>(1)).add(value);
+			}
+		}
+
+		@Override
+		public void set(String key, String value) {
+			if (response) {
+				exchange.setResponseHeader(key, value);
+			} else {
+				List<String> values = new ArrayList<>(1);
+				values.add(value);
+				map().put(key, values);
+			}
+		}
+
+		@Override
+		public List<String> remove(Object key) {
+			return map().remove(key);
+		}
+
+		@Override
+		public void putAll(Map<? extends String, ? extends List<String>> map) {
+			map().putAll(map);
+		}
+
+		@Override
+		public void clear() {
+			map().clear();
+		}
+
+		@Override
+		public Set<String> keySet() {
+			return map().keySet();
+		}
+
+		@Override
+		public Collection<List<String>> values() {
+			return map().values();
+		}
+
+		@Override
+		public Set<Map.Entry<String, List<String>>> entrySet() {
+			return map().entrySet();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return map().equals(o);
+		}
+
+		@Override
+		public int hashCode() {
+			return map().hashCode();
+		}
+	}
+}
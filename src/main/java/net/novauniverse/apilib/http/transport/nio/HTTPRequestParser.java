@@ -0,0 +1,417 @@
+package net.novauniverse.apilib.http.transport.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Incremental HTTP/1.1 request parser. Bytes can be fed in any amount, which
+ * allows pipelined requests to be read from a single buffer. Requests are
+ * passed to a {@link Listener} as soon as the head has been read and the body
+ * follows in pieces, so the body is never buffered by the parser. Only used
+ * from the event loop thread of the connection
+ *
+ * @author Zeeraa
+ */
+final class HTTPRequestParser {
+	private enum State {
+		HEAD, BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_DATA_END, TRAILERS, FAILED
+	}
+
+	/**
+	 * Receives the parsed requests
+	 */
+	interface Listener {
+		/**
+		 * Called when the head of a request has been read. The body follows
+		 *
+		 * @param request The {@link ParsedRequest}
+		 */
+		void headReceived(ParsedRequest request);
+
+		/**
+		 * Called with a part of the body
+		 *
+		 * @param request The {@link ParsedRequest} the body belongs to
+		 * @param buffer  The buffer to take the bytes from
+		 * @param amount  The number of bytes that have to be taken from the buffer
+		 */
+		void bodyReceived(ParsedRequest request, ByteBuffer buffer, int amount);
+
+		/**
+		 * Called when the whole body has been read
+		 *
+		 * @param request The {@link ParsedRequest}
+		 */
+		void requestReceived(ParsedRequest request);
+
+		/**
+		 * Called when the request could not be parsed. Nothing more is read after
+		 * this
+		 *
+		 * @param request The {@link ParsedRequest} if the error happened while
+		 *                reading its body or <code>null</code> if the head has not
+		 *                been passed on yet
+		 * @param code    The http status code to respond with
+		 * @param message The error message
+		 */
+		void failed(ParsedRequest request, int code, String message);
+	}
+
+	private final int maxHeaderSize;
+	private final long maxBodySize;
+	private final Listener listener;
+
+	private State state;
+	private byte[] line;
+	private int lineLength;
+	private int headSize;
+	private final List<String> headLines;
+
+	private ParsedRequest current;
+	private boolean headPassed;
+	private long bodyLength;
+	private long remaining;
+
+	/**
+	 * @param maxHeaderSize The max size of the request line and headers
+	 * @param maxBodySize   The max size of the body or -1 for no limit
+	 * @param listener      The {@link Listener} to pass the requests to
+	 */
+	HTTPRequestParser(int maxHeaderSize, long maxBodySize, Listener listener) {
+		this.maxHeaderSize = maxHeaderSize;
+		this.maxBodySize = maxBodySize;
+		this.listener = listener;
+		this.state = State.HEAD;
+		this.line = new byte[256];
+		this.lineLength = 0;
+		this.headSize = 0;
+		this.headLines = new ArrayList<>();
+		this.current = null;
+		this.headPassed = false;
+		this.bodyLength = 0;
+		this.remaining = 0;
+	}
+
+	/**
+	 * Feed received bytes to the parser
+	 *
+	 * @param buffer The received bytes. All remaining bytes are consumed
+	 */
+	void feed(ByteBuffer buffer) {
+		while (buffer.hasRemaining()) {
+			switch (state) {
+			case HEAD:
+				if (readLine(buffer, maxHeaderSize - headSize)) {
+					String text = takeLine();
+					if (text == null) {
+						fail(431, "Request header fields too large");
+						return;
+					}
+					headSize += text.length() + 2;
+					if (text.isEmpty()) {
+						if (headLines.isEmpty()) {
+							// Tolerate empty lines between pipelined requests
+							continue;
+						}
+						if (!parseHead()) {
+							return;
+						}
+						startBody();
+					} else {
+						headLines.add(text);
+					}
+				} else if (lineLength < 0) {
+					fail(431, "Request header fields too large");
+					return;
+				}
+				break;
+
+			case BODY:
+				remaining -= readBody(buffer, remaining);
+				if (remaining == 0) {
+					complete();
+				}
+				break;
+
+			case CHUNK_SIZE:
+				if (readLine(buffer, 1024)) {
+					String text = takeLine();
+					long size = parseChunkSize(text);
+					if (size < 0) {
+						fail(400, "Invalid chunk size");
+						return;
+					}
+					if (size == 0) {
+						state = State.TRAILERS;
+					} else {
+						if (maxBodySize >= 0 && bodyLength + size > maxBodySize) {
+							fail(413, "Request body too large");
+							return;
+						}
+						bodyLength += size;
+						remaining = size;
+						state = State.CHUNK_DATA;
+					}
+				} else if (lineLength < 0) {
+					fail(400, "Invalid chunk size");
+					return;
+				}
+				break;
+
+			case CHUNK_DATA:
+				remaining -= readBody(buffer, remaining);
+				if (remaining == 0) {
+					state = State.CHUNK_DATA_END;
+				}
+				break;
+
+			case CHUNK_DATA_END:
+				if (readLine(buffer, 2)) {
+					String text = takeLine();
+					if (text == null || !text.isEmpty()) {
+						fail(400, "Invalid chunk");
+						return;
+					}
+					state = State.CHUNK_SIZE;
+				} else if (lineLength < 0) {
+					fail(400, "Invalid chunk");
+					return;
+				}
+				break;
+
+			case TRAILERS:
+				if (readLine(buffer, maxHeaderSize)) {
+					String text = takeLine();
+					if (text != null && text.isEmpty()) {
+						complete();
+					}
+				} else if (lineLength < 0) {
+					fail(431, "Request header fields too large");
+					return;
+				}
+				break;
+
+			case FAILED:
+			default:
+				buffer.position(buffer.limit());
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Read bytes into the line buffer until a line feed
+	 *
+	 * @return <code>true</code> if a full line has been read. If the line is
+	 *         longer than the limit the line length is set to -1
+	 */
+	private boolean readLine(ByteBuffer buffer, int limit) {
+		while (buffer.hasRemaining()) {
+			byte b = buffer.get();
+			if (b == '\n') {
+				return true;
+			}
+			if (lineLength >= limit) {
+				lineLength = -1;
+				return false;
+			}
+			if (lineLength == line.length) {
+				line = Arrays.copyOf(line, line.length * 2);
+			}
+			line[lineLength++] = b;
+		}
+		return false;
+	}
+
+	private String takeLine() {
+		if (lineLength < 0) {
+			lineLength = 0;
+			return null;
+		}
+		int length = lineLength;
+		if (length > 0 && line[length - 1] == '\r') {
+			length--;
+		}
+		lineLength = 0;
+		return new String(line, 0, length, StandardCharsets.ISO_8859_1);
+	}
+
+	private boolean parseHead() {
+		String requestLine = headLines.get(0);
+		int firstSpace = requestLine.indexOf(' ');
+		int lastSpace = requestLine.lastIndexOf(' ');
+		if (firstSpace <= 0 || lastSpace <= firstSpace) {
+			fail(400, "Invalid request line");
+			return false;
+		}
+		String method = requestLine.substring(0, firstSpace);
+		String uri = requestLine.substring(firstSpace + 1, lastSpace).trim();
+		String protocol = requestLine.substring(lastSpace + 1);
+		if (!protocol.startsWith("HTTP/1.")) {
+			fail(505, "HTTP version not supported");
+			return false;
+		}
+
+		Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (int i = 1; i < headLines.size(); i++) {
+			String header = headLines.get(i);
+			int colon = header.indexOf(':');
+			// Whitespace around the name is rejected instead of trimmed, since proxies
+			// in front of the server might read such a header differently
+			if (colon <= 0 || !isToken(header, colon)) {
+				fail(400, "Invalid header");
+				return false;
+			}
+			String name = header.substring(0, colon);
+			String value = header.substring(colon + 1).trim();
+			headers.computeIfAbsent(name, key -> new ArrayList<>(1)).add(value);
+		}
+		headLines.clear();
+		headSize = 0;
+
+		String connection = first(headers, "Connection");
+		boolean keepAlive;
+		if (protocol.equals("HTTP/1.0")) {
+			keepAlive = connection != null && connection.equalsIgnoreCase("keep-alive");
+		} else {
+			keepAlive = connection == null || !connection.equalsIgnoreCase("close");
+		}
+
+		current = new ParsedRequest(method, uri, protocol, headers, keepAlive);
+		return true;
+	}
+
+	private void startBody() {
+		List<String> transferEncoding = current.headers.get("Transfer-Encoding");
+		List<String> contentLength = current.headers.get("Content-Length");
+		long length;
+		if (transferEncoding != null) {
+			// A length next to chunked framing is a request smuggling attempt
+			if (contentLength != null || transferEncoding.size() != 1) {
+				fail(400, "Invalid transfer encoding");
+				return;
+			}
+			if (!transferEncoding.get(0).equalsIgnoreCase("chunked")) {
+				fail(501, "Transfer encoding not supported");
+				return;
+			}
+			length = -1;
+		} else if (contentLength != null) {
+			// Duplicate values are rejected even if they are equal
+			length = contentLength.size() == 1 ? parseContentLength(contentLength.get(0)) : -1;
+			if (length < 0) {
+				fail(400, "Invalid content length");
+				return;
+			}
+			// Checked before the head is passed on so that 100 Continue is never sent
+			// for a body that is too large
+			if (maxBodySize >= 0 && length > maxBodySize) {
+				fail(413, "Request body too large");
+				return;
+			}
+		} else {
+			length = 0;
+		}
+
+		current.contentLength = length;
+		headPassed = true;
+		bodyLength = 0;
+		listener.headReceived(current);
+		if (length == 0) {
+			complete();
+		} else if (length < 0) {
+			state = State.CHUNK_SIZE;
+		} else {
+			remaining = length;
+			state = State.BODY;
+		}
+	}
+
+	private int readBody(ByteBuffer buffer, long max) {
+		int amount = (int) Math.min(buffer.remaining(), max);
+		listener.bodyReceived(current, buffer, amount);
+		return amount;
+	}
+
+	private void complete() {
+		ParsedRequest request = current;
+		current = null;
+		headPassed = false;
+		remaining = 0;
+		state = State.HEAD;
+		listener.requestReceived(request);
+	}
+
+	private void fail(int code, String message) {
+		ParsedRequest request = headPassed ? current : null;
+		state = State.FAILED;
+		current = null;
+		headPassed = false;
+		listener.failed(request, code, message);
+	}
+
+	/**
+	 * Parse a <code>Content-Length</code> value. Only plain digits are accepted so
+	 * values like <code>+5</code> or <code>5, 5</code> are rejected
+	 *
+	 * @return The length or -1 if the value is invalid
+	 */
+	private static long parseContentLength(String text) {
+		if (text.isEmpty() || text.length() > 18) {
+			return -1;
+		}
+		long length = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			length = length * 10 + (c - '0');
+		}
+		return length;
+	}
+
+	/**
+	 * Check that the start of a header line is a valid header name
+	 *
+	 * @param text   The header line
+	 * @param length The length of the name
+	 * @return <code>true</code> if all characters are token characters
+	 */
+	private static boolean isToken(String text, int length) {
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || "!#$%&'*+-.^_`|~".indexOf(c) >= 0;
+			if (!valid) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long parseChunkSize(String text) {
+		if (text == null) {
+			return -1;
+		}
+		int end = text.indexOf(';');
+		String size = (end < 0 ? text : text.substring(0, end)).trim();
+		if (size.isEmpty() || size.length() > 15) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(size, 16);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static String first(Map<String, List<String>> headers, String name) {
+		List<String> values = headers.get(name);
+		return values == null || values.isEmpty() ? null : values.get(0);
+	}
+}
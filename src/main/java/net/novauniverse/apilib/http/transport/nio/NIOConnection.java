@@ -0,0 +1,386 @@
+package net.novauniverse.apilib.http.transport.nio;
+
+import net.novauniverse.apilib.http.exception.RequestBodyTooLargeException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A keep-alive connection handled by a {@link NIOEventLoop}. Pipelined requests
+ * are queued and handled one at a time so that the responses are sent in the
+ * same order as the requests. Requests are passed on as soon as their head has
+ * been read and the body is streamed to the handler
+ *
+ * @author Zeeraa
+ */
+final class NIOConnection implements HTTPRequestParser.Listener {
+	/**
+	 * How many read buffers of body data can wait for the handler before reading
+	 * from the socket is paused
+	 */
+	private static final int BODY_READ_AHEAD = 8;
+
+	private final NIOTransport transport;
+	private final NIOEventLoop loop;
+	private final SocketChannel channel;
+	private final InetSocketAddress remoteAddress;
+	private final InetSocketAddress localAddress;
+	private final HTTPRequestParser parser;
+	private SelectionKey key;
+
+	// Only used on the event loop thread
+	private final ArrayDeque<ParsedRequest> pending;
+	private NIOExchange active;
+	private ParsedRequest receiving;
+	private boolean parseFailed;
+	private boolean closeAfterWrite;
+	private long lastActivity;
+
+	private final ConcurrentLinkedQueue<ByteBuffer> writeQueue;
+	private final AtomicLong queuedBytes;
+	private final Object writeLock;
+	private volatile boolean closed;
+
+	NIOConnection(NIOTransport transport, NIOEventLoop loop, SocketChannel channel) throws IOException {
+		this.transport = transport;
+		this.loop = loop;
+		this.channel = channel;
+		this.remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+		this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+		this.parser = new HTTPRequestParser(transport.getMaxHeaderSize(), transport.getMaxBodySize(), this);
+		this.pending = new ArrayDeque<>();
+		this.active = null;
+		this.receiving = null;
+		this.parseFailed = false;
+		this.closeAfterWrite = false;
+		this.lastActivity = System.currentTimeMillis();
+		this.writeQueue = new ConcurrentLinkedQueue<>();
+		this.queuedBytes = new AtomicLong(0);
+		this.writeLock = new Object();
+		this.closed = false;
+	}
+
+	void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	InetSocketAddress getRemoteAddress() {
+		return remoteAddress;
+	}
+
+	InetSocketAddress getLocalAddress() {
+		return localAddress;
+	}
+
+	int getBufferSize() {
+		return transport.getBufferSize();
+	}
+
+	/**
+	 * @return A cleared direct buffer from the pool of the transport. Returned to
+	 *         the pool once it has been written
+	 */
+	ByteBuffer acquireBuffer() {
+		return transport.getBufferPool().acquire(0);
+	}
+
+	long getLastActivity() {
+		return lastActivity;
+	}
+
+	boolean isIdle() {
+		return active == null && pending.isEmpty() && writeQueue.isEmpty();
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * @return <code>true</code> if called on the event loop thread of this
+	 *         connection
+	 */
+	boolean inEventLoop() {
+		return loop.inEventLoop();
+	}
+
+	/**
+	 * Read from the socket and parse the received requests. Called on the event
+	 * loop thread
+	 */
+	void read(ByteBuffer buffer) {
+		buffer.clear();
+		int read;
+		try {
+			read = channel.read(buffer);
+		} catch (IOException e) {
+			close();
+			return;
+		}
+		if (read < 0) {
+			close();
+			return;
+		}
+		lastActivity = System.currentTimeMillis();
+		buffer.flip();
+		parser.feed(buffer);
+		if (receiving != null && receiving.body.isDiscardLimitExceeded()) {
+			// The handler finished long ago and the client is still sending
+			close();
+			return;
+		}
+		dispatchNext();
+		updateReadInterest();
+	}
+
+	@Override
+	public void headReceived(ParsedRequest request) {
+		String expect = request.getFirstHeader("Expect");
+		boolean continueExpected = request.contentLength != 0 && expect != null && expect.equalsIgnoreCase("100-continue") && request.protocol.equals("HTTP/1.1");
+		request.body = new RequestBody(this, request.contentLength, continueExpected, transport.getBufferSize() * BODY_READ_AHEAD);
+		receiving = request;
+		pending.add(request);
+	}
+
+	@Override
+	public void bodyReceived(ParsedRequest request, ByteBuffer buffer, int amount) {
+		request.body.offer(buffer, amount);
+	}
+
+	@Override
+	public void requestReceived(ParsedRequest request) {
+		request.body.complete();
+		receiving = null;
+	}
+
+	@Override
+	public void failed(ParsedRequest request, int code, String message) {
+		parseFailed = true;
+		if (request == null) {
+			pending.add(ParsedRequest.error(code, message));
+			return;
+		}
+
+		// The request has already been passed on, so its handler gets the error
+		// while reading the body and the connection is closed after the response
+		receiving = null;
+		IOException exception = code == 413 ? new RequestBodyTooLargeException(transport.getMaxBodySize()) : new IOException(message);
+		if (request.body.fail(exception)) {
+			// The handler has already finished
+			closeAfterWrite = true;
+			flush();
+		}
+	}
+
+	/**
+	 * Continue reading after the handler has read enough of the buffered body.
+	 * Can be called from any thread
+	 */
+	void resumeReading() {
+		loop.execute(this::updateReadInterest);
+	}
+
+	/**
+	 * Read from the socket unless the pipeline is full, the body waiting for the
+	 * handler is too large or nothing more can be parsed. Called on the event loop
+	 * thread
+	 */
+	private void updateReadInterest() {
+		if (closed || !key.isValid()) {
+			return;
+		}
+		boolean read = !parseFailed && !closeAfterWrite && pending.size() < transport.getMaxPipelinedRequests() && (receiving == null || !receiving.body.isFull());
+		int ops = key.interestOps();
+		key.interestOps(read ? ops | SelectionKey.OP_READ : ops & ~SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Start handling the next queued request if no request is active. Called on
+	 * the event loop thread
+	 */
+	private void dispatchNext() {
+		if (active != null || closed || closeAfterWrite) {
+			return;
+		}
+		ParsedRequest request = pending.poll();
+		if (request == null) {
+			return;
+		}
+
+		if (request.isError()) {
+			pending.clear();
+			closeAfterWrite = true;
+			write(NIOExchange.errorResponse(request.errorCode, request.errorMessage));
+			return;
+		}
+
+		NIOExchange exchange;
+		try {
+			exchange = new NIOExchange(this, request);
+		} catch (IllegalArgumentException e) {
+			pending.clear();
+			closeAfterWrite = true;
+			write(NIOExchange.errorResponse(400, "Invalid request uri"));
+			return;
+		}
+		active = exchange;
+		transport.dispatch(exchange);
+	}
+
+	/**
+	 * Called when the response of an exchange has been fully queued. Can be called
+	 * from any thread
+	 *
+	 * @param exchange The finished {@link NIOExchange}
+	 * @param close    <code>true</code> to close the connection once the response
+	 *                 has been written
+	 */
+	void finished(NIOExchange exchange, boolean close) {
+		loop.execute(() -> {
+			if (active != exchange) {
+				return;
+			}
+			active = null;
+			lastActivity = System.currentTimeMillis();
+			// The unread part of the body has to be skipped before the next request can
+			// be read
+			if (close || !exchange.getBody().discardRemaining()) {
+				pending.clear();
+				closeAfterWrite = true;
+				flush();
+			} else {
+				dispatchNext();
+				updateReadInterest();
+			}
+		});
+	}
+
+	/**
+	 * Queue bytes to be written to the socket. Blocks the calling thread if too
+	 * much data is waiting to be written, unless called from the event loop
+	 *
+	 * @param buffer The bytes to write
+	 * @throws IOException If the connection has been closed
+	 */
+	void send(ByteBuffer buffer) throws IOException {
+		if (closed) {
+			throw new IOException("Connection closed");
+		}
+		if (!loop.inEventLoop()) {
+			synchronized (writeLock) {
+				while (queuedBytes.get() > transport.getWriteBufferHighWaterMark() && !closed) {
+					try {
+						writeLock.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException();
+					}
+				}
+			}
+			if (closed) {
+				throw new IOException("Connection closed");
+			}
+		}
+		write(buffer);
+	}
+
+	private void write(ByteBuffer buffer) {
+		queuedBytes.addAndGet(buffer.remaining());
+		writeQueue.add(buffer);
+		if (loop.inEventLoop()) {
+			flush();
+		} else {
+			loop.execute(this::flush);
+		}
+	}
+
+	/**
+	 * Write as much queued data as the socket accepts. Called on the event loop
+	 * thread
+	 */
+	void flush() {
+		if (closed) {
+			return;
+		}
+		try {
+			ByteBuffer buffer;
+			while ((buffer = writeQueue.peek()) != null) {
+				int written = channel.write(buffer);
+				queuedBytes.addAndGet(-written);
+				if (buffer.hasRemaining()) {
+					break;
+				}
+				writeQueue.poll();
+				transport.getBufferPool().release(buffer);
+			}
+		} catch (IOException e) {
+			close();
+			return;
+		}
+
+		lastActivity = System.currentTimeMillis();
+		if (queuedBytes.get() <= transport.getWriteBufferHighWaterMark() / 2) {
+			synchronized (writeLock) {
+				writeLock.notifyAll();
+			}
+		}
+
+		if (writeQueue.isEmpty()) {
+			if (closeAfterWrite && active == null) {
+				close();
+				return;
+			}
+			if (key.isValid()) {
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			}
+		} else if (key.isValid()) {
+			key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+		}
+	}
+
+	/**
+	 * Close the connection. Can be called from any thread
+	 */
+	void close() {
+		if (!loop.inEventLoop()) {
+			loop.execute(this::close);
+			return;
+		}
+		if (closed) {
+			return;
+		}
+		closed = true;
+		synchronized (writeLock) {
+			writeLock.notifyAll();
+		}
+		ByteBuffer buffer;
+		while ((buffer = writeQueue.poll()) != null) {
+			transport.getBufferPool().release(buffer);
+		}
+		pending.clear();
+
+		// Wake up handlers waiting for more of the body
+		IOException exception = new IOException("Connection closed");
+		if (receiving != null) {
+			receiving.body.fail(exception);
+		}
+		if (active != null) {
+			active.getBody().fail(exception);
+		}
+		if (key != null) {
+			key.cancel();
+		}
+		try {
+			channel.close();
+		} catch (IOException ignored) {
+		}
+		loop.removed(this);
+	}
+}
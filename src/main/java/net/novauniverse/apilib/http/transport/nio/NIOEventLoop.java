@@ -0,0 +1,150 @@
+package net.novauniverse.apilib.http.transport.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A selector thread that reads and writes the connections assigned to it. Each
+ * loop owns a single direct {@link ByteBuffer} that is reused for every read
+ *
+ * @author Zeeraa
+ */
+final class NIOEventLoop implements Runnable {
+	private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+	private final NIOTransport transport;
+	private final Selector selector;
+	private final ByteBuffer readBuffer;
+	private final ConcurrentLinkedQueue<Runnable> tasks;
+	private final Set<NIOConnection> connections;
+	private final Thread thread;
+	private volatile boolean running;
+
+	NIOEventLoop(NIOTransport transport, String name) throws IOException {
+		this.transport = transport;
+		this.selector = Selector.open();
+		this.readBuffer = ByteBuffer.allocateDirect(transport.getBufferSize());
+		this.tasks = new ConcurrentLinkedQueue<>();
+		this.connections = new HashSet<>();
+		this.thread = new Thread(this, name);
+		this.thread.setDaemon(true);
+		this.running = false;
+	}
+
+	void start() {
+		running = true;
+		thread.start();
+	}
+
+	void shutdown() {
+		running = false;
+		selector.wakeup();
+	}
+
+	boolean inEventLoop() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Run a task on the event loop thread
+	 *
+	 * @param task The task to run
+	 */
+	void execute(Runnable task) {
+		tasks.add(task);
+		if (!inEventLoop()) {
+			selector.wakeup();
+		}
+	}
+
+	void register(SocketChannel channel) {
+		execute(() -> {
+			try {
+				channel.configureBlocking(false);
+				NIOConnection connection = new NIOConnection(transport, this, channel);
+				connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+				connections.add(connection);
+			} catch (IOException e) {
+				try {
+					channel.close();
+				} catch (IOException ignored) {
+				}
+			}
+		});
+	}
+
+	void removed(NIOConnection connection) {
+		connections.remove(connection);
+	}
+
+	@Override
+	public void run() {
+		long lastIdleCheck = System.currentTimeMillis();
+		while (running) {
+			try {
+				selector.select(SELECT_TIMEOUT_MILLIS);
+			} catch (IOException e) {
+				break;
+			}
+
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					// A failing task must not stop the loop since every connection on it
+					// would hang
+					transport.exceptionCaught(e);
+				}
+			}
+
+			Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+			while (iterator.hasNext()) {
+				SelectionKey key = iterator.next();
+				iterator.remove();
+				NIOConnection connection = (NIOConnection) key.attachment();
+				try {
+					if (key.isValid() && key.isWritable()) {
+						connection.flush();
+					}
+					if (key.isValid() && key.isReadable()) {
+						connection.read(readBuffer);
+					}
+				} catch (CancelledKeyException e) {
+					connection.close();
+				} catch (RuntimeException e) {
+					transport.exceptionCaught(e);
+					connection.close();
+				}
+			}
+
+			long now = System.currentTimeMillis();
+			if (now - lastIdleCheck >= SELECT_TIMEOUT_MILLIS) {
+				lastIdleCheck = now;
+				long timeout = transport.getKeepAliveTimeoutMillis();
+				for (NIOConnection connection : new ArrayList<>(connections)) {
+					if (connection.isIdle() && now - connection.getLastActivity() > timeout) {
+						connection.close();
+					}
+				}
+			}
+		}
+
+		for (NIOConnection connection : new ArrayList<>(connections)) {
+			connection.close();
+		}
+		try {
+			selector.close();
+		} catch (IOException ignored) {
+		}
+	}
+}
@@ -0,0 +1,477 @@
+package net.novauniverse.apilib.http.transport.nio;
+
+import net.novauniverse.apilib.http.enums.HTTPResponseCode;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link TransportExchange} for requests received by a {@link NIOTransport}
+ *
+ * @author Zeeraa
+ */
+public class NIOExchange implements TransportExchange {
+	private static final byte[] CRLF = { '\r', '\n' };
+	private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+	private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+	private static volatile CachedDate cachedDate = new CachedDate(0, "");
+
+	private final NIOConnection connection;
+	private final String method;
+	private final URI uri;
+	private final String protocol;
+	private final Map<String, List<String>> requestHeaders;
+	private final Map<String, List<String>> responseHeaders;
+	private final RequestBody requestBody;
+	private final boolean head;
+
+	private ResponseStream responseBody;
+	private boolean headersSent;
+	private boolean keepAlive;
+	private boolean finished;
+
+	NIOExchange(NIOConnection connection, ParsedRequest request) {
+		this.connection = connection;
+		this.method = request.method;
+		try {
+			this.uri = new URI(request.uri);
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+		this.protocol = request.protocol;
+		this.requestHeaders = request.headers;
+		this.responseHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		this.requestBody = request.body;
+		this.requestBody.setExchange(this);
+		this.head = method.equalsIgnoreCase("HEAD");
+		this.responseBody = null;
+		this.headersSent = false;
+		this.keepAlive = request.keepAlive;
+		this.finished = false;
+	}
+
+	@Override
+	public String getRequestMethod() {
+		return method;
+	}
+
+	@Override
+	public URI getRequestURI() {
+		return uri;
+	}
+
+	@Override
+	public String getProtocol() {
+		return protocol;
+	}
+
+	@Override
+	public Map<String, List<String>> getRequestHeaders() {
+		return requestHeaders;
+	}
+
+	@Override
+	public Map<String, List<String>> getResponseHeaders() {
+		return responseHeaders;
+	}
+
+	@Override
+	public InputStream getRequestBody() {
+		return requestBody;
+	}
+
+	RequestBody getBody() {
+		return requestBody;
+	}
+
+	boolean inEventLoop() {
+		return connection.inEventLoop();
+	}
+
+	/**
+	 * Tell the client to send the body. Called the first time the handler reads
+	 * the body of a request with <code>Expect: 100-continue</code>
+	 *
+	 * @throws IOException If the connection has been closed
+	 */
+	void sendContinue() throws IOException {
+		synchronized (this) {
+			if (headersSent) {
+				return;
+			}
+		}
+		connection.send(ByteBuffer.wrap(CONTINUE));
+	}
+
+	@Override
+	public void addResponseHeader(String name, String value) {
+		checkHeader(name, value);
+		TransportExchange.super.addResponseHeader(name, value);
+	}
+
+	@Override
+	public void setResponseHeader(String name, String value) {
+		checkHeader(name, value);
+		TransportExchange.super.setResponseHeader(name, value);
+	}
+
+	@Override
+	public synchronized void sendResponseHeaders(int code, long length) throws IOException {
+		if (headersSent) {
+			throw new IOException("Headers already sent");
+		}
+		// Checked again since the header map can be changed directly
+		for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+			for (String value : header.getValue()) {
+				checkHeader(header.getKey(), value);
+			}
+		}
+		headersSent = true;
+
+		boolean noBodyAllowed = (code >= 100 && code < 200) || code == 204 || code == 304;
+		boolean noBody = head || noBodyAllowed || length < 0;
+		boolean untilClose = length == 0 && !noBody && protocol.equals("HTTP/1.0");
+		boolean chunked = length == 0 && !noBody && !untilClose;
+		if (untilClose) {
+			// HTTP/1.0 clients do not support chunked responses so the end of the body
+			// is marked by closing the connection
+			keepAlive = false;
+		}
+
+		String connectionHeader = firstResponseHeader("Connection");
+		if (connectionHeader != null && connectionHeader.equalsIgnoreCase("close")) {
+			keepAlive = false;
+		}
+
+		StringBuilder builder = new StringBuilder(256);
+		builder.append("HTTP/1.1 ").append(code).append(' ').append(reasonPhrase(code)).append("\r\n");
+		builder.append("Date: ").append(currentDate()).append("\r\n");
+		for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+			String name = header.getKey();
+			if (name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Transfer-Encoding") || name.equalsIgnoreCase("Connection")) {
+				continue;
+			}
+			for (String value : header.getValue()) {
+				builder.append(name).append(": ").append(value).append("\r\n");
+			}
+		}
+		if (!noBodyAllowed) {
+			if (chunked) {
+				builder.append("Transfer-Encoding: chunked\r\n");
+			} else if (untilClose) {
+				// No length header
+			} else if (length > 0) {
+				builder.append("Content-Length: ").append(length).append("\r\n");
+			} else if (!head || length < 0) {
+				builder.append("Content-Length: 0\r\n");
+			}
+		}
+		if (!keepAlive) {
+			builder.append("Connection: close\r\n");
+		} else if (protocol.equals("HTTP/1.0")) {
+			builder.append("Connection: keep-alive\r\n");
+		}
+		builder.append("\r\n");
+
+		responseBody = new ResponseStream(noBody ? -1 : (length == 0 ? Long.MAX_VALUE : length), chunked, untilClose, builder.toString().getBytes(StandardCharsets.ISO_8859_1));
+		if (noBody) {
+			responseBody.close();
+		}
+	}
+
+	@Override
+	public OutputStream getResponseBody() {
+		if (responseBody == null) {
+			throw new IllegalStateException("sendResponseHeaders has not been called");
+		}
+		return responseBody;
+	}
+
+	@Override
+	public InetSocketAddress getRemoteAddress() {
+		return connection.getRemoteAddress();
+	}
+
+	@Override
+	public InetSocketAddress getLocalAddress() {
+		return connection.getLocalAddress();
+	}
+
+	@Override
+	public void close() {
+		if (responseBody == null) {
+			// Nothing was sent so the connection can not be reused
+			finish(false);
+			connection.close();
+			return;
+		}
+		try {
+			responseBody.close();
+		} catch (IOException e) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Called if the handler failed. Sends an error if nothing has been sent yet,
+	 * otherwise the connection is closed since the response is incomplete
+	 */
+	void abort() {
+		synchronized (this) {
+			if (finished) {
+				return;
+			}
+			if (!headersSent) {
+				headersSent = true;
+				finished = true;
+				try {
+					connection.send(errorResponse(500, "Internal server error"));
+				} catch (IOException ignored) {
+				}
+				connection.finished(this, true);
+				return;
+			}
+		}
+		finish(false);
+		connection.close();
+	}
+
+	private synchronized void finish(boolean reuse) {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		connection.finished(this, !(reuse && keepAlive));
+	}
+
+	/**
+	 * Make sure a response header can not end the header line early. Values with
+	 * line breaks would let request data like a redirect target add headers or a
+	 * whole response of its own
+	 *
+	 * @throws IllegalArgumentException If the name or value is invalid
+	 */
+	static void checkHeader(String name, String value) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Header name can not be empty");
+		}
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c <= ' ' || c >= 0x7F || c == ':') {
+				throw new IllegalArgumentException("Illegal character in header name " + name);
+			}
+		}
+		if (value == null) {
+			throw new IllegalArgumentException("Value of header " + name + " can not be null");
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if ((c < ' ' && c != '\t') || c == 0x7F) {
+				throw new IllegalArgumentException("Illegal character in value of header " + name);
+			}
+		}
+	}
+
+	private String firstResponseHeader(String name) {
+		List<String> values = responseHeaders.get(name);
+		return values == null || values.isEmpty() ? null : values.get(0);
+	}
+
+	static ByteBuffer errorResponse(int code, String message) {
+		byte[] body = message.getBytes(StandardCharsets.UTF_8);
+		String head = "HTTP/1.1 " + code + " " + reasonPhrase(code) + "\r\nDate: " + currentDate() + "\r\nContent-Type: text/plain; charset=utf-8\r\nContent-Length: " + body.length + "\r\nConnection: close\r\n\r\n";
+		byte[] headBytes = head.getBytes(StandardCharsets.ISO_8859_1);
+		ByteBuffer buffer = ByteBuffer.allocate(headBytes.length + body.length);
+		buffer.put(headBytes).put(body).flip();
+		return buffer;
+	}
+
+	static String reasonPhrase(int code) {
+		HTTPResponseCode responseCode = HTTPResponseCode.getByCode(code);
+		if (responseCode == null) {
+			return "Unknown";
+		}
+		if (responseCode == HTTPResponseCode.OK) {
+			return "OK";
+		}
+		String[] words = responseCode.name().split("_");
+		StringBuilder builder = new StringBuilder();
+		for (String word : words) {
+			if (builder.length() > 0) {
+				builder.append(' ');
+			}
+			builder.append(word.charAt(0)).append(word.substring(1).toLowerCase(Locale.ROOT));
+		}
+		return builder.toString();
+	}
+
+	private static String currentDate() {
+		long second = System.currentTimeMillis() / 1000;
+		CachedDate date = cachedDate;
+		if (date.second != second) {
+			date = new CachedDate(second, DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+			cachedDate = date;
+		}
+		return date.value;
+	}
+
+	private static final class CachedDate {
+		private final long second;
+		private final String value;
+
+		private CachedDate(long second, String value) {
+			this.second = second;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Buffers the response and passes it to the connection in blocks. Adds chunk
+	 * framing if the length of the response is unknown. The blocks are copied into
+	 * pooled direct buffers which are returned to the pool once written
+	 */
+	private final class ResponseStream extends OutputStream {
+		private final long length;
+		private final boolean chunked;
+		private final boolean untilClose;
+		private final byte[] buffer;
+		/**
+		 * The response head. It is sent together with the first block of the body
+		 */
+		private byte[] responseHead;
+		private ByteBuffer block;
+		private int position;
+		private long written;
+		private boolean closed;
+
+		private ResponseStream(long length, boolean chunked, boolean untilClose, byte[] responseHead) {
+			this.length = length;
+			this.chunked = chunked;
+			this.untilClose = untilClose;
+			this.buffer = new byte[connection.getBufferSize()];
+			this.responseHead = responseHead;
+			this.block = null;
+			this.position = 0;
+			this.written = 0;
+			this.closed = false;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public synchronized void write(byte[] bytes, int offset, int amount) throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+			if (length < 0) {
+				// The body is discarded for HEAD requests and responses without body
+				return;
+			}
+			if (!chunked && written + amount > length) {
+				throw new IOException("Too many bytes written. Expected " + length + " but got " + (written + amount));
+			}
+			written += amount;
+			while (amount > 0) {
+				int copy = Math.min(amount, buffer.length - position);
+				System.arraycopy(bytes, offset, buffer, position, copy);
+				position += copy;
+				offset += copy;
+				amount -= copy;
+				if (position == buffer.length) {
+					sendBuffer(false);
+				}
+			}
+		}
+
+		@Override
+		public synchronized void flush() throws IOException {
+			if (!closed) {
+				sendBuffer(false);
+			}
+		}
+
+		private void sendBuffer(boolean last) throws IOException {
+			if (responseHead != null) {
+				put(responseHead, 0, responseHead.length);
+				responseHead = null;
+			}
+			if (position > 0) {
+				if (chunked) {
+					byte[] size = Integer.toHexString(position).getBytes(StandardCharsets.ISO_8859_1);
+					put(size, 0, size.length);
+					put(CRLF, 0, CRLF.length);
+				}
+				put(buffer, 0, position);
+				if (chunked) {
+					put(CRLF, 0, CRLF.length);
+				}
+				position = 0;
+			}
+			if (last && chunked) {
+				put(LAST_CHUNK, 0, LAST_CHUNK.length);
+			}
+			if (block != null) {
+				sendBlock();
+			}
+		}
+
+		private void put(byte[] bytes, int offset, int amount) throws IOException {
+			while (amount > 0) {
+				if (block == null) {
+					block = connection.acquireBuffer();
+				}
+				int copy = Math.min(amount, block.remaining());
+				block.put(bytes, offset, copy);
+				offset += copy;
+				amount -= copy;
+				if (!block.hasRemaining()) {
+					sendBlock();
+				}
+			}
+		}
+
+		private void sendBlock() throws IOException {
+			ByteBuffer data = block;
+			block = null;
+			data.flip();
+			connection.send(data);
+		}
+
+		@Override
+		public void close() throws IOException {
+			boolean complete;
+			synchronized (this) {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				sendBuffer(true);
+				complete = chunked || untilClose || length < 0 || written == length;
+			}
+			if (!complete) {
+				// The client is still waiting for the rest of the body
+				finish(false);
+				connection.close();
+				throw new IOException("Response closed after " + written + " of " + length + " bytes");
+			}
+			finish(true);
+		}
+	}
+}
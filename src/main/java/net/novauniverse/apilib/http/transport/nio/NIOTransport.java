@@ -0,0 +1,449 @@
+package net.novauniverse.apilib.http.transport.nio;
+
+import net.novauniverse.apilib.http.body.ByteBufferPool;
+import net.novauniverse.apilib.http.executor.NamedThreadFactory;
+import net.novauniverse.apilib.http.transport.HTTPTransport;
+import net.novauniverse.apilib.http.transport.TransportHandler;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A non-blocking HTTP/1.1 {@link HTTPTransport} built on java nio. Connections
+ * are spread over a small number of selector threads and only the handlers run
+ * on the executor, so idle keep-alive connections do not occupy a thread.
+ * Request bodies are streamed to the handlers, so the body size limits of the
+ * {@link net.novauniverse.apilib.http.HTTPServer} and its endpoints apply
+ * before the body has been received
+ * <p>
+ * Use with
+ * {@link net.novauniverse.apilib.http.HTTPServer#setTransportFactory(net.novauniverse.apilib.http.transport.HTTPTransportFactory)}
+ * like <code>server.setTransportFactory(NIOTransport::new)</code>
+ *
+ * @author Zeeraa
+ */
+public class NIOTransport implements HTTPTransport {
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+	public static final int DEFAULT_MAX_HEADER_SIZE = 16384;
+	public static final long DEFAULT_MAX_BODY_SIZE = -1;
+	public static final int DEFAULT_KEEP_ALIVE_TIMEOUT_SECONDS = 30;
+	public static final int DEFAULT_MAX_PIPELINED_REQUESTS = 16;
+	public static final int DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK = 256 * 1024;
+
+	/**
+	 * Extra room in the pooled write buffers so the response head and chunk
+	 * framing usually fit in the same buffer as a full block of the body
+	 */
+	private static final int WRITE_BUFFER_HEADROOM = 1024;
+	private static final int POOLED_WRITE_BUFFERS_PER_LOOP = 64;
+	/**
+	 * How long the acceptor waits before trying again after accepting failed, for
+	 * example because the process ran out of file descriptors
+	 */
+	private static final long ACCEPT_RETRY_DELAY_MILLIS = 100;
+
+	private final int eventLoopCount;
+	private NIOEventLoop[] eventLoops;
+	private ServerSocketChannel serverChannel;
+	private InetSocketAddress address;
+	private Thread acceptor;
+	private TransportHandler handler;
+	private Executor executor;
+	private ExecutorService ownedExecutor;
+	private Consumer<Exception> exceptionHandler;
+	private ByteBufferPool bufferPool;
+	private volatile boolean running;
+	private int nextLoop;
+
+	private int bufferSize;
+	private int maxHeaderSize;
+	private long maxBodySize;
+	private long keepAliveTimeoutMillis;
+	private int maxPipelinedRequests;
+	private int writeBufferHighWaterMark;
+
+	/**
+	 * Create a transport with one event loop for each available processor
+	 */
+	public NIOTransport() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create a transport
+	 *
+	 * @param eventLoops The number of selector threads to use
+	 */
+	public NIOTransport(int eventLoops) {
+		if (eventLoops < 1) {
+			throw new IllegalArgumentException("eventLoops cant be less than 1");
+		}
+		this.eventLoopCount = eventLoops;
+		this.eventLoops = null;
+		this.serverChannel = null;
+		this.address = null;
+		this.acceptor = null;
+		this.handler = null;
+		this.executor = null;
+		this.ownedExecutor = null;
+		this.exceptionHandler = null;
+		this.bufferPool = null;
+		this.running = false;
+		this.nextLoop = 0;
+
+		this.bufferSize = DEFAULT_BUFFER_SIZE;
+		this.maxHeaderSize = DEFAULT_MAX_HEADER_SIZE;
+		this.maxBodySize = DEFAULT_MAX_BODY_SIZE;
+		this.keepAliveTimeoutMillis = TimeUnit.SECONDS.toMillis(DEFAULT_KEEP_ALIVE_TIMEOUT_SECONDS);
+		this.maxPipelinedRequests = DEFAULT_MAX_PIPELINED_REQUESTS;
+		this.writeBufferHighWaterMark = DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+	}
+
+	private void checkNotRunning() {
+		if (running) {
+			throw new IllegalStateException("Cant change this setting after the transport has been started");
+		}
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Set the size of the read buffer of each event loop and the size of the
+	 * blocks responses are written in
+	 *
+	 * @param bufferSize The size in bytes
+	 * @return this {@link NIOTransport} instance so that calls can be chained
+	 */
+	public NIOTransport setBufferSize(int bufferSize) {
+		checkNotRunning();
+		if (bufferSize < 512) {
+			throw new IllegalArgumentException("bufferSize cant be less than 512");
+		}
+		this.bufferSize = bufferSize;
+		return this;
+	}
+
+	public int getMaxHeaderSize() {
+		return maxHeaderSize;
+	}
+
+	/**
+	 * Set the max size of the request line and headers. Larger requests get a 431
+	 * response
+	 *
+	 * @param maxHeaderSize The size in bytes
+	 * @return this {@link NIOTransport} instance so that calls can be chained
+	 */
+	public NIOTransport setMaxHeaderSize(int maxHeaderSize) {
+		checkNotRunning();
+		if (maxHeaderSize < 256) {
+			throw new IllegalArgumentException("maxHeaderSize cant be less than 256");
+		}
+		this.maxHeaderSize = maxHeaderSize;
+		return this;
+	}
+
+	public long getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	/**
+	 * Set a hard limit for the size of request bodies on top of the limits of the
+	 * {@link net.novauniverse.apilib.http.HTTPServer} and its endpoints. Requests
+	 * with a larger <code>Content-Length</code> get a 413 response before the
+	 * handler runs. Default is no limit
+	 *
+	 * @param maxBodySize The size in bytes or -1 for no limit
+	 * @return this {@link NIOTransport} instance so that calls can be chained
+	 */
+	public NIOTransport setMaxBodySize(long maxBodySize) {
+		checkNotRunning();
+		if (maxBodySize < -1) {
+			throw new IllegalArgumentException("maxBodySize cant be less than -1");
+		}
+		this.maxBodySize = maxBodySize;
+		return this;
+	}
+
+	public long getKeepAliveTimeoutMillis() {
+		return keepAliveTimeoutMillis;
+	}
+
+	/**
+	 * Set how long idle keep-alive connections are kept open
+	 *
+	 * @param timeout The timeout
+	 * @param unit    The {@link TimeUnit} of the timeout
+	 * @return this {@link NIOTransport} instance so that calls can be chained
+	 */
+	public NIOTransport setKeepAliveTimeout(long timeout, TimeUnit unit) {
+		checkNotRunning();
+		if (timeout < 0) {
+			throw new IllegalArgumentException("timeout cant be less than 0");
+		}
+		this.keepAliveTimeoutMillis = unit.toMillis(timeout);
+		return this;
+	}
+
+	public int getMaxPipelinedRequests() {
+		return maxPipelinedRequests;
+	}
+
+	/**
+	 * Set how many pipelined requests can be queued on a connection before the
+	 * transport stops reading from it
+	 *
+	 * @param maxPipelinedRequests The max number of queued requests
+	 * @return this {@link NIOTransport} instance so that calls can be chained
+	 */
+	public NIOTransport setMaxPipelinedRequests(int maxPipelinedRequests) {
+		checkNotRunning();
+		if (maxPipelinedRequests < 1) {
+			throw new IllegalArgumentException("maxPipelinedRequests cant be less than 1");
+		}
+		this.maxPipelinedRequests = maxPipelinedRequests;
+		return this;
+	}
+
+	public int getWriteBufferHighWaterMark() {
+		return writeBufferHighWaterMark;
+	}
+
+	/**
+	 * Set how many bytes can wait to be written to a connection before handlers
+	 * writing to it are blocked
+	 *
+	 * @param writeBufferHighWaterMark The size in bytes
+	 * @return this {@link NIOTransport} instance so that calls can be chained
+	 */
+	public NIOTransport setWriteBufferHighWaterMark(int writeBufferHighWaterMark) {
+		checkNotRunning();
+		if (writeBufferHighWaterMark < 0) {
+			throw new IllegalArgumentException("writeBufferHighWaterMark cant be less than 0");
+		}
+		this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+		return this;
+	}
+
+	@Override
+	public void bind(InetSocketAddress address, int backlog) throws IOException, BindException {
+		if (serverChannel != null) {
+			throw new IllegalStateException("Transport is already bound");
+		}
+		ServerSocketChannel channel = ServerSocketChannel.open();
+		try {
+			channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			channel.bind(address, backlog);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		this.serverChannel = channel;
+		this.address = (InetSocketAddress) channel.getLocalAddress();
+	}
+
+	/**
+	 * Set the {@link Executor} handlers run on. Handlers must never run on the
+	 * event loops since they block while waiting for the request body, which only
+	 * the event loop can receive. A {@link ThreadPoolExecutor} using
+	 * {@link ThreadPoolExecutor.CallerRunsPolicy} is refused for that reason, and
+	 * requests an executor runs on the calling thread anyway are answered with
+	 * <code>503 Service Unavailable</code> like rejected ones
+	 *
+	 * @param executor The {@link Executor} or <code>null</code> to use a cached
+	 *                 thread pool owned by the transport
+	 * @throws IllegalArgumentException If the executor runs rejected tasks on the
+	 *                                  calling thread
+	 */
+	@Override
+	public void setExecutor(Executor executor) {
+		checkNotRunning();
+		if (executor instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) executor).getRejectedExecutionHandler() instanceof ThreadPoolExecutor.CallerRunsPolicy) {
+			throw new IllegalArgumentException("NIOTransport can not use an executor with CallerRunsPolicy since handlers would block the event loop");
+		}
+		this.executor = executor;
+	}
+
+	@Override
+	public void setExceptionHandler(Consumer<Exception> exceptionHandler) {
+		this.exceptionHandler = exceptionHandler;
+	}
+
+	/**
+	 * Report an exception caught on an event loop
+	 */
+	void exceptionCaught(Exception exception) {
+		Consumer<Exception> handler = exceptionHandler;
+		if (handler == null) {
+			return;
+		}
+		try {
+			handler.accept(exception);
+		} catch (RuntimeException ignored) {
+			// Thrown on the event loop which has to keep running
+		}
+	}
+
+	/**
+	 * @return The pool of direct buffers responses are written with
+	 */
+	ByteBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	@Override
+	public void start(TransportHandler handler) {
+		if (serverChannel == null) {
+			throw new IllegalStateException("Transport is not bound");
+		}
+		checkNotRunning();
+		this.handler = handler;
+		if (executor == null) {
+			ownedExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("NIOTransport-worker", true));
+			executor = ownedExecutor;
+		}
+
+		bufferPool = new ByteBufferPool(bufferSize + WRITE_BUFFER_HEADROOM, eventLoopCount * POOLED_WRITE_BUFFERS_PER_LOOP, true);
+
+		String name = "NIOTransport-" + address.getPort();
+		eventLoops = new NIOEventLoop[eventLoopCount];
+		try {
+			for (int i = 0; i < eventLoops.length; i++) {
+				eventLoops[i] = new NIOEventLoop(this, name + "-loop-" + i);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to open selector", e);
+		}
+
+		running = true;
+		for (NIOEventLoop loop : eventLoops) {
+			loop.start();
+		}
+		acceptor = new Thread(this::accept, name + "-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	private void accept() {
+		while (running) {
+			SocketChannel channel;
+			try {
+				channel = serverChannel.accept();
+			} catch (ClosedChannelException e) {
+				break;
+			} catch (IOException e) {
+				if (!running || !serverChannel.isOpen()) {
+					break;
+				}
+				// Usually out of file descriptors. Retrying right away would only spin
+				exceptionCaught(e);
+				try {
+					Thread.sleep(ACCEPT_RETRY_DELAY_MILLIS);
+				} catch (InterruptedException interrupted) {
+					break;
+				}
+				continue;
+			}
+			try {
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			} catch (IOException ignored) {
+			}
+			NIOEventLoop loop = eventLoops[nextLoop];
+			nextLoop = (nextLoop + 1) % eventLoops.length;
+			loop.register(channel);
+		}
+	}
+
+	/**
+	 * Run the handler for an exchange on the executor. Called on the event loop
+	 * thread, which must never run the handler itself
+	 */
+	void dispatch(NIOExchange exchange) {
+		Runnable task = () -> {
+			if (exchange.inEventLoop()) {
+				// The executor ran the task on the calling thread
+				reject(exchange);
+				return;
+			}
+			try {
+				handler.handle(exchange);
+			} catch (Throwable e) {
+				if (e instanceof Exception) {
+					exceptionCaught((Exception) e);
+				} else {
+					exceptionCaught(new RuntimeException("Handler failed", e));
+				}
+				exchange.abort();
+			}
+		};
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			reject(exchange);
+		}
+	}
+
+	/**
+	 * Answer a request the executor had no room for and close the connection.
+	 * Called on the event loop thread
+	 */
+	private void reject(NIOExchange exchange) {
+		try {
+			handler.reject(exchange);
+		} catch (Exception e) {
+			exceptionCaught(e);
+			exchange.abort();
+		}
+	}
+
+	@Override
+	public void stopAccepting() {
+		try {
+			// Wakes up the acceptor thread which then exits
+			serverChannel.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	@Override
+	public void stop(int delay) {
+		if (!running) {
+			return;
+		}
+		running = false;
+		stopAccepting();
+		for (NIOEventLoop loop : eventLoops) {
+			loop.shutdown();
+		}
+		if (ownedExecutor != null) {
+			ownedExecutor.shutdown();
+			try {
+				ownedExecutor.awaitTermination(delay, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			ownedExecutor.shutdownNow();
+			ownedExecutor = null;
+			executor = null;
+		}
+	}
+
+	@Override
+	public InetSocketAddress getAddress() {
+		return address;
+	}
+}
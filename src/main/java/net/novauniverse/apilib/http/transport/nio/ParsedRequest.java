@@ -0,0 +1,62 @@
+package net.novauniverse.apilib.http.transport.nio;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A request read by the {@link HTTPRequestParser}. If the request could not be
+ * parsed the error code is set and the connection will be closed after the
+ * error has been sent
+ *
+ * @author Zeeraa
+ */
+final class ParsedRequest {
+	final String method;
+	final String uri;
+	final String protocol;
+	final Map<String, List<String>> headers;
+	final boolean keepAlive;
+	long contentLength;
+	RequestBody body;
+
+	final int errorCode;
+	final String errorMessage;
+
+	ParsedRequest(String method, String uri, String protocol, Map<String, List<String>> headers, boolean keepAlive) {
+		this.method = method;
+		this.uri = uri;
+		this.protocol = protocol;
+		this.headers = headers;
+		this.keepAlive = keepAlive;
+		this.contentLength = 0;
+		this.body = null;
+		this.errorCode = 0;
+		this.errorMessage = null;
+	}
+
+	private ParsedRequest(int errorCode, String errorMessage) {
+		this.method = null;
+		this.uri = null;
+		this.protocol = "HTTP/1.1";
+		this.headers = null;
+		this.keepAlive = false;
+		this.errorCode = errorCode;
+		this.errorMessage = errorMessage;
+	}
+
+	static ParsedRequest error(int code, String message) {
+		return new ParsedRequest(code, message);
+	}
+
+	boolean isError() {
+		return errorCode != 0;
+	}
+
+	String getFirstHeader(String name) {
+		List<String> values = headers.get(name);
+		if (values == null || values.isEmpty()) {
+			return null;
+		}
+		return values.get(0);
+	}
+}
@@ -0,0 +1,258 @@
+package net.novauniverse.apilib.http.transport.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * The body of a request received by a {@link NIOTransport}. The event loop adds
+ * the bytes as they arrive and the handler reads them on its own thread.
+ * Reading from the socket is paused while too much unread data is buffered, so
+ * uploads are never held in memory as a whole. <code>100 Continue</code> is
+ * only sent once the handler starts reading, so requests rejected before that
+ * never upload their body
+ *
+ * @author Zeeraa
+ */
+final class RequestBody extends InputStream {
+	/**
+	 * The max amount of unread bytes that are skipped to keep a connection alive
+	 * after the handler finished without reading the whole body
+	 */
+	static final int MAX_DISCARD_SIZE = 64 * 1024;
+
+	private final NIOConnection connection;
+	private final long contentLength;
+	private final int highWaterMark;
+	private ArrayDeque<byte[]> chunks;
+	private int chunkPosition;
+	private int buffered;
+	private long received;
+	private long discarded;
+	private boolean complete;
+	private boolean discarding;
+	private boolean paused;
+	private boolean closed;
+	private IOException error;
+	private boolean continueExpected;
+	private NIOExchange exchange;
+
+	/**
+	 * @param connection       The {@link NIOConnection} the body is received on
+	 * @param contentLength    The length of the body or -1 if it is chunked
+	 * @param continueExpected <code>true</code> if the client waits for
+	 *                         <code>100 Continue</code> before sending the body
+	 * @param highWaterMark    The amount of unread bytes at which reading from the
+	 *                         socket is paused
+	 */
+	RequestBody(NIOConnection connection, long contentLength, boolean continueExpected, int highWaterMark) {
+		this.connection = connection;
+		this.contentLength = contentLength;
+		this.highWaterMark = highWaterMark;
+		this.chunks = null;
+		this.chunkPosition = 0;
+		this.buffered = 0;
+		this.received = 0;
+		this.discarded = 0;
+		this.complete = false;
+		this.discarding = false;
+		this.paused = false;
+		this.closed = false;
+		this.error = null;
+		this.continueExpected = continueExpected;
+		this.exchange = null;
+	}
+
+	void setExchange(NIOExchange exchange) {
+		this.exchange = exchange;
+	}
+
+	/**
+	 * Add received bytes. Called on the event loop thread
+	 *
+	 * @param buffer The buffer to take the bytes from
+	 * @param amount The number of bytes to take
+	 */
+	synchronized void offer(ByteBuffer buffer, int amount) {
+		received += amount;
+		if (discarding || closed) {
+			buffer.position(buffer.position() + amount);
+			discarded += amount;
+			return;
+		}
+		// Copied since the event loop reuses its read buffer
+		byte[] chunk = new byte[amount];
+		buffer.get(chunk);
+		if (chunks == null) {
+			chunks = new ArrayDeque<>();
+		}
+		chunks.add(chunk);
+		buffered += amount;
+		notifyAll();
+	}
+
+	/**
+	 * Mark the body as fully received. Called on the event loop thread
+	 */
+	synchronized void complete() {
+		complete = true;
+		notifyAll();
+	}
+
+	/**
+	 * Fail the body so the handler gets the exception once it has read the bytes
+	 * received before the error. Called on the event loop thread
+	 *
+	 * @param exception The {@link IOException} to throw
+	 * @return <code>true</code> if the handler has already finished and nobody is
+	 *         going to read the error
+	 */
+	synchronized boolean fail(IOException exception) {
+		if (!complete && error == null) {
+			error = exception;
+			notifyAll();
+		}
+		return discarding;
+	}
+
+	/**
+	 * Check if reading from the socket should be paused. Called on the event loop
+	 * thread
+	 *
+	 * @return <code>true</code> if too much data is waiting to be read by the
+	 *         handler
+	 */
+	synchronized boolean isFull() {
+		paused = !discarding && !closed && buffered >= highWaterMark;
+		return paused;
+	}
+
+	/**
+	 * Drop the rest of the body after the handler finished so the next request on
+	 * the connection can be read. Called on the event loop thread
+	 *
+	 * @return <code>false</code> if the connection has to be closed instead since
+	 *         the rest of the body is too large or was never requested by the
+	 *         client
+	 */
+	synchronized boolean discardRemaining() {
+		chunks = null;
+		chunkPosition = 0;
+		buffered = 0;
+		if (complete) {
+			return true;
+		}
+		if (error != null || continueExpected) {
+			return false;
+		}
+		if (contentLength >= 0 && contentLength - received > MAX_DISCARD_SIZE) {
+			return false;
+		}
+		discarding = true;
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if more unread bytes than
+	 *         {@link RequestBody#MAX_DISCARD_SIZE} have been skipped
+	 */
+	synchronized boolean isDiscardLimitExceeded() {
+		return discarding && discarded > MAX_DISCARD_SIZE;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		sendContinue();
+		boolean resume = false;
+		int amount;
+		synchronized (this) {
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+			while (buffered == 0) {
+				if (error != null) {
+					throw error;
+				}
+				if (complete) {
+					return -1;
+				}
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+			byte[] chunk = chunks.peek();
+			amount = Math.min(len, chunk.length - chunkPosition);
+			System.arraycopy(chunk, chunkPosition, b, off, amount);
+			chunkPosition += amount;
+			if (chunkPosition == chunk.length) {
+				chunks.poll();
+				chunkPosition = 0;
+			}
+			buffered -= amount;
+			if (paused && buffered < highWaterMark / 2) {
+				paused = false;
+				resume = true;
+			}
+		}
+		if (resume) {
+			connection.resumeReading();
+		}
+		return amount;
+	}
+
+	@Override
+	public synchronized int available() throws IOException {
+		return buffered;
+	}
+
+	@Override
+	public void close() throws IOException {
+		boolean resume;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			chunks = null;
+			chunkPosition = 0;
+			buffered = 0;
+			resume = paused;
+			paused = false;
+		}
+		if (resume) {
+			connection.resumeReading();
+		}
+	}
+
+	private void sendContinue() throws IOException {
+		synchronized (this) {
+			if (!continueExpected) {
+				return;
+			}
+			continueExpected = false;
+			if (complete || error != null) {
+				// The client did not wait for 100 Continue
+				return;
+			}
+		}
+		// Sent outside of the lock since sending can block until the event loop has
+		// written queued data
+		if (exchange != null) {
+			exchange.sendContinue();
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package net.novauniverse.apilib.http.utilities;
+
+import net.novauniverse.apilib.http.enums.HTTPResponseCode;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Utilities for <code>ETag</code>, <code>Last-Modified</code> and conditional
+ * requests using <code>If-None-Match</code> and
+ * <code>If-Modified-Since</code>
+ *
+ * @author Zeeraa
+ */
+public class ConditionalRequestUtilities {
+	private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+	/**
+	 * Create a strong <code>ETag</code> from an encoded body. Uses the length and
+	 * CRC32 of the body which is fast enough to run on every response
+	 *
+	 * @param body The encoded body
+	 * @return The quoted <code>ETag</code>
+	 */
+	public static String computeETag(byte[] body) {
+		CRC32 crc = new CRC32();
+		crc.update(body, 0, body.length);
+		return "\"" + Integer.toHexString(body.length) + "-" + Long.toHexString(crc.getValue()) + "\"";
+	}
+
+	/**
+	 * Quote a version token so it can be used as an <code>ETag</code>. Tokens that
+	 * are already quoted or weak are returned as they are
+	 *
+	 * @param version The version token
+	 * @return The quoted <code>ETag</code>
+	 */
+	public static String toETag(String version) {
+		if (version.startsWith("\"") || version.startsWith("W/\"")) {
+			return version;
+		}
+		return "\"" + version.replace("\"", "") + "\"";
+	}
+
+	/**
+	 * Format a time as a http date like <code>Sun, 06 Nov 1994 08:49:37 GMT</code>
+	 *
+	 * @param epochMillis The time in milliseconds since the epoch
+	 * @return The formatted date
+	 */
+	public static String formatDate(long epochMillis) {
+		return HTTP_DATE.format(Instant.ofEpochMilli(epochMillis));
+	}
+
+	/**
+	 * Parse a http date
+	 *
+	 * @param date The date
+	 * @return The time in milliseconds since the epoch or -1 if the date is invalid
+	 */
+	public static long parseDate(String date) {
+		try {
+			return ZonedDateTime.parse(date.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+		} catch (DateTimeParseException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Check if the client already has the current version of a response.
+	 * <code>If-None-Match</code> is used if present, otherwise
+	 * <code>If-Modified-Since</code>. Only <code>GET</code> and
+	 * <code>HEAD</code> requests can be not modified
+	 *
+	 * @param exchange     The {@link TransportExchange}
+	 * @param etag         The quoted <code>ETag</code> of the current version or
+	 *                     <code>null</code>
+	 * @param lastModified The time the response last changed in milliseconds since
+	 *                     the epoch or -1 if unknown
+	 * @return <code>true</code> if a <code>304 Not Modified</code> response
+	 *         should be sent
+	 */
+	public static boolean isNotModified(TransportExchange exchange, String etag, long lastModified) {
+		String method = exchange.getRequestMethod();
+		if (!method.equals("GET") && !method.equals("HEAD")) {
+			return false;
+		}
+
+		String ifNoneMatch = exchange.getFirstRequestHeader(HTTPHeaders.IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			return etag != null && matches(ifNoneMatch, etag);
+		}
+
+		if (lastModified >= 0) {
+			String ifModifiedSince = exchange.getFirstRequestHeader(HTTPHeaders.IF_MODIFIED_SINCE);
+			if (ifModifiedSince != null) {
+				long since = parseDate(ifModifiedSince);
+				// Http dates only have second precision
+				return since >= 0 && lastModified / 1000 <= since / 1000;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check if an <code>If-None-Match</code> header matches an <code>ETag</code>
+	 * using the weak comparison
+	 *
+	 * @param ifNoneMatch The value of the <code>If-None-Match</code> header
+	 * @param etag        The quoted <code>ETag</code>
+	 * @return <code>true</code> if any of the listed tags match
+	 */
+	public static boolean matches(String ifNoneMatch, String etag) {
+		String opaque = stripWeak(etag);
+		int start = 0;
+		int length = ifNoneMatch.length();
+		while (start < length) {
+			int end = ifNoneMatch.indexOf(',', start);
+			if (end < 0) {
+				end = length;
+			}
+			String tag = ifNoneMatch.substring(start, end).trim();
+			if (tag.equals("*") || stripWeak(tag).equals(opaque)) {
+				return true;
+			}
+			start = end + 1;
+		}
+		return false;
+	}
+
+	private static String stripWeak(String etag) {
+		return etag.startsWith("W/") ? etag.substring(2) : etag;
+	}
+
+	/**
+	 * Add the <code>ETag</code> and <code>Last-Modified</code> headers
+	 *
+	 * @param exchange     The {@link TransportExchange}
+	 * @param etag         The quoted <code>ETag</code> or <code>null</code>
+	 * @param lastModified The time in milliseconds since the epoch or -1
+	 */
+	public static void setValidators(TransportExchange exchange, String etag, long lastModified) {
+		if (etag != null) {
+			exchange.setResponseHeader(HTTPHeaders.ETAG, etag);
+		}
+		if (lastModified >= 0) {
+			exchange.setResponseHeader(HTTPHeaders.LAST_MODIFIED, formatDate(lastModified));
+		}
+	}
+
+	/**
+	 * Send an empty <code>304 Not Modified</code> response with the validators
+	 *
+	 * @param exchange     The {@link TransportExchange}
+	 * @param etag         The quoted <code>ETag</code> or <code>null</code>
+	 * @param lastModified The time in milliseconds since the epoch or -1
+	 * @throws IOException If the response could not be sent
+	 */
+	public static void sendNotModified(TransportExchange exchange, String etag, long lastModified) throws IOException {
+		setValidators(exchange, etag, lastModified);
+		exchange.sendResponseHeaders(HTTPResponseCode.NOT_MODIFIED.getCode(), -1);
+		exchange.getResponseBody().close();
+	}
+}
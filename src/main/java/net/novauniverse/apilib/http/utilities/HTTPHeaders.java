@@ -0,0 +1,48 @@
+package net.novauniverse.apilib.http.utilities;
+
+/**
+ * Names of common http headers. The names are written the way
+ * {@link com.sun.net.httpserver.Headers} stores them, with only the first
+ * letter in upper case, so looking them up does not copy the name
+ *
+ * @author Zeeraa
+ */
+public final class HTTPHeaders {
+	public static final String ACCEPT = "Accept";
+	public static final String ACCEPT_ENCODING = "Accept-encoding";
+	public static final String ACCESS_CONTROL_ALLOW_CREDENTIALS = "Access-control-allow-credentials";
+	public static final String ACCESS_CONTROL_ALLOW_HEADERS = "Access-control-allow-headers";
+	public static final String ACCESS_CONTROL_ALLOW_METHODS = "Access-control-allow-methods";
+	public static final String ACCESS_CONTROL_ALLOW_ORIGIN = "Access-control-allow-origin";
+	public static final String ACCESS_CONTROL_EXPOSE_HEADERS = "Access-control-expose-headers";
+	public static final String ACCESS_CONTROL_MAX_AGE = "Access-control-max-age";
+	public static final String ACCESS_CONTROL_REQUEST_HEADERS = "Access-control-request-headers";
+	public static final String ACCESS_CONTROL_REQUEST_METHOD = "Access-control-request-method";
+	public static final String ALLOW = "Allow";
+	public static final String AUTHORIZATION = "Authorization";
+	public static final String CACHE_CONTROL = "Cache-control";
+	public static final String CONNECTION = "Connection";
+	public static final String CONTENT_DISPOSITION = "Content-disposition";
+	public static final String CONTENT_ENCODING = "Content-encoding";
+	public static final String CONTENT_LENGTH = "Content-length";
+	public static final String CONTENT_TYPE = "Content-type";
+	public static final String COOKIE = "Cookie";
+	public static final String DATE = "Date";
+	public static final String ETAG = "Etag";
+	public static final String EXPECT = "Expect";
+	public static final String HOST = "Host";
+	public static final String IF_MODIFIED_SINCE = "If-modified-since";
+	public static final String IF_NONE_MATCH = "If-none-match";
+	public static final String LAST_MODIFIED = "Last-modified";
+	public static final String LOCATION = "Location";
+	public static final String ORIGIN = "Origin";
+	public static final String RETRY_AFTER = "Retry-after";
+	public static final String SET_COOKIE = "Set-cookie";
+	public static final String TRANSFER_ENCODING = "Transfer-encoding";
+	public static final String USER_AGENT = "User-agent";
+	public static final String VARY = "Vary";
+	public static final String X_FORWARDED_FOR = "X-forwarded-for";
+
+	private HTTPHeaders() {
+	}
+}
@@ -2,29 +2,154 @@ package net.novauniverse.apilib.http.utilities;
 
 import com.sun.net.httpserver.Headers;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Utilities from headers
- * 
+ *
  * @author Zeeraa
  */
 public class HeaderUtilities {
 	/**
 	 * Convert a {@link com.sun.net.httpserver.Headers} object into a {@link Map}
 	 * with headers
-	 * 
+	 *
 	 * @param headers The {@link com.sun.net.httpserver.Headers} object
 	 * @return {@link Map} with headers
 	 */
 	public static Map<String, List<String>> headersToMap(Headers headers) {
+		return headersToMap((Map<String, List<String>>) headers);
+	}
+
+	/**
+	 * Copy a {@link Map} with headers
+	 *
+	 * @param headers The {@link Map} with headers
+	 * @return {@link Map} with headers
+	 */
+	public static Map<String, List<String>> headersToMap(Map<String, List<String>> headers) {
 		Map<String, List<String>> result = new HashMap<>();
 		headers.forEach((key, value) -> {
 			result.put(key, new ArrayList<>(value));
 		});
 		return result;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Get all values of a header. {@link com.sun.net.httpserver.Headers} only
+	 * copies the name if it is not already in its normalized form, so lookups
+	 * with the names in {@link HTTPHeaders} do not allocate
+	 *
+	 * @param headers The {@link Map} with headers
+	 * @param name    The name of the header. Case insensitive if the map is
+	 * @return The values or <code>null</code> if the header is not present
+	 */
+	public static List<String> get(Map<String, List<String>> headers, String name) {
+		return headers.get(name);
+	}
+
+	/**
+	 * Get the first value of a header without allocating
+	 *
+	 * @param headers The {@link Map} with headers
+	 * @param name    The name of the header. Case insensitive if the map is
+	 * @return The value or <code>null</code> if the header is not present
+	 */
+	public static String getFirst(Map<String, List<String>> headers, String name) {
+		List<String> values = get(headers, name);
+		if (values == null || values.isEmpty()) {
+			return null;
+		}
+		return values.get(0);
+	}
+
+	/**
+	 * Create a read only view of a {@link Map} with headers. The view is not a
+	 * copy so it shows later changes to the headers
+	 *
+	 * @param headers The {@link Map} with headers
+	 * @return Read only {@link Map} with case insensitive lookups
+	 */
+	public static Map<String, List<String>> readOnlyView(Map<String, List<String>> headers) {
+		return new ReadOnlyHeaders(headers);
+	}
+
+	private static class ReadOnlyHeaders extends AbstractMap<String, List<String>> {
+		private final Map<String, List<String>> headers;
+		private final Set<Map.Entry<String, List<String>>> entrySet;
+		private final Map<List<String>, List<String>> views;
+
+		private ReadOnlyHeaders(Map<String, List<String>> headers) {
+			this.headers = headers;
+			this.entrySet = new EntrySet();
+			this.views = new IdentityHashMap<>();
+		}
+
+		@Override
+		public List<String> get(Object key) {
+			if (!(key instanceof String)) {
+				return null;
+			}
+			List<String> values = HeaderUtilities.get(headers, (String) key);
+			return values == null ? null : view(values);
+		}
+
+		/**
+		 * Get the read only view of a list of values. Views are kept for as long as
+		 * the headers so looking up the same header again does not create a new one
+		 */
+		private List<String> view(List<String> values) {
+			synchronized (views) {
+				return views.computeIfAbsent(values, Collections::unmodifiableList);
+			}
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof String && HeaderUtilities.get(headers, (String) key) != null;
+		}
+
+		@Override
+		public int size() {
+			return headers.size();
+		}
+
+		@Override
+		public Set<Map.Entry<String, List<String>>> entrySet() {
+			return entrySet;
+		}
+
+		private class EntrySet extends AbstractSet<Map.Entry<String, List<String>>> {
+			@Override
+			public Iterator<Map.Entry<String, List<String>>> iterator() {
+				Iterator<Map.Entry<String, List<String>>> iterator = headers.entrySet().iterator();
+				return new Iterator<Map.Entry<String, List<String>>>() {
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public Map.Entry<String, List<String>> next() {
+						Map.Entry<String, List<String>> entry = iterator.next();
+						return new SimpleImmutableEntry<>(entry.getKey(), view(entry.getValue()));
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return headers.size();
+			}
+		}
+	}
+}
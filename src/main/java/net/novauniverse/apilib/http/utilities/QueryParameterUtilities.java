@@ -1,34 +1,77 @@
 package net.novauniverse.apilib.http.utilities;
 
-import java.util.HashMap;
+import net.novauniverse.apilib.http.request.QueryParameters;
+
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 /**
  * Utilities from query parameters
- * 
+ *
  * @author Zeeraa
  */
 public class QueryParameterUtilities {
 	/**
-	 * Get a {@link Map} with all query parameters from a provided query
-	 * 
+	 * Get a {@link Map} with all query parameters from a provided query. Keys and
+	 * values are decoded and only the first value of repeated keys is kept. Use
+	 * {@link QueryParameters} to get all values
+	 *
 	 * @param query The query to parse
 	 * @return {@link Map} with query parameters
 	 */
 	public static Map<String, String> queryToMap(String query) {
-		try {
-			Map<String, String> result = new HashMap<>();
-			for (String param : query.split("&")) {
-				String[] pair = param.split("=");
-				if (pair.length > 1) {
-					result.put(pair[0], pair[1]);
-				} else {
-					result.put(pair[0], "");
+		return QueryParameters.parse(query).toMap();
+	}
+
+	/**
+	 * Decode a part of a <code>application/x-www-form-urlencoded</code> string.
+	 * <code>+</code> is decoded to a space and percent escapes are decoded as
+	 * UTF-8. Invalid escapes are kept as they are
+	 *
+	 * @param text  The text to decode
+	 * @param start The index of the first character to decode
+	 * @param end   The index after the last character to decode
+	 * @return The decoded text
+	 */
+	public static String decode(String text, int start, int end) {
+		StringBuilder result = new StringBuilder(end - start);
+		byte[] bytes = null;
+		int i = start;
+		while (i < end) {
+			char c = text.charAt(i);
+			if (c == '+') {
+				result.append(' ');
+				i++;
+			} else if (c == '%' && isEscape(text, i, end)) {
+				// Collect all escapes in a row since a character can be several bytes
+				if (bytes == null) {
+					bytes = new byte[(end - i) / 3];
+				}
+				int length = 0;
+				while (i < end && text.charAt(i) == '%' && isEscape(text, i, end)) {
+					bytes[length++] = (byte) ((Character.digit(text.charAt(i + 1), 16) << 4) | Character.digit(text.charAt(i + 2), 16));
+					i += 3;
 				}
+				result.append(new String(bytes, 0, length, StandardCharsets.UTF_8));
+			} else {
+				result.append(c);
+				i++;
 			}
-			return result;
-		} catch (Exception e) {
-			return new HashMap<String, String>();
 		}
+		return result.toString();
+	}
+
+	/**
+	 * Decode a <code>application/x-www-form-urlencoded</code> string
+	 *
+	 * @param text The text to decode
+	 * @return The decoded text
+	 */
+	public static String decode(String text) {
+		return decode(text, 0, text.length());
+	}
+
+	private static boolean isEscape(String text, int index, int end) {
+		return index + 2 < end && Character.digit(text.charAt(index + 1), 16) >= 0 && Character.digit(text.charAt(index + 2), 16) >= 0;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package net.novauniverse.apilib.http.body;
+
+import net.novauniverse.apilib.http.exception.RequestBodyTooLargeException;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ByteBufferBodyParserTest {
+    @Test
+    public void rejectsChunkedBodySmallerThanPooledBuffer() {
+        ByteBufferBodyParser parser = new ByteBufferBodyParser(new ByteBufferPool(16384, 4, false), 100);
+        assertThrows(RequestBodyTooLargeException.class, () -> parser.parse(new BodyExchange(new byte[10000])));
+    }
+
+    @Test
+    public void rejectsChunkedBodyOneByteOverLimit() {
+        ByteBufferBodyParser parser = new ByteBufferBodyParser(new ByteBufferPool(16384, 4, false), 100);
+        assertThrows(RequestBodyTooLargeException.class, () -> parser.parse(new BodyExchange(new byte[101])));
+    }
+
+    @Test
+    public void acceptsBodyAtLimit() throws Exception {
+        ByteBufferBodyParser parser = new ByteBufferBodyParser(new ByteBufferPool(16384, 4, false), 100);
+        ByteBuffer body = parser.parse(new BodyExchange(new byte[100]));
+        assertEquals(100, body.remaining());
+    }
+
+    @Test
+    public void growsPastPooledBufferWithoutLimit() throws Exception {
+        ByteBufferBodyParser parser = new ByteBufferBodyParser(new ByteBufferPool(1024, 4, false), -1);
+        ByteBuffer body = parser.parse(new BodyExchange(new byte[10000]));
+        assertEquals(10000, body.remaining());
+    }
+
+    /**
+     * Exchange with a body sent without <code>Content-Length</code>
+     */
+    private static class BodyExchange implements TransportExchange {
+        private final byte[] body;
+        private final Map<String, List<String>> responseHeaders = new HashMap<>();
+
+        private BodyExchange(byte[] body) {
+            this.body = body;
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return "POST";
+        }
+
+        @Override
+        public URI getRequestURI() {
+            return URI.create("/");
+        }
+
+        @Override
+        public String getProtocol() {
+            return "HTTP/1.1";
+        }
+
+        @Override
+        public Map<String, List<String>> getRequestHeaders() {
+            return new HashMap<>();
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return responseHeaders;
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void sendResponseHeaders(int code, long length) {
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
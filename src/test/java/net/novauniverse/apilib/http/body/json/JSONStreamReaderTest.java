@@ -0,0 +1,105 @@
+package net.novauniverse.apilib.http.body.json;
+
+import net.novauniverse.apilib.http.exception.JSONParseException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JSONStreamReaderTest {
+    @Test
+    public void readsNestedDocument() throws IOException {
+        JSONStreamReader reader = reader("{\"names\": [\"a\", \"b\"], \"count\": 2, \"ok\": true, \"none\": null}");
+        JSONObject object = (JSONObject) reader.readValue();
+        reader.endDocument();
+        assertEquals(new JSONArray().put("a").put("b").toString(), object.getJSONArray("names").toString());
+        assertEquals(2, object.getInt("count"));
+        assertTrue(object.getBoolean("ok"));
+        assertTrue(object.isNull("none"));
+    }
+
+    @Test
+    public void decodesEscapes() throws IOException {
+        assertEquals("\"\\/\b\f\n\r\t", reader("\"\\\"\\\\\\/\\b\\f\\n\\r\\t\"").nextString());
+        assertEquals("\u00e9\ud83d\ude00", reader("\"\\u00E9\\ud83d\\ude00\"").nextString());
+    }
+
+    @Test
+    public void rejectsInvalidEscapes() {
+        assertThrows(JSONParseException.class, () -> reader("\"\\x\"").nextString());
+        assertThrows(JSONParseException.class, () -> reader("\"\\u12g4\"").nextString());
+        assertThrows(JSONParseException.class, () -> reader("\"\\u12").nextString());
+        assertThrows(JSONParseException.class, () -> reader("\"unterminated").nextString());
+    }
+
+    @Test
+    public void rejectsControlCharactersInStrings() {
+        assertThrows(JSONParseException.class, () -> reader("\"a\nb\"").nextString());
+    }
+
+    @Test
+    public void readsNumbers() throws IOException {
+        assertEquals(-12, reader("-12").nextInt());
+        assertEquals(9007199254740993L, reader("9007199254740993").nextLong());
+        assertEquals(-500.0, reader("-0.5e+3").nextDouble());
+        assertEquals(0.25, reader("25E-2").nextDouble());
+    }
+
+    @Test
+    public void rejectsInvalidNumbers() {
+        for (String number : new String[] { "01", "1.", ".5", "-", "1e", "1e+", "+1", "0x10", "1.2.3", "--1" }) {
+            assertThrows(JSONParseException.class, () -> {
+                JSONStreamReader reader = reader(number);
+                reader.nextNumber();
+                reader.endDocument();
+            }, number);
+        }
+    }
+
+    @Test
+    public void rejectsIntOverflow() {
+        assertThrows(JSONParseException.class, () -> reader("2147483648").nextInt());
+    }
+
+    @Test
+    public void enforcesMaxDepth() throws IOException {
+        JSONStreamReader reader = new JSONStreamReader(new StringReader("[[1]]"), 2);
+        assertEquals("[[1]]", reader.readValue().toString());
+        assertThrows(JSONParseException.class, () -> new JSONStreamReader(new StringReader("[[[1]]]"), 2).readValue());
+        assertThrows(JSONParseException.class, () -> new JSONStreamReader(new StringReader("{\"a\":{\"b\":{}}}"), 2).readValue());
+    }
+
+    @Test
+    public void rejectsTrailingData() throws IOException {
+        JSONStreamReader reader = reader("{} \n ");
+        reader.readValue();
+        reader.endDocument();
+
+        JSONStreamReader trailing = reader("{} {}");
+        trailing.readValue();
+        assertThrows(JSONParseException.class, trailing::endDocument);
+
+        JSONStreamReader garbage = reader("[1] x");
+        garbage.readValue();
+        assertThrows(JSONParseException.class, garbage::endDocument);
+    }
+
+    @Test
+    public void rejectsStructuralErrors() {
+        assertThrows(JSONParseException.class, () -> reader("{\"a\" 1}").readValue());
+        assertThrows(JSONParseException.class, () -> reader("[1,]").readValue());
+        assertThrows(JSONParseException.class, () -> reader("{\"a\":1,}").readValue());
+        assertThrows(JSONParseException.class, () -> reader("[1").readValue());
+        assertThrows(JSONParseException.class, () -> reader("tru").readValue());
+    }
+
+    private static JSONStreamReader reader(String json) {
+        return new JSONStreamReader(new StringReader(json));
+    }
+}
@@ -0,0 +1,254 @@
+package net.novauniverse.apilib.http.body.multipart;
+
+import net.novauniverse.apilib.http.exception.MultipartParseException;
+import net.novauniverse.apilib.http.exception.RequestBodyTooLargeException;
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MultipartBodyParserTest {
+    private static final String BOUNDARY = "----boundary42";
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    public void parsesFieldsAndFiles() throws IOException {
+        String body = "preamble\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                + "hello\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"upload\"; filename=\"a.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + "line one\r\nline two\r\n"
+                + "--" + BOUNDARY + "--\r\nepilogue";
+        try (MultipartBody multipart = parser().parse(new BodyExchange(bytes(body), 0))) {
+            assertEquals(2, multipart.size());
+            assertEquals("hello", multipart.getField("title"));
+            MultipartPart file = multipart.getPart("upload");
+            assertEquals("a.txt", file.getFileName());
+            assertEquals("text/plain", file.getContentType());
+            assertEquals("line one\r\nline two", file.getString());
+            assertTrue(file.isFile());
+            assertNull(multipart.getPart("missing"));
+        }
+    }
+
+    @Test
+    public void findsBoundarySplitAcrossReads() throws IOException {
+        byte[] data = new byte[40000];
+        for (int i = 0; i < data.length; i++) {
+            // Contains parts of the delimiter without ever forming it
+            data[i] = (byte) "\r\n------boundary4".charAt(i % 17);
+        }
+        byte[] body = multipart(data, "second".getBytes(StandardCharsets.ISO_8859_1));
+        for (int chunk : new int[] { 1, 3, 7, 4093, 16384 }) {
+            try (MultipartBody multipart = parser().parse(new BodyExchange(body, chunk))) {
+                assertEquals(2, multipart.size(), "chunk " + chunk);
+                assertArrayEquals(data, multipart.getParts().get(0).getBytes(), "chunk " + chunk);
+                assertEquals("second", multipart.getParts().get(1).getString(), "chunk " + chunk);
+            }
+        }
+    }
+
+    @Test
+    public void findsBoundaryWithSmallBuffer() throws IOException {
+        byte[] body = multipart("abc".getBytes(StandardCharsets.ISO_8859_1), new byte[0]);
+        MultipartReader reader = new MultipartReader(new ByteArrayInputStream(body), BOUNDARY, 1);
+        assertTrue(reader.skipPreamble());
+        reader.readHeaders(1024);
+        PartOutput first = new PartOutput(1024, -1, tempDirectory);
+        assertTrue(reader.readPart(first));
+        assertEquals("abc", first.finish("a", null, null, new TreeMap<>()).getString());
+        reader.readHeaders(1024);
+        PartOutput second = new PartOutput(1024, -1, tempDirectory);
+        assertFalse(reader.readPart(second));
+        assertEquals(0, second.finish("b", null, null, new TreeMap<>()).getSize());
+    }
+
+    @Test
+    public void spoolsLargePartsToDisk() throws IOException {
+        byte[] data = new byte[5000];
+        Arrays.fill(data, (byte) 'x');
+        MultipartBody multipart = parser().setMemoryThreshold(1024).parse(new BodyExchange(multipart(data, "small".getBytes(StandardCharsets.ISO_8859_1)), 0));
+        MultipartPart large = multipart.getParts().get(0);
+        MultipartPart small = multipart.getParts().get(1);
+        assertFalse(large.isInMemory());
+        assertTrue(small.isInMemory());
+        assertEquals(5000, large.getSize());
+        Path file = large.getPath();
+        assertTrue(Files.exists(file));
+        assertArrayEquals(data, large.getBytes());
+
+        multipart.close();
+        assertFalse(Files.exists(file));
+        assertNull(large.getPath());
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    public void deletesSpooledPartsWhenParsingFails() throws IOException {
+        byte[] data = new byte[5000];
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"a\"\r\n\r\n"
+                + new String(data, StandardCharsets.ISO_8859_1) + "\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"b\"\r\n\r\n"
+                + new String(data, StandardCharsets.ISO_8859_1);
+        MultipartBodyParser parser = parser().setMemoryThreshold(1024);
+        assertThrows(MultipartParseException.class, () -> parser.parse(new BodyExchange(bytes(body), 0)));
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    public void deletesSpooledPartsWhenPartIsTooLarge() throws IOException {
+        byte[] data = new byte[5000];
+        MultipartBodyParser parser = parser().setMemoryThreshold(1024).setMaxPartSize(4096);
+        assertThrows(RequestBodyTooLargeException.class, () -> parser.parse(new BodyExchange(multipart(new byte[2000], data), 0)));
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    public void rejectsInvalidBodies() {
+        assertThrows(MultipartParseException.class, () -> parser().parse(new BodyExchange(bytes("no boundary here"), 0)));
+        assertThrows(MultipartParseException.class, () -> parser().parse(new BodyExchange(bytes("--" + BOUNDARY + "\r\nbroken header\r\n\r\nx\r\n--" + BOUNDARY + "--"), 0)));
+        assertThrows(MultipartParseException.class, () -> parser().setMaxParts(1).parse(new BodyExchange(multipart(new byte[1], new byte[1]), 0)));
+
+        BodyExchange notMultipart = new BodyExchange(new byte[0], 0);
+        notMultipart.requestHeaders.put("Content-Type", list("text/plain"));
+        assertThrows(MultipartParseException.class, () -> parser().parse(notMultipart));
+    }
+
+    private MultipartBodyParser parser() {
+        return new MultipartBodyParser().setTempDirectory(tempDirectory);
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            return files.count();
+        }
+    }
+
+    private static byte[] multipart(byte[] first, byte[] second) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(bytes("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"first\"\r\n\r\n"));
+        out.write(first);
+        out.write(bytes("\r\n--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"second\"\r\n\r\n"));
+        out.write(second);
+        out.write(bytes("\r\n--" + BOUNDARY + "--\r\n"));
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static List<String> list(String value) {
+        List<String> values = new ArrayList<>();
+        values.add(value);
+        return values;
+    }
+
+    /**
+     * Exchange with a multipart body that is returned in chunks of a fixed size
+     */
+    private static class BodyExchange implements TransportExchange {
+        private final byte[] body;
+        private final int chunkSize;
+        private final Map<String, List<String>> requestHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final Map<String, List<String>> responseHeaders = new HashMap<>();
+
+        private BodyExchange(byte[] body, int chunkSize) {
+            this.body = body;
+            this.chunkSize = chunkSize;
+            requestHeaders.put("Content-Type", list("multipart/form-data; boundary=\"" + BOUNDARY + "\""));
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return "POST";
+        }
+
+        @Override
+        public URI getRequestURI() {
+            return URI.create("/");
+        }
+
+        @Override
+        public String getProtocol() {
+            return "HTTP/1.1";
+        }
+
+        @Override
+        public Map<String, List<String>> getRequestHeaders() {
+            return requestHeaders;
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return responseHeaders;
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            if (chunkSize <= 0) {
+                return new ByteArrayInputStream(body);
+            }
+            return new ByteArrayInputStream(body) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    return super.read(b, off, Math.min(len, chunkSize));
+                }
+            };
+        }
+
+        @Override
+        public void sendResponseHeaders(int code, long length) {
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
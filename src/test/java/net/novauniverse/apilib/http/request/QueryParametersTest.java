@@ -0,0 +1,94 @@
+package net.novauniverse.apilib.http.request;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryParametersTest {
+	@Test
+	public void keepsEncodedSeparatorsInValues() {
+		QueryParameters parameters = QueryParameters.parse("q=a%26b%3Dc&next=1");
+		assertEquals("a&b=c", parameters.get("q"));
+		assertEquals("1", parameters.get("next"));
+		assertEquals(2, parameters.size());
+	}
+
+	@Test
+	public void decodesPlusAndUtf8() {
+		QueryParameters parameters = QueryParameters.parse("name=J%C3%B6rg+M&plus=%2B&my+key=v");
+		assertEquals("J\u00f6rg M", parameters.get("name"));
+		assertEquals("+", parameters.get("plus"));
+		assertEquals("v", parameters.get("my key"));
+	}
+
+	@Test
+	public void keepsInvalidEscapes() {
+		QueryParameters parameters = QueryParameters.parse("a=100%&b=%zz&c=%4");
+		assertEquals("100%", parameters.get("a"));
+		assertEquals("%zz", parameters.get("b"));
+		assertEquals("%4", parameters.get("c"));
+	}
+
+	@Test
+	public void returnsAllValuesInOrder() {
+		QueryParameters parameters = QueryParameters.parse("tag=a&other=x&tag=b&tag=");
+		assertEquals(Arrays.asList("a", "b", ""), parameters.getAll("tag"));
+		assertEquals("a", parameters.get("tag"));
+		assertEquals(Collections.emptyList(), parameters.getAll("missing"));
+
+		Map<String, List<String>> expected = new LinkedHashMap<>();
+		expected.put("tag", Arrays.asList("a", "b", ""));
+		expected.put("other", Collections.singletonList("x"));
+		assertEquals(expected, parameters.toMultiMap());
+		assertEquals("a", parameters.toMap().get("tag"));
+		assertEquals(Arrays.asList("tag", "other"), Arrays.asList(parameters.names().toArray()));
+	}
+
+	@Test
+	public void handlesMissingValuesAndEmptyPairs() {
+		QueryParameters parameters = QueryParameters.parse("&flag&&empty=&=nokey&a=b=c");
+		assertTrue(parameters.has("flag"));
+		assertEquals("", parameters.get("flag"));
+		assertEquals("", parameters.get("empty"));
+		assertEquals("nokey", parameters.get(""));
+		assertEquals("b=c", parameters.get("a"));
+		assertNull(parameters.get("missing"));
+		assertFalse(parameters.has("missing"));
+		assertEquals(4, parameters.size());
+	}
+
+	@Test
+	public void matchesEncodedKeys() {
+		QueryParameters parameters = QueryParameters.parse("a%5B%5D=1&a%5B%5D=2");
+		assertEquals(Arrays.asList("1", "2"), parameters.getAll("a[]"));
+	}
+
+	@Test
+	public void parsesTypedValues() {
+		QueryParameters parameters = QueryParameters.parse("i=+42&l=9000000000&d=1.5&t=yes&f=off&bad=x");
+		assertEquals(42, parameters.getInt("i", 0));
+		assertEquals(9000000000L, parameters.getLong("l", 0));
+		assertEquals(1.5, parameters.getDouble("d", 0));
+		assertTrue(parameters.getBoolean("t", false));
+		assertFalse(parameters.getBoolean("f", true));
+		assertEquals(7, parameters.getInt("bad", 7));
+		assertTrue(parameters.getBoolean("bad", true));
+		assertEquals(3, parameters.getInt("missing", 3));
+	}
+
+	@Test
+	public void parsesEmptyQuery() {
+		assertTrue(QueryParameters.parse(null).isEmpty());
+		assertTrue(QueryParameters.parse("").isEmpty());
+		assertTrue(QueryParameters.parse("&&").isEmpty());
+	}
+}
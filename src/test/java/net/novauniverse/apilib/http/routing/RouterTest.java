@@ -0,0 +1,120 @@
+package net.novauniverse.apilib.http.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RouterTest {
+	@Test
+	public void matchesLongestPrefix() {
+		Router<String> router = new Router<>();
+		router.add("/", "root");
+		router.add("/api", "api");
+		router.add("/api/users", "users");
+		assertEquals("users", router.match("/api/users/5").getValue());
+		assertEquals("api", router.match("/api/groups").getValue());
+		assertEquals("root", router.match("/other").getValue());
+		assertEquals(3, router.size());
+	}
+
+	@Test
+	public void returnsNullWithoutMatch() {
+		Router<String> router = new Router<>();
+		router.add("/api", "api");
+		assertNull(router.match("/ap"));
+		assertNull(router.match("/other"));
+	}
+
+	@Test
+	public void prefersLiteralOverParameter() {
+		Router<String> router = new Router<>();
+		router.add("/player/{id}", "player");
+		router.add("/player/me", "me");
+		RouteMatch<String> literal = router.match("/player/me");
+		assertEquals("me", literal.getValue());
+		assertEquals(Collections.emptyMap(), literal.getPathParameters());
+
+		RouteMatch<String> parameter = router.match("/player/5");
+		assertEquals("player", parameter.getValue());
+		assertEquals("/player/{id}", parameter.getPattern());
+		assertEquals(Collections.singletonMap("id", "5"), parameter.getPathParameters());
+	}
+
+	@Test
+	public void backtracksToParameterWhenLiteralFails() {
+		Router<String> router = new Router<>();
+		router.add("/a/b/c", "literal");
+		router.add("/a/{x}/d", "parameter");
+		assertEquals("literal", router.match("/a/b/c").getValue());
+		RouteMatch<String> match = router.match("/a/b/d");
+		assertEquals("parameter", match.getValue());
+		assertEquals(Collections.singletonMap("x", "b"), match.getPathParameters());
+	}
+
+	@Test
+	public void prefersParameterMatchingMoreOfThePath() {
+		Router<String> router = new Router<>();
+		router.add("/a/b", "literal");
+		router.add("/a/{x}/d", "parameter");
+		assertEquals("parameter", router.match("/a/b/d").getValue());
+		assertEquals("literal", router.match("/a/b/e").getValue());
+	}
+
+	@Test
+	public void keepsParametersOfTheMatchedRoute() {
+		Router<String> router = new Router<>();
+		router.add("/x/{a}/y", "one");
+		router.add("/x/{a}/{b}/z", "two");
+		assertEquals(Collections.singletonMap("a", "1"), router.match("/x/1/y").getPathParameters());
+
+		Map<String, String> expected = new HashMap<>();
+		expected.put("a", "1");
+		expected.put("b", "2");
+		RouteMatch<String> match = router.match("/x/1/2/z");
+		assertEquals("two", match.getValue());
+		assertEquals(expected, match.getPathParameters());
+	}
+
+	@Test
+	public void parametersMatchOneNonEmptySegment() {
+		Router<String> router = new Router<>();
+		router.add("/player/{id}/stats", "stats");
+		assertNull(router.match("/player//stats"));
+		assertNull(router.match("/player/a/b/stats"));
+		assertEquals(Collections.singletonMap("id", "a b"), router.match("/player/a b/stats").getPathParameters());
+	}
+
+	@Test
+	public void keepsRoutesAfterSplittingNodes() {
+		Router<String> router = new Router<>();
+		router.add("/users", "users");
+		router.add("/user", "user");
+		router.add("/use", "use");
+		router.add("/u/{id}", "u");
+		assertEquals("users", router.match("/users").getValue());
+		assertEquals("user", router.match("/user").getValue());
+		assertEquals("use", router.match("/use").getValue());
+		assertEquals("u", router.match("/u/1").getValue());
+	}
+
+	@Test
+	public void rejectsInvalidPatterns() {
+		Router<String> router = new Router<>();
+		router.add("/a/{id}", "a");
+		assertThrows(IllegalArgumentException.class, () -> router.add("/a/{id}", "duplicate"));
+		assertThrows(IllegalArgumentException.class, () -> router.add("", "empty"));
+		assertThrows(IllegalArgumentException.class, () -> router.add("/b/{id", "unclosed"));
+		assertThrows(IllegalArgumentException.class, () -> router.add("/b/x{id}", "partial"));
+		assertThrows(IllegalArgumentException.class, () -> router.add("/b/{id}x", "partial"));
+		assertThrows(IllegalArgumentException.class, () -> router.add("/b/{}", "unnamed"));
+		assertThrows(IllegalArgumentException.class, () -> router.add("/b/{id}/{id}", "twice"));
+		assertThrows(IllegalArgumentException.class, () -> router.add("/b", null));
+		assertEquals(1, router.size());
+	}
+}
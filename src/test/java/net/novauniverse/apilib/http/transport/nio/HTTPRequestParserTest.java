@@ -0,0 +1,194 @@
+package net.novauniverse.apilib.http.transport.nio;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HTTPRequestParserTest {
+	@Test
+	public void parsesRequestWithoutBody() {
+		Recorder recorder = parse(-1, "GET /a?b=c HTTP/1.1\r\nHost: x\r\nX-Test:  value \r\n\r\n");
+		assertEquals(1, recorder.requests.size());
+		ParsedRequest request = recorder.requests.get(0);
+		assertEquals("GET", request.method);
+		assertEquals("/a?b=c", request.uri);
+		assertEquals("value", request.getFirstHeader("x-test"));
+		assertTrue(request.keepAlive);
+		assertEquals(0, request.contentLength);
+		assertNull(recorder.error);
+	}
+
+	@Test
+	public void parsesPipelinedRequests() {
+		Recorder recorder = parse(-1, "POST /one HTTP/1.1\r\nContent-Length: 5\r\n\r\nhelloGET /two HTTP/1.1\r\n\r\nGET /three HTTP/1.1\r\nConnection: close\r\n\r\n");
+		assertEquals(3, recorder.requests.size());
+		assertEquals("hello", recorder.body(0));
+		assertEquals("/two", recorder.requests.get(1).uri);
+		assertEquals("/three", recorder.requests.get(2).uri);
+		assertFalse(recorder.requests.get(2).keepAlive);
+		assertEquals(3, recorder.completed);
+	}
+
+	@Test
+	public void parsesBodySplitOverManyReads() {
+		Recorder recorder = new Recorder();
+		HTTPRequestParser parser = new HTTPRequestParser(16384, -1, recorder);
+		byte[] bytes = "POST / HTTP/1.1\r\nContent-Length: 11\r\n\r\nhello world".getBytes(StandardCharsets.ISO_8859_1);
+		for (byte b : bytes) {
+			parser.feed(ByteBuffer.wrap(new byte[] { b }));
+		}
+		assertEquals("hello world", recorder.body(0));
+		assertEquals(1, recorder.completed);
+	}
+
+	@Test
+	public void parsesChunkedBody() {
+		Recorder recorder = parse(-1, "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n5;ext=1\r\nhello\r\n6\r\n world\r\n0\r\nTrailer: x\r\n\r\nGET /next HTTP/1.1\r\n\r\n");
+		assertEquals(-1, recorder.requests.get(0).contentLength);
+		assertEquals("hello world", recorder.body(0));
+		assertEquals("/next", recorder.requests.get(1).uri);
+		assertEquals(2, recorder.completed);
+	}
+
+	@Test
+	public void rejectsInvalidChunkSize() {
+		Recorder recorder = parse(-1, "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n");
+		assertEquals(400, recorder.errorCode);
+		assertTrue(recorder.errorAfterHead);
+	}
+
+	@Test
+	public void rejectsChunkedBodyOverLimit() {
+		Recorder recorder = parse(8, "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n5\r\nworld\r\n0\r\n\r\n");
+		assertEquals(413, recorder.errorCode);
+	}
+
+	@Test
+	public void rejectsContentLengthOverLimitBeforeHead() {
+		Recorder recorder = parse(8, "POST / HTTP/1.1\r\nContent-Length: 9\r\nExpect: 100-continue\r\n\r\n");
+		assertEquals(413, recorder.errorCode);
+		assertTrue(recorder.requests.isEmpty());
+	}
+
+	@Test
+	public void rejectsDuplicateContentLength() {
+		assertEquals(400, parse(-1, "POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 5\r\n\r\nhello").errorCode);
+		assertEquals(400, parse(-1, "POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 6\r\n\r\nhello").errorCode);
+		assertEquals(400, parse(-1, "POST / HTTP/1.1\r\nContent-Length: 5, 5\r\n\r\nhello").errorCode);
+	}
+
+	@Test
+	public void rejectsInvalidContentLength() {
+		assertEquals(400, parse(-1, "POST / HTTP/1.1\r\nContent-Length: +5\r\n\r\nhello").errorCode);
+		assertEquals(400, parse(-1, "POST / HTTP/1.1\r\nContent-Length: -1\r\n\r\n").errorCode);
+		assertEquals(400, parse(-1, "POST / HTTP/1.1\r\nContent-Length: 0x5\r\n\r\n").errorCode);
+		assertEquals(400, parse(-1, "POST / HTTP/1.1\r\nContent-Length: 99999999999999999999\r\n\r\n").errorCode);
+	}
+
+	@Test
+	public void rejectsTransferEncodingWithContentLength() {
+		Recorder recorder = parse(-1, "POST / HTTP/1.1\r\nContent-Length: 3\r\nTransfer-Encoding: chunked\r\n\r\n0\r\n\r\n");
+		assertEquals(400, recorder.errorCode);
+		assertTrue(recorder.requests.isEmpty());
+	}
+
+	@Test
+	public void rejectsUnsupportedTransferEncoding() {
+		assertEquals(501, parse(-1, "POST / HTTP/1.1\r\nTransfer-Encoding: gzip\r\n\r\n").errorCode);
+		assertEquals(400, parse(-1, "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\nTransfer-Encoding: chunked\r\n\r\n").errorCode);
+	}
+
+	@Test
+	public void rejectsWhitespaceAroundHeaderName() {
+		assertEquals(400, parse(-1, "POST / HTTP/1.1\r\nContent-Length : 5\r\n\r\nhello").errorCode);
+		assertEquals(400, parse(-1, "GET / HTTP/1.1\r\n Host: x\r\n\r\n").errorCode);
+		assertEquals(400, parse(-1, "GET / HTTP/1.1\r\n: x\r\n\r\n").errorCode);
+	}
+
+	@Test
+	public void rejectsOtherProtocols() {
+		assertEquals(505, parse(-1, "GET / HTTP/2.0\r\n\r\n").errorCode);
+		assertEquals(400, parse(-1, "GET\r\n\r\n").errorCode);
+	}
+
+	@Test
+	public void rejectsOversizedHead() {
+		StringBuilder request = new StringBuilder("GET / HTTP/1.1\r\n");
+		for (int i = 0; i < 100; i++) {
+			request.append("X-Header-").append(i).append(": 0123456789\r\n");
+		}
+		assertEquals(431, parse(-1, request.append("\r\n").toString(), 512).errorCode);
+	}
+
+	@Test
+	public void detectsKeepAlive() {
+		assertFalse(parse(-1, "GET / HTTP/1.0\r\n\r\n").requests.get(0).keepAlive);
+		assertTrue(parse(-1, "GET / HTTP/1.0\r\nConnection: keep-alive\r\n\r\n").requests.get(0).keepAlive);
+		assertTrue(parse(-1, "GET / HTTP/1.1\r\n\r\n").requests.get(0).keepAlive);
+		assertFalse(parse(-1, "GET / HTTP/1.1\r\nConnection: close\r\n\r\n").requests.get(0).keepAlive);
+	}
+
+	@Test
+	public void stopsParsingAfterError() {
+		Recorder recorder = parse(-1, "POST / HTTP/1.1\r\nContent-Length: x\r\n\r\nGET / HTTP/1.1\r\n\r\n");
+		assertEquals(400, recorder.errorCode);
+		assertTrue(recorder.requests.isEmpty());
+	}
+
+	private static Recorder parse(long maxBodySize, String text) {
+		return parse(maxBodySize, text, 16384);
+	}
+
+	private static Recorder parse(long maxBodySize, String text, int maxHeaderSize) {
+		Recorder recorder = new Recorder();
+		new HTTPRequestParser(maxHeaderSize, maxBodySize, recorder).feed(ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1)));
+		return recorder;
+	}
+
+	private static class Recorder implements HTTPRequestParser.Listener {
+		private final List<ParsedRequest> requests = new ArrayList<>();
+		private final List<ByteArrayOutputStream> bodies = new ArrayList<>();
+		private int completed = 0;
+		private int errorCode = 0;
+		private String error = null;
+		private boolean errorAfterHead = false;
+
+		@Override
+		public void headReceived(ParsedRequest request) {
+			requests.add(request);
+			bodies.add(new ByteArrayOutputStream());
+		}
+
+		@Override
+		public void bodyReceived(ParsedRequest request, ByteBuffer buffer, int amount) {
+			byte[] bytes = new byte[amount];
+			buffer.get(bytes);
+			bodies.get(requests.indexOf(request)).write(bytes, 0, amount);
+		}
+
+		@Override
+		public void requestReceived(ParsedRequest request) {
+			completed++;
+		}
+
+		@Override
+		public void failed(ParsedRequest request, int code, String message) {
+			errorCode = code;
+			error = message;
+			errorAfterHead = request != null;
+		}
+
+		private String body(int index) {
+			return new String(bodies.get(index).toByteArray(), StandardCharsets.ISO_8859_1);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package net.novauniverse.apilib.http.transport.nio;
+
+import net.novauniverse.apilib.http.HTTPServer;
+import net.novauniverse.apilib.http.auth.Authentication;
+import net.novauniverse.apilib.http.endpoint.HTTPEndpoint;
+import net.novauniverse.apilib.http.request.Request;
+import net.novauniverse.apilib.http.response.AbstractHTTPResponse;
+import net.novauniverse.apilib.http.response.TextResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class NIOTransportTest {
+	private HTTPServer server;
+	private int port;
+
+	@BeforeEach
+	public void start() throws IOException {
+		server = new HTTPServer(new InetSocketAddress("127.0.0.1", 0), false);
+		server.setTransportFactory(NIOTransport::new);
+		server.setMaxBodySize(1024);
+		server.start();
+		port = server.getTransports().get(0).getAddress().getPort();
+		server.addEndpoint("/echo", new HTTPEndpoint() {
+			@Override
+			public AbstractHTTPResponse handleRequest(Request request, Authentication authentication) {
+				return new TextResponse(request.getMethod() + " " + request.getBody());
+			}
+		});
+		server.addEndpoint("/split", new HTTPEndpoint() {
+			@Override
+			public AbstractHTTPResponse handleRequest(Request request, Authentication authentication) {
+				request.getTransportExchange().getResponseHeaders().computeIfAbsent("X-Test", key -> new ArrayList<>()).add("a\r\nSet-Cookie: injected=1");
+				return new TextResponse("split");
+			}
+		});
+	}
+
+	@AfterEach
+	public void stop() {
+		server.stop(0);
+	}
+
+	@Test
+	public void answersPipelinedRequestsInOrder() throws IOException {
+		try (Socket socket = connect()) {
+			send(socket, "POST /echo HTTP/1.1\r\nContent-Length: 3\r\n\r\noneGET /echo HTTP/1.1\r\n\r\nPOST /echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n3\r\ntwo\r\n0\r\n\r\n");
+			assertEquals("POST one", readResponse(socket.getInputStream()).body);
+			assertEquals("GET ", readResponse(socket.getInputStream()).body);
+			assertEquals("POST two", readResponse(socket.getInputStream()).body);
+		}
+	}
+
+	@Test
+	public void sendsContinueOnlyWhenBodyIsRead() throws IOException {
+		try (Socket socket = connect()) {
+			send(socket, "POST /echo HTTP/1.1\r\nContent-Length: 5\r\nExpect: 100-continue\r\n\r\n");
+			Response interim = readResponse(socket.getInputStream());
+			assertEquals(100, interim.code);
+			send(socket, "hello");
+			Response response = readResponse(socket.getInputStream());
+			assertEquals(200, response.code);
+			assertEquals("POST hello", response.body);
+		}
+	}
+
+	@Test
+	public void rejectsTooLargeBodyWithoutContinue() throws IOException {
+		try (Socket socket = connect()) {
+			send(socket, "POST /echo HTTP/1.1\r\nContent-Length: 5000\r\nExpect: 100-continue\r\n\r\n");
+			Response response = readResponse(socket.getInputStream());
+			assertEquals(413, response.code);
+		}
+	}
+
+	@Test
+	public void keepsHttp10ConnectionAliveWhenAsked() throws IOException {
+		try (Socket socket = connect()) {
+			send(socket, "GET /echo HTTP/1.0\r\nConnection: keep-alive\r\n\r\n");
+			Response first = readResponse(socket.getInputStream());
+			assertEquals("keep-alive", first.headers.get("connection"));
+			send(socket, "GET /echo HTTP/1.0\r\n\r\n");
+			Response second = readResponse(socket.getInputStream());
+			assertEquals(200, second.code);
+			assertEquals("close", second.headers.get("connection"));
+			assertEquals(-1, socket.getInputStream().read());
+		}
+	}
+
+	@Test
+	public void rejectsSmugglingAndClosesConnection() throws IOException {
+		try (Socket socket = connect()) {
+			send(socket, "POST /echo HTTP/1.1\r\nContent-Length: 4\r\nTransfer-Encoding: chunked\r\n\r\n0\r\n\r\nGET /echo HTTP/1.1\r\n\r\n");
+			Response response = readResponse(socket.getInputStream());
+			assertEquals(400, response.code);
+			assertEquals(-1, socket.getInputStream().read());
+		}
+	}
+
+	@Test
+	public void refusesHeaderValuesWithLineBreaks() throws IOException {
+		try (Socket socket = connect()) {
+			send(socket, "GET /split HTTP/1.1\r\n\r\n");
+			Response response = readResponse(socket.getInputStream());
+			assertEquals(500, response.code);
+			assertNull(response.headers.get("set-cookie"));
+			assertFalse(response.body.contains("split"));
+		}
+	}
+
+	private Socket connect() throws IOException {
+		Socket socket = new Socket("127.0.0.1", port);
+		socket.setSoTimeout(5000);
+		return socket;
+	}
+
+	private static void send(Socket socket, String text) throws IOException {
+		OutputStream out = socket.getOutputStream();
+		out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+	}
+
+	private static Response readResponse(InputStream in) throws IOException {
+		Response response = new Response();
+		String status = readLine(in);
+		response.code = Integer.parseInt(status.split(" ")[1]);
+		String line;
+		while (!(line = readLine(in)).isEmpty()) {
+			int colon = line.indexOf(':');
+			response.headers.put(line.substring(0, colon).toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+		}
+		String length = response.headers.get("content-length");
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		if ("chunked".equalsIgnoreCase(response.headers.get("transfer-encoding"))) {
+			int size;
+			while ((size = Integer.parseInt(readLine(in), 16)) > 0) {
+				body.write(readBytes(in, size));
+				readLine(in);
+			}
+			readLine(in);
+		} else if (length != null) {
+			body.write(readBytes(in, Integer.parseInt(length)));
+		}
+		response.body = new String(body.toByteArray(), StandardCharsets.UTF_8);
+		return response;
+	}
+
+	private static byte[] readBytes(InputStream in, int amount) throws IOException {
+		byte[] bytes = new byte[amount];
+		int read = 0;
+		while (read < amount) {
+			int count = in.read(bytes, read, amount - read);
+			if (count < 0) {
+				throw new IOException("Connection closed");
+			}
+			read += count;
+		}
+		return bytes;
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		int b;
+		while ((b = in.read()) != '\n') {
+			if (b < 0) {
+				throw new IOException("Connection closed");
+			}
+			if (b != '\r') {
+				builder.append((char) b);
+			}
+		}
+		return builder.toString();
+	}
+
+	private static class Response {
+		private int code;
+		private final Map<String, String> headers = new TreeMap<>();
+		private String body;
+	}
+}
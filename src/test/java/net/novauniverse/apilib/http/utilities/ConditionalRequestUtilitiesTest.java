@@ -0,0 +1,169 @@
+package net.novauniverse.apilib.http.utilities;
+
+import net.novauniverse.apilib.http.transport.TransportExchange;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConditionalRequestUtilitiesTest {
+	private static final long LAST_MODIFIED = 784111777000L;
+	private static final String LAST_MODIFIED_DATE = "Sun, 06 Nov 1994 08:49:37 GMT";
+
+	@Test
+	public void matchesWithWeakComparison() {
+		assertTrue(ConditionalRequestUtilities.matches("\"a\"", "\"a\""));
+		assertTrue(ConditionalRequestUtilities.matches("W/\"a\"", "\"a\""));
+		assertTrue(ConditionalRequestUtilities.matches("\"a\"", "W/\"a\""));
+		assertTrue(ConditionalRequestUtilities.matches("\"x\", W/\"a\" ,\"y\"", "\"a\""));
+		assertTrue(ConditionalRequestUtilities.matches("*", "\"a\""));
+		assertFalse(ConditionalRequestUtilities.matches("\"ab\"", "\"a\""));
+		assertFalse(ConditionalRequestUtilities.matches("a", "\"a\""));
+		assertFalse(ConditionalRequestUtilities.matches("", "\"a\""));
+	}
+
+	@Test
+	public void formatsAndParsesDates() {
+		assertEquals(LAST_MODIFIED_DATE, ConditionalRequestUtilities.formatDate(LAST_MODIFIED));
+		assertEquals(LAST_MODIFIED, ConditionalRequestUtilities.parseDate(LAST_MODIFIED_DATE));
+		assertEquals(-1, ConditionalRequestUtilities.parseDate("yesterday"));
+	}
+
+	@Test
+	public void quotesVersions() {
+		assertEquals("\"v1\"", ConditionalRequestUtilities.toETag("v1"));
+		assertEquals("\"v1\"", ConditionalRequestUtilities.toETag("\"v1\""));
+		assertEquals("W/\"v1\"", ConditionalRequestUtilities.toETag("W/\"v1\""));
+		assertEquals("\"ab\"", ConditionalRequestUtilities.toETag("a\"b"));
+	}
+
+	@Test
+	public void isNotModifiedWhenETagMatches() {
+		assertTrue(ConditionalRequestUtilities.isNotModified(exchange("GET", "\"v1\"", null), "\"v1\"", -1));
+		assertTrue(ConditionalRequestUtilities.isNotModified(exchange("HEAD", "\"v0\", \"v1\"", null), "\"v1\"", -1));
+		assertFalse(ConditionalRequestUtilities.isNotModified(exchange("GET", "\"v0\"", null), "\"v1\"", -1));
+		assertFalse(ConditionalRequestUtilities.isNotModified(exchange("GET", "\"v1\"", null), null, LAST_MODIFIED));
+	}
+
+	@Test
+	public void prefersIfNoneMatchOverIfModifiedSince() {
+		assertFalse(ConditionalRequestUtilities.isNotModified(exchange("GET", "\"v0\"", LAST_MODIFIED_DATE), "\"v1\"", LAST_MODIFIED));
+	}
+
+	@Test
+	public void isNotModifiedWhenNotChangedSince() {
+		assertTrue(ConditionalRequestUtilities.isNotModified(exchange("GET", null, LAST_MODIFIED_DATE), null, LAST_MODIFIED));
+		// Http dates have no milliseconds
+		assertTrue(ConditionalRequestUtilities.isNotModified(exchange("GET", null, LAST_MODIFIED_DATE), null, LAST_MODIFIED + 999));
+		assertFalse(ConditionalRequestUtilities.isNotModified(exchange("GET", null, LAST_MODIFIED_DATE), null, LAST_MODIFIED + 1000));
+		assertFalse(ConditionalRequestUtilities.isNotModified(exchange("GET", null, "invalid"), null, LAST_MODIFIED));
+		assertFalse(ConditionalRequestUtilities.isNotModified(exchange("GET", null, LAST_MODIFIED_DATE), null, -1));
+	}
+
+	@Test
+	public void onlyAppliesToGetAndHead() {
+		assertFalse(ConditionalRequestUtilities.isNotModified(exchange("POST", "\"v1\"", null), "\"v1\"", -1));
+		assertFalse(ConditionalRequestUtilities.isNotModified(exchange("PUT", null, LAST_MODIFIED_DATE), null, LAST_MODIFIED));
+	}
+
+	@Test
+	public void sendsNotModifiedWithValidators() throws IOException {
+		Exchange exchange = exchange("GET", "\"v1\"", null);
+		ConditionalRequestUtilities.sendNotModified(exchange, "\"v1\"", LAST_MODIFIED);
+		assertEquals(304, exchange.code);
+		assertEquals(-1, exchange.length);
+		assertEquals("\"v1\"", exchange.getFirstResponseHeader(HTTPHeaders.ETAG));
+		assertEquals(LAST_MODIFIED_DATE, exchange.getFirstResponseHeader(HTTPHeaders.LAST_MODIFIED));
+	}
+
+	private static Exchange exchange(String method, String ifNoneMatch, String ifModifiedSince) {
+		Exchange exchange = new Exchange(method);
+		if (ifNoneMatch != null) {
+			exchange.requestHeaders.computeIfAbsent(HTTPHeaders.IF_NONE_MATCH, key -> new ArrayList<>()).add(ifNoneMatch);
+		}
+		if (ifModifiedSince != null) {
+			exchange.requestHeaders.computeIfAbsent(HTTPHeaders.IF_MODIFIED_SINCE, key -> new ArrayList<>()).add(ifModifiedSince);
+		}
+		return exchange;
+	}
+
+	private static class Exchange implements TransportExchange {
+		private final String method;
+		private final Map<String, List<String>> requestHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		private final Map<String, List<String>> responseHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		private int code = 0;
+		private long length = 0;
+
+		private Exchange(String method) {
+			this.method = method;
+		}
+
+		@Override
+		public String getRequestMethod() {
+			return method;
+		}
+
+		@Override
+		public URI getRequestURI() {
+			return URI.create("/");
+		}
+
+		@Override
+		public String getProtocol() {
+			return "HTTP/1.1";
+		}
+
+		@Override
+		public Map<String, List<String>> getRequestHeaders() {
+			return requestHeaders;
+		}
+
+		@Override
+		public Map<String, List<String>> getResponseHeaders() {
+			return responseHeaders;
+		}
+
+		@Override
+		public InputStream getRequestBody() {
+			return new ByteArrayInputStream(new byte[0]);
+		}
+
+		@Override
+		public void sendResponseHeaders(int code, long length) {
+			this.code = code;
+			this.length = length;
+		}
+
+		@Override
+		public OutputStream getResponseBody() {
+			return new ByteArrayOutputStream();
+		}
+
+		@Override
+		public InetSocketAddress getRemoteAddress() {
+			return null;
+		}
+
+		@Override
+		public InetSocketAddress getLocalAddress() {
+			return null;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
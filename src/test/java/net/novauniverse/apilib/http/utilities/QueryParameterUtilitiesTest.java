@@ -0,0 +1,33 @@
+package net.novauniverse.apilib.http.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class QueryParameterUtilitiesTest {
+	@Test
+	public void decodesEscapesAndPlus() {
+		assertEquals("a b&c", QueryParameterUtilities.decode("a+b%26c"));
+		assertEquals("\u20ac x", QueryParameterUtilities.decode("%E2%82%AC+x"));
+		assertEquals("AZ", QueryParameterUtilities.decode("%41%5a"));
+	}
+
+	@Test
+	public void keepsInvalidEscapes() {
+		assertEquals("%", QueryParameterUtilities.decode("%"));
+		assertEquals("%g1", QueryParameterUtilities.decode("%g1"));
+		assertEquals("a%2", QueryParameterUtilities.decode("a%2"));
+		assertEquals("%A", QueryParameterUtilities.decode("%%41"));
+	}
+
+	@Test
+	public void decodesRange() {
+		assertEquals("b c", QueryParameterUtilities.decode("a=b+c&d", 2, 5));
+	}
+
+	@Test
+	public void keepsFirstValueInMap() {
+		assertEquals("1", QueryParameterUtilities.queryToMap("a=1&a=2").get("a"));
+		assertEquals("x&y", QueryParameterUtilities.queryToMap("a=x%26y").get("a"));
+	}
+}